@@ -0,0 +1,104 @@
+package TartarusCore.TxtConverter;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Общий планировщик фоновых задач UI.
+ *
+ * - {@link #submitLatest}: по каждому ключу живет только последняя задача, предыдущая отменяется
+ *   с прерыванием потока (latest-wins). Так быстрые переключения пресетов не запускают
+ *   несколько параллельных обходов диска.
+ * - {@link #debounce}: откладывает действие и сбрасывает таймер при повторных вызовах,
+ *   действие выполняется в FX-потоке.
+ *
+ * Все потоки - daemon, пул рассчитан по числу ядер. Методы вызываются из FX-потока.
+ */
+public class BackgroundScheduler {
+
+    private static BackgroundScheduler instance;
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final Map<String, Task<?>> latestTasks = new HashMap<>();
+    private final Map<String, ScheduledFuture<?>> pendingDebounces = new HashMap<>();
+
+    private BackgroundScheduler() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        workers = Executors.newFixedThreadPool(threads, daemonFactory("bg-worker"));
+        timer = Executors.newSingleThreadScheduledExecutor(daemonFactory("bg-debounce"));
+    }
+
+    public static synchronized BackgroundScheduler getInstance() {
+        if (instance == null) {
+            instance = new BackgroundScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Запускает задачу, отменяя предыдущую с тем же ключом.
+     */
+    public <T> void submitLatest(String key, Task<T> task) {
+        Task<?> previous = latestTasks.put(key, task);
+        if (previous != null && !previous.isDone()) {
+            previous.cancel(true);
+        }
+        workers.execute(task);
+    }
+
+    /**
+     * true, если задача все еще последняя по своему ключу.
+     * Нужна в обработчиках onSucceeded: устаревшая задача могла успеть завершиться до отмены.
+     */
+    public boolean isLatest(String key, Task<?> task) {
+        return latestTasks.get(key) == task;
+    }
+
+    public void cancel(String key) {
+        Task<?> task = latestTasks.remove(key);
+        if (task != null && !task.isDone()) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Выполняет действие в FX-потоке через delayMillis после последнего вызова с тем же ключом.
+     */
+    public void debounce(String key, long delayMillis, Runnable action) {
+        ScheduledFuture<?> previous = pendingDebounces.remove(key);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+
+        ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        self[0] = timer.schedule(() -> Platform.runLater(() -> {
+            // Вызов мог быть перекрыт более новым, пока ждали FX-поток
+            if (pendingDebounces.get(key) != self[0]) return;
+            pendingDebounces.remove(key);
+            action.run();
+        }), delayMillis, TimeUnit.MILLISECONDS);
+        pendingDebounces.put(key, self[0]);
+    }
+
+    public void cancelDebounce(String key) {
+        ScheduledFuture<?> pending = pendingDebounces.remove(key);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
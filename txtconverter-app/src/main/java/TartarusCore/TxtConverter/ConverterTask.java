@@ -0,0 +1,75 @@
+package TartarusCore.TxtConverter;
+
+import javafx.concurrent.Task;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Конвертация в фоне для UI: {@link ConversionJob} с настройками пользователя
+ * (бюджет, порядок чтения, дедлайн, язык отчетов), прогресс и отмена - через свойства Task.
+ */
+public class ConverterTask extends Task<Void> {
+
+    private final ConversionJob job;
+
+    public ConverterTask(String sourceDirPath, List<FileRecord> filesToProcess,
+                         BitSet filesSelectedForMerge,
+                         List<String> ignoredFolders,
+                         boolean generateStructureFile,
+                         boolean compactMode,
+                         CompressionLevel compressionLevel,
+                         boolean generateMergedFile,
+                         boolean mergedOnly,
+                         OutputTarget outputTarget,
+                         JunkPolicy junkPolicy,
+                         boolean collapseNearDuplicates,
+                         boolean extractCommonBlocks,
+                         GitChangeSet changeSet,
+                         boolean includeDiff) {
+        PreferenceManager prefs = PreferenceManager.getInstance();
+        this.job = new ConversionJob(sourceDirPath, filesToProcess, filesSelectedForMerge, ignoredFolders,
+                generateStructureFile, compactMode, compressionLevel, generateMergedFile, mergedOnly,
+                outputTarget, junkPolicy, collapseNearDuplicates, extractCommonBlocks, changeSet, includeDiff,
+                prefs.getConversionBudget(),
+                prefs.getBoolean(ProjectConstants.PREF_LOCALITY_READS, false),
+                prefs.getInt(ProjectConstants.PREF_DEADLINE_SECONDS, 0) * 1000L,
+                LanguageManager.getInstance().getBundle());
+    }
+
+    /** Число файлов, сжатых более дешевым уровнем из-за бюджета (для итоговой сводки). */
+    public int getFallbackCount() {
+        return job.getFallbackCount();
+    }
+
+    /** Число файлов, пропущенных из-за дедлайна прогона. */
+    public int getDeadlineSkippedCount() {
+        return job.getDeadlineSkippedCount();
+    }
+
+    /** Число файлов, упрощенных ради дедлайна прогона. */
+    public int getDeadlineDegradedCount() {
+        return job.getDeadlineDegradedCount();
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        job.run(new ProgressListener() {
+            @Override
+            public void message(String text) {
+                updateMessage(text);
+            }
+
+            @Override
+            public void progress(long done, long total) {
+                updateProgress(done, total);
+            }
+
+            @Override
+            public void append(LogLevel level, String message) {
+                LogBuffer.getInstance().append(level, message);
+            }
+        }, this::isCancelled);
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package TartarusCore.TxtConverter;
+
+import javafx.concurrent.Task;
+
+import java.util.List;
+
+/**
+ * Фоновая оценка размера результата для всех уровней сжатия (см. DryRunAnalyzer).
+ */
+public class DryRunTask extends Task<DryRunAnalyzer.Estimates> {
+
+    private final List<FileRecord> files;
+    private final String sourceDirPath;
+
+    public DryRunTask(List<FileRecord> files, String sourceDirPath) {
+        this.files = files;
+        this.sourceDirPath = sourceDirPath;
+    }
+
+    @Override
+    protected DryRunAnalyzer.Estimates call() throws Exception {
+        int total = files.size();
+        PreferenceManager prefs = PreferenceManager.getInstance();
+        // Архив записей не закроется посреди оценки, даже если его уже пересканировали
+        SourceRoot source = SourceRoot.retain(sourceDirPath, files);
+        try (source) {
+            return DryRunAnalyzer.getInstance().analyze(files, prefs.getConversionBudget(),
+                    prefs.getBoolean(ProjectConstants.PREF_LOCALITY_READS, false), this::isCancelled,
+                    done -> updateProgress(done, total));
+        }
+    }
+}
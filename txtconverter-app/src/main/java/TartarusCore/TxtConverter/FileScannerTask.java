@@ -0,0 +1,69 @@
+package TartarusCore.TxtConverter;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Сканирование в фоне для UI: {@link FileScanner} с сообщениями на языке интерфейса.
+ */
+public class FileScannerTask extends Task<List<FileRecord>> {
+
+    private final FileScanner scanner;
+
+    /**
+     * @param gitRef Если задан, сканируются только файлы, измененные относительно этой git-ссылки
+     */
+    public FileScannerTask(String sourceDirPath, List<String> extensions, List<String> ignoredFolders, String gitRef) {
+        this.scanner = new FileScanner(sourceDirPath, extensions, ignoredFolders, gitRef,
+                LanguageManager.getInstance().getBundle());
+    }
+
+    @Override
+    protected List<FileRecord> call() throws Exception {
+        List<FileRecord> records = scanner.scan(new ProgressListener() {
+            @Override
+            public void message(String text) {
+                updateMessage(text);
+            }
+
+            @Override
+            public void append(LogLevel level, String message) {
+                LogBuffer.getInstance().append(level, message);
+            }
+        }, this::isCancelled);
+        // Результат отмененной задачи никто не заберет
+        if (isCancelled()) releaseSource();
+        return records;
+    }
+
+    /**
+     * Ссылка на источник записей (см. {@link FileScanner#takeSource}): ее забирает тот,
+     * кто принял результат, и закрывает, когда записи больше не нужны.
+     */
+    public SourceRoot takeSource() {
+        return scanner.takeSource();
+    }
+
+    /** Закрывает ссылку на источник, если ее никто не забрал (задача отменена или устарела). */
+    public void releaseSource() {
+        closeQuietly(takeSource());
+    }
+
+    static void closeQuietly(SourceRoot source) {
+        if (source == null) return;
+        try {
+            source.close();
+        } catch (IOException e) {
+            LogBuffer.getInstance().warn("Cannot close " + source.getLocation() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Изменения относительно git-ссылки, если сканирование шло в этом режиме (иначе null).
+     */
+    public GitChangeSet getChangeSet() {
+        return scanner.getChangeSet();
+    }
+}
@@ -31,7 +31,7 @@ public class LanguageManager {
         }
     }
 
-    public static LanguageManager getInstance() {
+    public static synchronized LanguageManager getInstance() {
         if (instance == null) {
             instance = new LanguageManager();
         }
@@ -53,7 +53,7 @@ public class LanguageManager {
     public void setLocale(Locale locale) {
         this.currentLocale = locale;
         // ВАЖНОЕ ИЗМЕНЕНИЕ: Передаем UTF8Control, чтобы корректно читать кириллицу
-        this.bundle = ResourceBundle.getBundle("TartarusCore.TxtConverter.messages", locale, new UTF8Control());
+        this.bundle = ResourceBundle.getBundle(ProjectConstants.MESSAGES_BUNDLE, locale, new UTF8Control());
         prefs.put(ProjectConstants.PREF_APP_LANGUAGE, locale.toLanguageTag());
         notifyListeners();
     }
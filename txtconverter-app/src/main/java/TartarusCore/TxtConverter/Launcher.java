@@ -1,12 +1,19 @@
 package TartarusCore.TxtConverter;
 
+import java.util.Arrays;
+
 /**
  * Этот класс-запускатор является обходным путем для проблем,
  * возникающих при запуске JavaFX приложений из "fat jar".
  * Он служит единственной, явной точкой входа для приложения.
+ * С первым аргументом --serve вместо окна запускается локальный HTTP-сервис ({@link ConversionServer}).
  */
 public class Launcher {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            ConversionServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         TxtConverterApp.main(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,922 @@
+package TartarusCore.TxtConverter;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.input.TransferMode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.StringConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class MainController {
+
+    private static final String SCAN_KEY = "scan";
+    private static final String CONVERT_KEY = "convert";
+    private static final String RESCAN_KEY = "rescan";
+    private static final String ESTIMATE_KEY = "estimate";
+    private static final int DRY_RUN_TOP_FILES = 10;
+    private static final long RESCAN_DEBOUNCE_MS = 300;
+    // Сколько строк журнала держит список на экране; полный журнал - в файле
+    private static final int MAX_VISIBLE_LOG_LINES = 5000;
+
+    private Stage stage;
+    private double xOffset = 0;
+    private double yOffset = 0;
+    private List<FileRecord> allFoundFiles = new ArrayList<>();
+    // Изменения git, по которым сделано последнее сканирование (null - обычный режим)
+    private GitChangeSet gitChanges;
+    // Индексы FileRecord, выбранных для полного включения в общий файл
+    private BitSet filesSelectedForMerge = new BitSet();
+    // Источник последнего сканирования и правила выбора для него (см. SelectionStore)
+    private Path scannedLocation;
+    // Ссылка на источник allFoundFiles: архив открыт, пока его записи показаны (см. SourceRoot)
+    private SourceRoot scannedSource;
+    private List<SelectionStore.Rule> selectionRules = new ArrayList<>();
+    // Оценки размера по уровням сжатия для allFoundFiles (null, пока не посчитаны)
+    private DryRunAnalyzer.Estimates estimates;
+    private boolean dryRunReportRequested = false;
+
+    private final ObservableList<LogBuffer.Entry> logItems = FXCollections.observableArrayList();
+    private long shownLogSequence = 0;
+
+    // UI Elements
+    @FXML private VBox rootBox;
+    @FXML private Label lblTitle;
+    @FXML private Label lblSourceDir;
+    @FXML private Label lblPreset;
+    @FXML private Label lblExtensions;
+    @FXML private Label lblIgnored;
+    @FXML private Label lblLog;
+    @FXML private HBox titleBar;
+
+    @FXML private TextField sourceDirField;
+    @FXML private Button selectSourceBtn;
+    @FXML private Button selectArchiveBtn;
+    @FXML private TextField extensionsField;
+    @FXML private ComboBox<String> presetComboBox;
+    @FXML private ListView<LogBuffer.Entry> logListView;
+    @FXML private ComboBox<LogLevel> logLevelComboBox;
+
+    @FXML private CheckBox generateStructureFileCheckbox;
+    @FXML private CheckBox compactStructureCheckbox;
+
+    @FXML private Label lblCompression;
+    @FXML private ComboBox<CompressionLevel> compressionComboBox;
+    @FXML private Label estimateLabel;
+    @FXML private Button dryRunBtn;
+
+    @FXML private Label lblOutputTarget;
+    @FXML private ComboBox<OutputTarget> outputTargetComboBox;
+
+    @FXML private Label lblJunkPolicy;
+    @FXML private ComboBox<JunkPolicy> junkPolicyComboBox;
+
+    @FXML private TextField ignoredFoldersField;
+    @FXML private CheckBox gitChangesCheckbox;
+    @FXML private TextField gitRefField;
+    @FXML private CheckBox gitDiffCheckbox;
+    @FXML private CheckBox generateMergedFileCheckbox;
+    @FXML private CheckBox mergedOnlyCheckbox;
+    @FXML private CheckBox collapseDuplicatesCheckbox;
+    @FXML private CheckBox commonBlocksCheckbox;
+
+    @FXML private Button rescanBtn;
+    @FXML private Button selectFilesBtn;
+    @FXML private Button convertBtn;
+    @FXML private ProgressBar progressBar;
+    @FXML private Label statusLabel;
+
+    public void setStage(Stage stage) { this.stage = stage; }
+
+    @FXML
+    public void initialize() {
+        setupPresetsUI();
+        setupPresetListener();
+        setupWindowDrag();
+        setupCompressionCombo();
+        setupOutputTargetCombo();
+        setupJunkPolicyCombo();
+        setupDragAndDrop();
+        setupLogView();
+
+        compactStructureCheckbox.disableProperty().bind(generateStructureFileCheckbox.selectedProperty().not());
+        mergedOnlyCheckbox.disableProperty().bind(generateMergedFileCheckbox.selectedProperty().not());
+        collapseDuplicatesCheckbox.disableProperty().bind(generateMergedFileCheckbox.selectedProperty().not());
+        commonBlocksCheckbox.disableProperty().bind(generateMergedFileCheckbox.selectedProperty().not());
+        gitRefField.disableProperty().bind(gitChangesCheckbox.selectedProperty().not());
+        gitDiffCheckbox.disableProperty().bind(gitChangesCheckbox.selectedProperty().not());
+
+        loadPreferences();
+        applyLogFilePreference();
+
+        // Правка фильтров вручную тоже пересканирует, но только после паузы в наборе
+        extensionsField.textProperty().addListener((obs, oldVal, newVal) -> requestRescan());
+        ignoredFoldersField.textProperty().addListener((obs, oldVal, newVal) -> requestRescan());
+        gitChangesCheckbox.selectedProperty().addListener((obs, oldVal, newVal) -> requestRescan());
+        gitRefField.textProperty().addListener((obs, oldVal, newVal) -> {
+            if (gitChangesCheckbox.isSelected()) requestRescan();
+        });
+
+        LanguageManager.getInstance().addListener(this::updateTexts);
+        updateTexts();
+
+        updateButtonStates();
+        log(LanguageManager.getInstance().getString("log.app_ready"));
+    }
+
+    /**
+     * Журнал показывается в виртуализированном ListView. Новые записи забираются из LogBuffer
+     * пачкой раз в кадр, поэтому частые сообщения из фоновых задач не забивают FX-поток.
+     */
+    private void setupLogView() {
+        logListView.setItems(logItems);
+        logListView.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(LogBuffer.Entry item, boolean empty) {
+                super.updateItem(item, empty);
+                getStyleClass().removeAll("log-debug", "log-warn", "log-error");
+                if (empty || item == null) {
+                    setText(null);
+                    return;
+                }
+                setText(item.getMessage());
+                switch (item.getLevel()) {
+                    case DEBUG: getStyleClass().add("log-debug"); break;
+                    case WARN: getStyleClass().add("log-warn"); break;
+                    case ERROR: getStyleClass().add("log-error"); break;
+                    default: break;
+                }
+            }
+        });
+
+        logLevelComboBox.getItems().addAll(LogLevel.values());
+        logLevelComboBox.setValue(LogLevel.INFO);
+        logLevelComboBox.valueProperty().addListener((obs, oldVal, newVal) -> {
+            // Смена фильтра: перестраиваем список из колец буфера
+            logItems.clear();
+            shownLogSequence = 0;
+        });
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flushLogToView();
+            }
+        }.start();
+    }
+
+    private void flushLogToView() {
+        LogBuffer buffer = LogBuffer.getInstance();
+        if (buffer.getLastSequence() == shownLogSequence) return;
+
+        List<LogBuffer.Entry> batch = new ArrayList<>();
+        shownLogSequence = buffer.drainSince(shownLogSequence, logLevelComboBox.getValue(), batch::add);
+        if (batch.isEmpty()) return;
+
+        if (batch.size() > MAX_VISIBLE_LOG_LINES) {
+            batch = batch.subList(batch.size() - MAX_VISIBLE_LOG_LINES, batch.size());
+        }
+        int overflow = logItems.size() + batch.size() - MAX_VISIBLE_LOG_LINES;
+        if (overflow > 0) {
+            logItems.remove(0, overflow);
+        }
+        logItems.addAll(batch);
+        logListView.scrollTo(logItems.size() - 1);
+    }
+
+    private void applyLogFilePreference() {
+        boolean enabled = PreferenceManager.getInstance().getBoolean(ProjectConstants.PREF_LOG_TO_FILE, false);
+        try {
+            LogBuffer.getInstance().setLogFile(enabled ? LogBuffer.defaultLogFile() : null);
+        } catch (IOException e) {
+            logError("Log file: " + e.getMessage());
+        }
+    }
+
+    private void setupDragAndDrop() {
+        if (rootBox == null) return;
+
+        rootBox.setOnDragOver(event -> {
+            if (event.getDragboard().hasFiles()) {
+                List<File> files = event.getDragboard().getFiles();
+                if (files.size() == 1 && isSource(files.get(0))) {
+                    event.acceptTransferModes(TransferMode.COPY);
+                }
+            }
+            event.consume();
+        });
+
+        rootBox.setOnDragDropped(event -> {
+            boolean success = false;
+            if (event.getDragboard().hasFiles()) {
+                List<File> files = event.getDragboard().getFiles();
+                if (files.size() == 1 && isSource(files.get(0))) {
+                    File folder = files.get(0);
+                    setSourceDirectory(folder);
+                    success = true;
+                }
+            }
+            event.setDropCompleted(success);
+            event.consume();
+        });
+    }
+
+    /** Источником может быть папка или архив исходников (zip, jar...). */
+    private static boolean isSource(File file) {
+        return file.isDirectory() || SourceRoot.isArchive(file.toPath());
+    }
+
+    private void loadPreferences() {
+        PreferenceManager prefs = PreferenceManager.getInstance();
+
+        String lastDir = prefs.getString(ProjectConstants.PREF_LAST_DIR, "");
+        if (!lastDir.isEmpty() && Files.exists(Paths.get(lastDir))) {
+            sourceDirField.setText(lastDir);
+        }
+
+        String lastPreset = prefs.getString(ProjectConstants.PREF_LAST_PRESET, "Unity Engine");
+        // Проверяем через менеджер, существует ли такой пресет (вдруг мы его удалили)
+        if (PresetManager.getInstance().hasPreset(lastPreset)) {
+            presetComboBox.getSelectionModel().select(lastPreset);
+        } else {
+            // Если сохраненного пресета нет в базе, выбираем первый доступный или Manual
+            presetComboBox.getSelectionModel().selectFirst();
+        }
+
+        generateStructureFileCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_GEN_STRUCTURE, false));
+        compactStructureCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_COMPACT_MODE, true));
+        generateMergedFileCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_GEN_MERGED, true));
+        mergedOnlyCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_MERGED_ONLY, false));
+        collapseDuplicatesCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_COLLAPSE_DUPLICATES, false));
+        commonBlocksCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_COMMON_BLOCKS, false));
+        gitChangesCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_GIT_CHANGES_ONLY, false));
+        gitRefField.setText(prefs.getString(ProjectConstants.PREF_GIT_REF, "HEAD"));
+        gitDiffCheckbox.setSelected(prefs.getBoolean(ProjectConstants.PREF_GIT_INCLUDE_DIFF, true));
+        compressionComboBox.setValue(prefs.getCompressionLevel());
+        outputTargetComboBox.setValue(prefs.getOutputTarget());
+        junkPolicyComboBox.setValue(prefs.getJunkPolicy());
+
+        if (!sourceDirField.getText().isEmpty()) {
+            updateMergedCheckboxText();
+        }
+    }
+
+    private void savePreferences() {
+        PreferenceManager prefs = PreferenceManager.getInstance();
+        prefs.saveString(ProjectConstants.PREF_LAST_DIR, sourceDirField.getText());
+        prefs.saveString(ProjectConstants.PREF_LAST_PRESET, presetComboBox.getValue());
+        prefs.saveBoolean(ProjectConstants.PREF_GEN_STRUCTURE, generateStructureFileCheckbox.isSelected());
+        prefs.saveBoolean(ProjectConstants.PREF_COMPACT_MODE, compactStructureCheckbox.isSelected());
+        prefs.saveBoolean(ProjectConstants.PREF_GEN_MERGED, generateMergedFileCheckbox.isSelected());
+        prefs.saveBoolean(ProjectConstants.PREF_MERGED_ONLY, mergedOnlyCheckbox.isSelected());
+        prefs.saveBoolean(ProjectConstants.PREF_COLLAPSE_DUPLICATES, collapseDuplicatesCheckbox.isSelected());
+        prefs.saveBoolean(ProjectConstants.PREF_COMMON_BLOCKS, commonBlocksCheckbox.isSelected());
+        prefs.saveBoolean(ProjectConstants.PREF_GIT_CHANGES_ONLY, gitChangesCheckbox.isSelected());
+        prefs.saveString(ProjectConstants.PREF_GIT_REF, gitRefField.getText());
+        prefs.saveBoolean(ProjectConstants.PREF_GIT_INCLUDE_DIFF, gitDiffCheckbox.isSelected());
+        prefs.saveCompressionLevel(compressionComboBox.getValue());
+        prefs.saveOutputTarget(outputTargetComboBox.getValue());
+        prefs.saveJunkPolicy(junkPolicyComboBox.getValue());
+    }
+
+    private void setupCompressionCombo() {
+        compressionComboBox.getItems().addAll(CompressionLevel.values());
+        if (compressionComboBox.getValue() == null) {
+            compressionComboBox.setValue(CompressionLevel.SMART);
+        }
+
+        compressionComboBox.setConverter(new StringConverter<CompressionLevel>() {
+            @Override
+            public String toString(CompressionLevel object) {
+                if (object == null) return "";
+                LanguageManager lm = LanguageManager.getInstance();
+                switch (object) {
+                    case NONE: return lm.getString("ui.comp_none");
+                    case SMART: return lm.getString("ui.comp_smart");
+                    case MAXIMUM: return lm.getString("ui.comp_max");
+                    default: return object.name();
+                }
+            }
+            @Override
+            public CompressionLevel fromString(String string) { return null; }
+        });
+
+        // Оценки посчитаны сразу для всех уровней, переключение только перерисовывает подпись
+        compressionComboBox.valueProperty().addListener((obs, oldVal, newVal) -> updateEstimateLabel());
+    }
+
+    private void setupOutputTargetCombo() {
+        outputTargetComboBox.getItems().addAll(OutputTarget.values());
+        outputTargetComboBox.setValue(OutputTarget.DIRECTORY);
+
+        outputTargetComboBox.setConverter(new StringConverter<OutputTarget>() {
+            @Override
+            public String toString(OutputTarget object) {
+                if (object == null) return "";
+                LanguageManager lm = LanguageManager.getInstance();
+                switch (object) {
+                    case DIRECTORY: return lm.getString("ui.output_dir");
+                    case ZIP: return lm.getString("ui.output_zip");
+                    case TAR_GZ: return lm.getString("ui.output_targz");
+                    case STDOUT: return lm.getString("ui.output_stdout");
+                    default: return object.name();
+                }
+            }
+            @Override
+            public OutputTarget fromString(String string) { return null; }
+        });
+    }
+
+    private void updateTexts() {
+        LanguageManager lm = LanguageManager.getInstance();
+
+        lblTitle.setText(lm.getString("app.title"));
+        lblSourceDir.setText(lm.getString("ui.source_dir"));
+        selectSourceBtn.setText(lm.getString("ui.choose_btn"));
+        selectArchiveBtn.setText(lm.getString("ui.choose_archive_btn"));
+        selectArchiveBtn.setTooltip(new Tooltip(lm.getString("ui.choose_archive_tooltip")));
+        lblPreset.setText(lm.getString("ui.preset"));
+        lblExtensions.setText(lm.getString("ui.extensions"));
+        extensionsField.setPromptText(lm.getString("ui.extensions_prompt"));
+        lblIgnored.setText(lm.getString("ui.ignored"));
+        ignoredFoldersField.setPromptText(lm.getString("ui.ignored_prompt"));
+        rescanBtn.setText(lm.getString("ui.rescan_btn"));
+
+        String structFileName = ProjectConstants.REPORT_STRUCTURE_FILE;
+        generateStructureFileCheckbox.setText(String.format(lm.getString("ui.structure_cb"), structFileName));
+        compactStructureCheckbox.setText(lm.getString("ui.compact_structure_cb"));
+
+        lblCompression.setText(lm.getString("ui.compression_label"));
+        CompressionLevel current = compressionComboBox.getValue();
+        compressionComboBox.setConverter(compressionComboBox.getConverter());
+        compressionComboBox.setValue(current);
+
+        lblOutputTarget.setText(lm.getString("ui.output_label"));
+        OutputTarget currentTarget = outputTargetComboBox.getValue();
+        outputTargetComboBox.setConverter(outputTargetComboBox.getConverter());
+        outputTargetComboBox.setValue(currentTarget);
+
+        lblJunkPolicy.setText(lm.getString("ui.junk_label"));
+        JunkPolicy currentPolicy = junkPolicyComboBox.getValue();
+        junkPolicyComboBox.setConverter(junkPolicyComboBox.getConverter());
+        junkPolicyComboBox.setValue(currentPolicy);
+
+        updateMergedCheckboxText();
+        mergedOnlyCheckbox.setText(lm.getString("ui.merged_only_cb"));
+        collapseDuplicatesCheckbox.setText(lm.getString("ui.collapse_duplicates_cb"));
+        commonBlocksCheckbox.setText(lm.getString("ui.common_blocks_cb"));
+        gitChangesCheckbox.setText(lm.getString("ui.git_changes_cb"));
+        gitChangesCheckbox.setTooltip(new Tooltip(lm.getString("ui.git_changes_tooltip")));
+        gitRefField.setPromptText("HEAD, main, v1.2, a1b2c3d");
+        gitDiffCheckbox.setText(String.format(lm.getString("ui.git_diff_cb"), ProjectConstants.CHANGES_DIFF_FILE));
+
+        selectFilesBtn.setText(lm.getString("ui.select_files_btn"));
+        dryRunBtn.setText(lm.getString("ui.dry_run_btn"));
+        updateEstimateLabel();
+        convertBtn.setText(lm.getString("ui.convert_btn"));
+        lblLog.setText(lm.getString("ui.log_label"));
+        logLevelComboBox.setTooltip(new Tooltip(lm.getString("ui.log_level_tooltip")));
+
+        if (!statusLabel.textProperty().isBound()) {
+            statusLabel.setText(lm.getString("ui.status_ready"));
+        }
+    }
+
+    private void updateMergedCheckboxText() {
+        LanguageManager lm = LanguageManager.getInstance();
+        String fileName;
+        if (sourceDirField.getText() != null && !sourceDirField.getText().isBlank()) {
+            String projectName = SourceRoot.projectName(Paths.get(sourceDirField.getText()));
+            fileName = "_" + projectName + ProjectConstants.MERGED_FILE_SUFFIX;
+        } else {
+            fileName = "_MergedOutput.txt";
+        }
+        generateMergedFileCheckbox.setText(String.format(lm.getString("ui.merged_cb"), fileName));
+    }
+
+    private void setupPresetsUI() {
+        presetComboBox.getItems().addAll(PresetManager.getInstance().getPresetNames());
+    }
+
+    private void setupPresetListener() {
+        presetComboBox.getSelectionModel().selectedItemProperty().addListener((options, oldValue, newValue) -> {
+            if (newValue != null) {
+                // Если пресет Manual, мы НЕ перезаписываем поля, чтобы не стереть пользовательский ввод
+                boolean isManual = "Manual".equals(newValue);
+                if (!isManual) {
+                    PresetManager pm = PresetManager.getInstance();
+                    extensionsField.setText(pm.getExtensionsFor(newValue));
+                    ignoredFoldersField.setText(pm.getIgnoredFoldersFor(newValue));
+                }
+
+                String msg = String.format(LanguageManager.getInstance().getString("log.preset_selected"), newValue);
+                log(msg);
+
+                requestRescan();
+            }
+        });
+    }
+
+    /**
+     * Пересканирование с задержкой: быстрые переключения пресетов и ввод в полях
+     * схлопываются в один обход диска.
+     */
+    private void requestRescan() {
+        if (sourceDirField.getText() != null && !sourceDirField.getText().isBlank()) {
+            BackgroundScheduler.getInstance().debounce(RESCAN_KEY, RESCAN_DEBOUNCE_MS, this::handleRescan);
+        }
+    }
+
+    private void setupWindowDrag() {
+        titleBar.setOnMousePressed(event -> { xOffset = event.getSceneX(); yOffset = event.getSceneY(); });
+        titleBar.setOnMouseDragged(event -> { stage.setX(event.getScreenX() - xOffset); stage.setY(event.getScreenY() - yOffset); });
+    }
+
+    @FXML private void handleSettings() {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("settings-view.fxml"));
+            Stage settingsStage = new Stage();
+            settingsStage.initModality(Modality.APPLICATION_MODAL);
+            settingsStage.initOwner(stage);
+            settingsStage.initStyle(StageStyle.UNDECORATED);
+
+            Scene scene = new Scene(loader.load());
+            scene.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
+            settingsStage.setScene(scene);
+
+            SettingsController controller = loader.getController();
+            controller.setStage(settingsStage);
+
+            settingsStage.showAndWait();
+        } catch (IOException e) {
+            logError("UI ERROR: " + e.getMessage());
+        }
+    }
+
+    @FXML private void handleSelectSource() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle(LanguageManager.getInstance().getString("ui.source_dir"));
+
+        String currentPath = sourceDirField.getText();
+        if (currentPath != null && !currentPath.isEmpty()) {
+            File initialDir = new File(currentPath);
+            if (initialDir.exists() && initialDir.isDirectory()) {
+                directoryChooser.setInitialDirectory(initialDir);
+            }
+        }
+
+        File selectedDirectory = directoryChooser.showDialog(getStage());
+        if (selectedDirectory != null) {
+            setSourceDirectory(selectedDirectory);
+        }
+    }
+
+    @FXML private void handleSelectArchive() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(LanguageManager.getInstance().getString("ui.choose_archive_tooltip"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                "ZIP / JAR", "*.zip", "*.jar", "*.war", "*.ear", "*.aar"));
+
+        String currentPath = sourceDirField.getText();
+        if (currentPath != null && !currentPath.isEmpty()) {
+            File current = new File(currentPath);
+            File initialDir = current.isDirectory() ? current : current.getParentFile();
+            if (initialDir != null && initialDir.isDirectory()) {
+                fileChooser.setInitialDirectory(initialDir);
+            }
+        }
+
+        File selectedArchive = fileChooser.showOpenDialog(getStage());
+        if (selectedArchive != null) {
+            setSourceDirectory(selectedArchive);
+        }
+    }
+
+    private void setSourceDirectory(File dir) {
+        sourceDirField.setText(dir.getAbsolutePath());
+        log(String.format(LanguageManager.getInstance().getString("log.dir_selected"), dir.getAbsolutePath()));
+
+        // Архив открывается без распаковки, пресет определяется по его содержимому
+        String detectedPreset;
+        try (SourceRoot source = SourceRoot.open(dir.getAbsolutePath(), true)) {
+            // Попытка авто-определения пресета через Manager
+            detectedPreset = PresetManager.getInstance().autoDetectPreset(source.getRoot());
+        } catch (IOException e) {
+            logError(String.format(LanguageManager.getInstance().getString("log.archive_error"), e.getMessage()));
+            return;
+        }
+        if (detectedPreset != null) {
+            log("🤖 Auto-detected project type: " + detectedPreset);
+            presetComboBox.getSelectionModel().select(detectedPreset);
+        } else {
+            // Если не определили, просто запускаем сканирование с текущим пресетом
+            handleRescan();
+        }
+    }
+
+    @FXML private void handleRescan() {
+        String sourceDirPath = sourceDirField.getText();
+        if (sourceDirPath == null || sourceDirPath.isBlank()) {
+            log(LanguageManager.getInstance().getString("log.error_no_dir"));
+            return;
+        }
+
+        BackgroundScheduler.getInstance().cancelDebounce(RESCAN_KEY);
+        BackgroundScheduler.getInstance().cancel(ESTIMATE_KEY);
+        estimates = null;
+        updateEstimateLabel();
+        // Во время сканирования пресеты остаются доступны: новый запуск отменит текущий
+        setScanInProgress(true);
+        log(LanguageManager.getInstance().getString("log.scanning_start"));
+
+        FileScannerTask scannerTask = new FileScannerTask(
+                sourceDirPath,
+                getExtensions(),
+                getIgnoredFolders(),
+                getGitRef()
+        );
+
+        statusLabel.textProperty().bind(scannerTask.messageProperty());
+
+        scannerTask.setOnSucceeded(e -> {
+            // Устаревший обход мог завершиться раньше, чем его успели отменить
+            if (!BackgroundScheduler.getInstance().isLatest(SCAN_KEY, scannerTask)) {
+                scannerTask.releaseSource();
+                return;
+            }
+            // Прежние записи больше не показываются: их архив закроется, когда его отпустят и прогоны
+            FileScannerTask.closeQuietly(scannedSource);
+            scannedSource = scannerTask.takeSource();
+            allFoundFiles = scannerTask.getValue();
+            gitChanges = scannerTask.getChangeSet();
+            scannedLocation = Paths.get(sourceDirPath);
+            restoreSelection();
+
+            updateMergedCheckboxText();
+
+            log(String.format(LanguageManager.getInstance().getString("log.scan_complete"), allFoundFiles.size()));
+            if (gitChanges != null) {
+                log(String.format(LanguageManager.getInstance().getString("log.git_changes"),
+                        gitChanges.getStatuses().size(), gitChanges.getRef(), allFoundFiles.size()));
+            }
+            long junkCount = allFoundFiles.stream().filter(FileRecord::isJunk).count();
+            if (junkCount > 0) {
+                log(String.format(LanguageManager.getInstance().getString("log.junk_found"), junkCount));
+            }
+            setScanInProgress(false);
+            statusLabel.textProperty().unbind();
+            statusLabel.setText(LanguageManager.getInstance().getString("ui.status_waiting"));
+            updateButtonStates();
+            startDryRun();
+        });
+
+        scannerTask.setOnCancelled(e -> scannerTask.releaseSource());
+
+        scannerTask.setOnFailed(e -> {
+            if (!BackgroundScheduler.getInstance().isLatest(SCAN_KEY, scannerTask)) return;
+            logError(String.format(LanguageManager.getInstance().getString("log.scan_error"), scannerTask.getException().getMessage()));
+            setScanInProgress(false);
+            statusLabel.textProperty().unbind();
+            statusLabel.setText(LanguageManager.getInstance().getString("ui.status_error"));
+        });
+
+        BackgroundScheduler.getInstance().submitLatest(SCAN_KEY, scannerTask);
+    }
+
+    @FXML private void handleSelectFiles() {
+        if (allFoundFiles.isEmpty()) return;
+
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("selection-dialog.fxml"));
+            Stage dialogStage = new Stage();
+            dialogStage.setTitle(LanguageManager.getInstance().getString("ui.select_files_btn"));
+            dialogStage.initModality(Modality.WINDOW_MODAL);
+            dialogStage.initOwner(stage);
+            dialogStage.initStyle(StageStyle.UNDECORATED);
+
+            Scene scene = new Scene(loader.load());
+            scene.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
+            dialogStage.setScene(scene);
+
+            SelectionController controller = loader.getController();
+            controller.setDialogStage(dialogStage);
+            controller.initData(allFoundFiles, filesSelectedForMerge, selectionRules, estimates,
+                    compressionComboBox.getValue(), junkPolicyComboBox.getValue());
+
+            dialogStage.showAndWait();
+
+            controller.getSelectedFiles().ifPresent(selected -> {
+                this.filesSelectedForMerge = selected;
+                this.selectionRules = new ArrayList<>(controller.getRules());
+                SelectionStore.getInstance().save(scannedLocation, allFoundFiles, selected, selectionRules, gitChanges != null);
+                updateEstimateLabel();
+                log(String.format(LanguageManager.getInstance().getString("log.files_selected"), selected.cardinality(), allFoundFiles.size()));
+            });
+
+        } catch (IOException e) {
+            logError("UI ERROR: " + e.getMessage());
+        }
+    }
+
+    @FXML private void handleConvert() {
+        if (allFoundFiles.isEmpty()) {
+            log(LanguageManager.getInstance().getString("log.no_files"));
+            return;
+        }
+
+        BackgroundScheduler scheduler = BackgroundScheduler.getInstance();
+        scheduler.cancelDebounce(RESCAN_KEY);
+        setUiBlocked(true);
+        LogBuffer.getInstance().clear();
+        logItems.clear();
+        log(LanguageManager.getInstance().getString("log.conversion_start"));
+
+        ConverterTask converterTask = new ConverterTask(
+                sourceDirField.getText(),
+                allFoundFiles,
+                filesSelectedForMerge,
+                getIgnoredFolders(),
+                generateStructureFileCheckbox.isSelected(),
+                compactStructureCheckbox.isSelected(),
+                compressionComboBox.getValue(),
+                generateMergedFileCheckbox.isSelected(),
+                mergedOnlyCheckbox.isSelected(),
+                outputTargetComboBox.getValue(),
+                junkPolicyComboBox.getValue(),
+                generateMergedFileCheckbox.isSelected() && collapseDuplicatesCheckbox.isSelected(),
+                generateMergedFileCheckbox.isSelected() && commonBlocksCheckbox.isSelected(),
+                gitChanges,
+                gitDiffCheckbox.isSelected()
+        );
+
+        progressBar.progressProperty().bind(converterTask.progressProperty());
+        statusLabel.textProperty().bind(converterTask.messageProperty());
+
+        converterTask.setOnSucceeded(e -> {
+            log("\n====================\n" + LanguageManager.getInstance().getString("log.conversion_success") + "\n====================");
+            Path resultPath = outputTargetComboBox.getValue().resolveLocation(Paths.get(sourceDirField.getText()));
+            log(String.format(LanguageManager.getInstance().getString("log.result_path"), resultPath != null ? resultPath : "stdout"));
+            if (converterTask.getFallbackCount() > 0) {
+                LogBuffer.getInstance().warn(String.format(LanguageManager.getInstance().getString("log.budget_fallbacks"),
+                        converterTask.getFallbackCount()));
+            }
+            if (converterTask.getDeadlineSkippedCount() > 0 || converterTask.getDeadlineDegradedCount() > 0) {
+                LogBuffer.getInstance().warn(String.format(LanguageManager.getInstance().getString("log.deadline_summary"),
+                        converterTask.getDeadlineSkippedCount(), converterTask.getDeadlineDegradedCount()));
+            }
+            setUiBlocked(false);
+            progressBar.progressProperty().unbind();
+            progressBar.setProgress(1.0);
+            statusLabel.textProperty().unbind();
+            statusLabel.setText(LanguageManager.getInstance().getString("ui.status_done"));
+            LogBuffer.getInstance().flush();
+        });
+
+        converterTask.setOnFailed(e -> {
+            logError(String.format(LanguageManager.getInstance().getString("log.conversion_error"), converterTask.getException().getMessage()));
+            converterTask.getException().printStackTrace();
+            LogBuffer.getInstance().flush();
+            setUiBlocked(false);
+            progressBar.progressProperty().unbind();
+            progressBar.setProgress(0.0);
+            statusLabel.textProperty().unbind();
+            statusLabel.setText(LanguageManager.getInstance().getString("ui.status_error"));
+        });
+
+        scheduler.submitLatest(CONVERT_KEY, converterTask);
+    }
+
+    private void setScanInProgress(boolean scanning) {
+        selectFilesBtn.setDisable(scanning);
+        convertBtn.setDisable(scanning);
+        dryRunBtn.setDisable(scanning);
+    }
+
+    private void setupJunkPolicyCombo() {
+        junkPolicyComboBox.getItems().addAll(JunkPolicy.values());
+        junkPolicyComboBox.setValue(JunkPolicy.STUB);
+
+        junkPolicyComboBox.setConverter(new StringConverter<JunkPolicy>() {
+            @Override
+            public String toString(JunkPolicy object) {
+                if (object == null) return "";
+                LanguageManager lm = LanguageManager.getInstance();
+                switch (object) {
+                    case INCLUDE: return lm.getString("ui.junk_include");
+                    case STUB: return lm.getString("ui.junk_stub");
+                    case EXCLUDE: return lm.getString("ui.junk_exclude");
+                    default: return object.name();
+                }
+            }
+            @Override
+            public JunkPolicy fromString(String string) { return null; }
+        });
+
+        junkPolicyComboBox.valueProperty().addListener((obs, oldVal, newVal) -> {
+            applyJunkPolicyToSelection(new BitSet());
+            updateEstimateLabel();
+        });
+    }
+
+    /**
+     * Выбор после сканирования: сохраненный для этого источника (ручные отметки + правила для новых файлов)
+     * или, если его нет, все файлы. Политика для сгенерированных файлов не трогает отмеченные вручную.
+     */
+    private void restoreSelection() {
+        SelectionStore.Restored restored = SelectionStore.getInstance().restore(scannedLocation, allFoundFiles);
+        if (restored == null) {
+            selectionRules = new ArrayList<>();
+            filesSelectedForMerge = new BitSet(allFoundFiles.size());
+            filesSelectedForMerge.set(0, allFoundFiles.size());
+            applyJunkPolicyToSelection(new BitSet());
+            return;
+        }
+        selectionRules = new ArrayList<>(restored.getRules());
+        filesSelectedForMerge = restored.getSelection();
+        applyJunkPolicyToSelection(restored.getExplicit());
+        log(String.format(LanguageManager.getInstance().getString("log.selection_restored"),
+                filesSelectedForMerge.cardinality(), allFoundFiles.size()));
+    }
+
+    /**
+     * Сгенерированные файлы при политике STUB/EXCLUDE снимаются с выбора (в общем файле - заглушка),
+     * при INCLUDE - возвращаются. Ручной выбор остальных файлов не трогается.
+     * @param keep Индексы файлов, которые политика не меняет
+     */
+    private void applyJunkPolicyToSelection(BitSet keep) {
+        boolean select = junkPolicyComboBox.getValue() == JunkPolicy.INCLUDE;
+        for (FileRecord record : allFoundFiles) {
+            if (record.isJunk() && !keep.get(record.getIndex())) {
+                filesSelectedForMerge.set(record.getIndex(), select);
+            }
+        }
+    }
+
+    /**
+     * Запускает оценку размера в фоне. Файлы, уже оцененные ранее, берутся из кэша DryRunAnalyzer.
+     */
+    private void startDryRun() {
+        if (allFoundFiles.isEmpty()) return;
+        List<FileRecord> files = allFoundFiles;
+        DryRunTask task = new DryRunTask(files, scannedLocation.toString());
+        BackgroundScheduler scheduler = BackgroundScheduler.getInstance();
+
+        task.setOnSucceeded(e -> {
+            if (!scheduler.isLatest(ESTIMATE_KEY, task) || files != allFoundFiles || task.getValue() == null) return;
+            estimates = task.getValue();
+            updateEstimateLabel();
+            if (dryRunReportRequested) {
+                dryRunReportRequested = false;
+                logDryRunReport();
+            }
+        });
+        task.setOnFailed(e -> {
+            if (!scheduler.isLatest(ESTIMATE_KEY, task)) return;
+            dryRunReportRequested = false;
+            logError(String.format(LanguageManager.getInstance().getString("log.dry_run_error"), task.getException().getMessage()));
+        });
+
+        updateEstimateLabel();
+        scheduler.submitLatest(ESTIMATE_KEY, task);
+    }
+
+    @FXML private void handleDryRun() {
+        if (allFoundFiles.isEmpty()) {
+            log(LanguageManager.getInstance().getString("log.no_files"));
+            return;
+        }
+        if (estimates != null && estimates.covers(allFoundFiles)) {
+            logDryRunReport();
+        } else {
+            // Оценка еще идет (или была отменена) - отчет выведется по ее завершении
+            dryRunReportRequested = true;
+            startDryRun();
+        }
+    }
+
+    private void updateEstimateLabel() {
+        LanguageManager lm = LanguageManager.getInstance();
+        if (allFoundFiles.isEmpty()) {
+            estimateLabel.setText("");
+        } else if (estimates == null || !estimates.covers(allFoundFiles)) {
+            estimateLabel.setText(lm.getString("ui.estimate_pending"));
+        } else {
+            CompressionLevel level = compressionComboBox.getValue();
+            estimateLabel.setText(String.format(lm.getString("ui.estimate_label"),
+                    DryRunAnalyzer.formatBytes(estimates.totalBytes(level, filesSelectedForMerge, junkPolicyComboBox.getValue())),
+                    DryRunAnalyzer.formatCount(estimates.totalTokens(level, filesSelectedForMerge, junkPolicyComboBox.getValue()))));
+        }
+    }
+
+    private void logDryRunReport() {
+        LanguageManager lm = LanguageManager.getInstance();
+        BitSet selected = filesSelectedForMerge;
+        CompressionLevel current = compressionComboBox.getValue();
+        JunkPolicy junkPolicy = junkPolicyComboBox.getValue();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format(lm.getString("log.dry_run_header"), selected.cardinality(), allFoundFiles.size()));
+        for (CompressionLevel level : CompressionLevel.values()) {
+            sb.append("\n").append(level == current ? "> " : "  ")
+                    .append(String.format(lm.getString("log.dry_run_level"),
+                            compressionComboBox.getConverter().toString(level),
+                            DryRunAnalyzer.formatBytes(estimates.totalBytes(level, selected, junkPolicy)),
+                            DryRunAnalyzer.formatCount(estimates.totalTokens(level, selected, junkPolicy))));
+        }
+
+        sb.append("\n").append(lm.getString("log.dry_run_by_ext"));
+        for (Map.Entry<String, long[]> entry : estimates.byExtension(current, selected, junkPolicy).entrySet()) {
+            long[] t = entry.getValue();
+            sb.append(String.format("\n  %-12s %6d  %10s  ~%s", entry.getKey(), t[0],
+                    DryRunAnalyzer.formatBytes(t[1]), DryRunAnalyzer.formatCount(t[2])));
+        }
+
+        sb.append("\n").append(lm.getString("log.dry_run_heaviest"));
+        for (FileRecord record : estimates.heaviest(current, selected, junkPolicy, DRY_RUN_TOP_FILES)) {
+            sb.append(String.format("\n  %10s  ~%-8s %s",
+                    DryRunAnalyzer.formatBytes(estimates.getBytes(current, record.getIndex())),
+                    DryRunAnalyzer.formatCount(estimates.getTokens(current, record.getIndex())),
+                    record.getRelativePath()));
+        }
+        log(sb.toString());
+    }
+
+    private void setUiBlocked(boolean blocked) {
+        rescanBtn.setDisable(blocked);
+        selectFilesBtn.setDisable(blocked);
+        convertBtn.setDisable(blocked);
+        dryRunBtn.setDisable(blocked);
+        selectSourceBtn.setDisable(blocked);
+        selectArchiveBtn.setDisable(blocked);
+        presetComboBox.setDisable(blocked);
+        compressionComboBox.setDisable(blocked);
+        outputTargetComboBox.setDisable(blocked);
+        junkPolicyComboBox.setDisable(blocked);
+    }
+
+    private void updateButtonStates() {
+        boolean isScanned = !allFoundFiles.isEmpty();
+        boolean isDirSelected = sourceDirField.getText() != null && !sourceDirField.getText().isBlank();
+        rescanBtn.setDisable(!isDirSelected);
+        selectFilesBtn.setDisable(!isScanned);
+        convertBtn.setDisable(!isScanned);
+        dryRunBtn.setDisable(!isScanned);
+    }
+
+    /**
+     * git-ссылка для режима изменений или null, если режим выключен.
+     */
+    private String getGitRef() {
+        if (!gitChangesCheckbox.isSelected()) return null;
+        String ref = gitRefField.getText();
+        return (ref == null || ref.isBlank()) ? "HEAD" : ref.trim();
+    }
+
+    private List<String> getIgnoredFolders() {
+        String rawText = ignoredFoldersField.getText();
+        if (rawText == null || rawText.isBlank()) return Collections.emptyList();
+        return Arrays.stream(rawText.split(",")).map(String::trim).map(String::toLowerCase).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+    }
+
+    private List<String> getExtensions() {
+        String rawText = extensionsField.getText();
+        if (rawText == null || rawText.isBlank()) return Collections.emptyList();
+        return Arrays.stream(rawText.split(",")).map(String::trim).map(String::toLowerCase).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+    }
+
+    @FXML private void handleMinimize() { if (stage != null) stage.setIconified(true); }
+
+    @FXML private void handleClose() {
+        savePreferences();
+        LogBuffer.getInstance().closeLogFile();
+        Platform.exit();
+    }
+
+    private void log(String message) {
+        LogBuffer.getInstance().info(message);
+    }
+
+    private void logError(String message) {
+        LogBuffer.getInstance().error(message);
+    }
+
+    private Stage getStage() { return (stage != null) ? stage : (Stage) sourceDirField.getScene().getWindow(); }
+}
\ No newline at end of file
@@ -15,7 +15,7 @@ public class PreferenceManager {
         prefs = Preferences.userNodeForPackage(PreferenceManager.class);
     }
 
-    public static PreferenceManager getInstance() {
+    public static synchronized PreferenceManager getInstance() {
         if (instance == null) {
             instance = new PreferenceManager();
         }
@@ -39,6 +39,21 @@ public class PreferenceManager {
         return prefs.getBoolean(key, def);
     }
 
+    public void saveInt(String key, int value) {
+        prefs.putInt(key, value);
+    }
+
+    public int getInt(String key, int def) {
+        return prefs.getInt(key, def);
+    }
+
+    /** Бюджет на файл из настроек (окно настроек). */
+    public ConversionBudget getConversionBudget() {
+        return new ConversionBudget(
+                getInt(ProjectConstants.PREF_BUDGET_TIME_MS, ConversionBudget.DEFAULT_TIME_MS),
+                getInt(ProjectConstants.PREF_BUDGET_MEMORY_MB, ConversionBudget.DEFAULT_MEMORY_MB));
+    }
+
     public void saveCompressionLevel(CompressionLevel level) {
         if (level != null) {
             prefs.put(ProjectConstants.PREF_COMPRESSION, level.name());
@@ -53,4 +68,34 @@ public class PreferenceManager {
             return CompressionLevel.SMART;
         }
     }
+
+    public void saveOutputTarget(OutputTarget target) {
+        if (target != null) {
+            prefs.put(ProjectConstants.PREF_OUTPUT_TARGET, target.name());
+        }
+    }
+
+    public void saveJunkPolicy(JunkPolicy policy) {
+        if (policy != null) {
+            prefs.put(ProjectConstants.PREF_JUNK_POLICY, policy.name());
+        }
+    }
+
+    public JunkPolicy getJunkPolicy() {
+        String name = prefs.get(ProjectConstants.PREF_JUNK_POLICY, JunkPolicy.STUB.name());
+        try {
+            return JunkPolicy.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return JunkPolicy.STUB;
+        }
+    }
+
+    public OutputTarget getOutputTarget() {
+        String name = prefs.get(ProjectConstants.PREF_OUTPUT_TARGET, OutputTarget.DIRECTORY.name());
+        try {
+            return OutputTarget.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return OutputTarget.DIRECTORY;
+        }
+    }
 }
\ No newline at end of file
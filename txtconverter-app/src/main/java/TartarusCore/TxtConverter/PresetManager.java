@@ -21,7 +21,7 @@ public class PresetManager {
         setupPresets();
     }
 
-    public static PresetManager getInstance() {
+    public static synchronized PresetManager getInstance() {
         if (instance == null) {
             instance = new PresetManager();
         }
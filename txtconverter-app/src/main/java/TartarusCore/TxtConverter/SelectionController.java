@@ -1,21 +1,26 @@
 package TartarusCore.TxtConverter;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.CheckBoxTreeItem;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 import javafx.scene.control.cell.CheckBoxTreeCell;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
-import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.regex.PatternSyntaxException;
 
 public class SelectionController {
 
+    private static final String SEARCH_KEY = "selection-search";
+    // Дерево перестраивается, когда ввод в поиске затих, а не на каждую клавишу
+    private static final long SEARCH_DEBOUNCE_MS = 200;
+
     private enum ViewMode {
         BY_TYPE("По типам (Расширения)"),
         BY_FOLDER("По папкам (Файловая система)");
@@ -29,44 +34,66 @@ public class SelectionController {
     @FXML private HBox titleBar;
     @FXML private ComboBox<ViewMode> viewModeComboBox;
     @FXML private Label infoLabel;
+    @FXML private TextField searchField;
 
     private Stage dialogStage;
     private double xOffset = 0;
     private double yOffset = 0;
 
-    private List<Path> allFiles;
-    private Set<Path> selectedFilesSet;
-    private Path rootPath;
+    private List<FileRecord> allFiles;
+    // Выбор хранится по FileRecord.getIndex()
+    private BitSet selectedFilesSet;
+
+    // Индекс по относительным путям (id = позиция в allFiles) и текущий фильтр дерева (null = без фильтра)
+    private PathSearchIndex searchIndex;
+    private BitSet visibleFilter;
+    // Запрос, по которому построен visibleFilter (поле поиска может уже содержать более новый)
+    private String visibleFilterQuery = SelectionStore.Rule.ALL;
+
+    // Оценка размера общего файла (может быть null, если еще не посчитана)
+    private DryRunAnalyzer.Estimates estimates;
+    private CompressionLevel compressionLevel;
+    private JunkPolicy junkPolicy;
+    private boolean infoLabelUpdatePending = false;
 
     // Маппинг для связывания визуальных элементов с реальными файлами
-    private final Map<CheckBoxTreeItem<String>, Path> activeTreeItemToPathMap = new HashMap<>();
+    private final Map<CheckBoxTreeItem<String>, FileRecord> activeTreeItemToRecordMap = new HashMap<>();
 
     // Флаг для предотвращения бесконечных циклов событий (когда родитель меняет дитя, а дитя - родителя)
     private boolean isUpdatingProgrammatically = false;
 
-    private Optional<Set<Path>> result = Optional.empty();
+    // Массовые действия (выбрать все, выбрать/снять совпадения) - сохраняются вместе с выбором
+    // и определяют состояние файлов, появившихся после сохранения
+    private List<SelectionStore.Rule> rules = new ArrayList<>();
+
+    private Optional<BitSet> result = Optional.empty();
 
     @FXML
     public void initialize() {
         setupWindowDrag();
         setupTreeView();
         setupViewModeCombo();
+        setupSearchField();
     }
 
     public void setDialogStage(Stage dialogStage) {
         this.dialogStage = dialogStage;
     }
 
-    public void initData(List<Path> allFiles, Set<Path> initiallySelected, Path rootPath) {
-        this.rootPath = rootPath.toAbsolutePath().normalize();
-        this.allFiles = allFiles.stream()
-                .map(p -> p.toAbsolutePath().normalize())
-                .collect(Collectors.toList());
-
-        this.selectedFilesSet = new HashSet<>();
-        for (Path p : initiallySelected) {
-            this.selectedFilesSet.add(p.toAbsolutePath().normalize());
+    public void initData(List<FileRecord> allFiles, BitSet initiallySelected, List<SelectionStore.Rule> rules,
+                         DryRunAnalyzer.Estimates estimates, CompressionLevel compressionLevel, JunkPolicy junkPolicy) {
+        this.allFiles = allFiles;
+        this.selectedFilesSet = (BitSet) initiallySelected.clone();
+        this.rules = new ArrayList<>(rules);
+        this.estimates = (estimates != null && estimates.covers(allFiles)) ? estimates : null;
+        this.compressionLevel = compressionLevel;
+        this.junkPolicy = junkPolicy;
+
+        List<String> relativePaths = new ArrayList<>(allFiles.size());
+        for (FileRecord record : allFiles) {
+            relativePaths.add(record.getRelativePath());
         }
+        this.searchIndex = new PathSearchIndex(relativePaths);
 
         viewModeComboBox.getSelectionModel().select(ViewMode.BY_TYPE);
 
@@ -84,10 +111,16 @@ public class SelectionController {
                 if (empty || item == null) {
                     setText(null);
                     setGraphic(null);
-                    getStyleClass().remove("category-tree-item");
+                    getStyleClass().removeAll("category-tree-item", "junk-tree-item");
                 } else {
                     CheckBoxTreeItem<String> treeItem = (CheckBoxTreeItem<String>) getTreeItem();
-                    boolean isFile = activeTreeItemToPathMap.containsKey(treeItem);
+                    FileRecord record = activeTreeItemToRecordMap.get(treeItem);
+                    boolean isFile = record != null;
+
+                    getStyleClass().remove("junk-tree-item");
+                    if (isFile && record.isJunk()) {
+                        getStyleClass().add("junk-tree-item");
+                    }
 
                     if (!isFile) {
                         if (!getStyleClass().contains("category-tree-item")) {
@@ -109,8 +142,33 @@ public class SelectionController {
         });
     }
 
+    private void setupSearchField() {
+        searchField.textProperty().addListener((obs, oldVal, newVal) ->
+                BackgroundScheduler.getInstance().debounce(SEARCH_KEY, SEARCH_DEBOUNCE_MS,
+                        () -> applySearchFilter(searchField.getText())));
+    }
+
+    private void applySearchFilter(String query) {
+        if (searchIndex == null) return;
+        String normalized = (query == null || query.isBlank()) ? SelectionStore.Rule.ALL : query.trim();
+        if (normalized.equals(visibleFilterQuery)) return;
+        if (SelectionStore.Rule.ALL.equals(normalized)) {
+            visibleFilter = null;
+        } else {
+            try {
+                visibleFilter = searchIndex.search(query);
+            } catch (PatternSyntaxException e) {
+                infoLabel.setText("Ошибка в шаблоне: " + e.getDescription());
+                return;
+            }
+        }
+        visibleFilterQuery = normalized;
+        refreshTree();
+        updateInfoLabel();
+    }
+
     private void snapshotSelection() {
-        if (activeTreeItemToPathMap.isEmpty()) return;
+        if (activeTreeItemToRecordMap.isEmpty()) return;
         // Обновление selectedFilesSet происходит в реальном времени через listeners,
         // но на всякий случай синхронизируем перед сменой вида
         updateInfoLabel();
@@ -120,7 +178,7 @@ public class SelectionController {
         ViewMode mode = viewModeComboBox.getValue();
         if (mode == null) return;
 
-        activeTreeItemToPathMap.clear();
+        activeTreeItemToRecordMap.clear();
 
         // Скрытый корень
         CheckBoxTreeItem<String> rootItem = new CheckBoxTreeItem<>("Root");
@@ -147,20 +205,22 @@ public class SelectionController {
 
     // --- ПОСТРОЕНИЕ: ПО ТИПАМ ---
     private void buildTypeTree(CheckBoxTreeItem<String> rootItem) {
-        Map<String, List<Path>> grouped = allFiles.stream()
-                .collect(Collectors.groupingBy(this::getFileExtension, LinkedHashMap::new, Collectors.toList()));
+        Map<String, List<Integer>> grouped = new LinkedHashMap<>();
+        for (int id = nextVisible(0); id >= 0; id = nextVisible(id + 1)) {
+            grouped.computeIfAbsent(getFileExtension(allFiles.get(id)), k -> new ArrayList<>()).add(id);
+        }
 
-        for (Map.Entry<String, List<Path>> entry : grouped.entrySet()) {
+        for (Map.Entry<String, List<Integer>> entry : grouped.entrySet()) {
             String ext = entry.getKey();
-            List<Path> files = entry.getValue();
+            List<Integer> ids = entry.getValue();
 
-            CheckBoxTreeItem<String> categoryItem = createItem(ext + " (" + files.size() + ")", null);
+            CheckBoxTreeItem<String> categoryItem = createItem(ext + " (" + ids.size() + ")", null);
             categoryItem.setExpanded(true);
             rootItem.getChildren().add(categoryItem);
 
-            for (Path file : files) {
-                String name = rootPath.relativize(file).toString();
-                CheckBoxTreeItem<String> fileItem = createItem(name, file);
+            for (int id : ids) {
+                FileRecord record = allFiles.get(id);
+                CheckBoxTreeItem<String> fileItem = createItem(record.getRelativePath(), record);
                 categoryItem.getChildren().add(fileItem);
             }
         }
@@ -170,46 +230,59 @@ public class SelectionController {
     private void buildDirectoryTree(CheckBoxTreeItem<String> rootItem) {
         Map<String, CheckBoxTreeItem<String>> folderCache = new HashMap<>();
 
-        for (Path file : allFiles) {
-            Path relative = rootPath.relativize(file);
-            Path parent = relative.getParent();
+        for (int id = nextVisible(0); id >= 0; id = nextVisible(id + 1)) {
+            FileRecord record = allFiles.get(id);
+            String relative = record.getRelativePath();
+            int parentEnd = relative.lastIndexOf('/');
 
             CheckBoxTreeItem<String> currentDirNode = rootItem;
 
-            if (parent != null) {
-                StringBuilder pathBuilder = new StringBuilder();
-                for (Path part : parent) {
-                    if (pathBuilder.length() > 0) pathBuilder.append("/");
-                    pathBuilder.append(part.toString());
-                    String currentKey = pathBuilder.toString();
+            if (parentEnd > 0) {
+                // Ключ кэша - префикс относительного пути до текущей папки включительно
+                int segmentStart = 0;
+                while (segmentStart < parentEnd) {
+                    int segmentEnd = relative.indexOf('/', segmentStart);
+                    String currentKey = relative.substring(0, segmentEnd);
 
-                    if (folderCache.containsKey(currentKey)) {
-                        currentDirNode = folderCache.get(currentKey);
+                    CheckBoxTreeItem<String> cached = folderCache.get(currentKey);
+                    if (cached != null) {
+                        currentDirNode = cached;
                     } else {
-                        CheckBoxTreeItem<String> newFolder = createItem(part.toString(), null);
+                        CheckBoxTreeItem<String> newFolder = createItem(relative.substring(segmentStart, segmentEnd), null);
                         newFolder.setExpanded(true);
                         currentDirNode.getChildren().add(newFolder);
                         folderCache.put(currentKey, newFolder);
                         currentDirNode = newFolder;
                     }
+                    segmentStart = segmentEnd + 1;
                 }
             }
 
-            CheckBoxTreeItem<String> fileItem = createItem(file.getFileName().toString(), file);
+            CheckBoxTreeItem<String> fileItem = createItem(record.getFileName(), record);
             currentDirNode.getChildren().add(fileItem);
         }
     }
 
+    /** Следующий файл, прошедший фильтр поиска, начиная с from; -1 - больше нет. Обходятся только совпадения. */
+    private int nextVisible(int from) {
+        if (visibleFilter != null) return visibleFilter.nextSetBit(from);
+        return (from < allFiles.size()) ? from : -1;
+    }
+
     // --- УНИВЕРСАЛЬНОЕ СОЗДАНИЕ ЭЛЕМЕНТА С ЛОГИКОЙ ---
-    private CheckBoxTreeItem<String> createItem(String label, Path file) {
+    private CheckBoxTreeItem<String> createItem(String label, FileRecord file) {
+        if (file != null && file.isJunk()) {
+            // Сгенерированные/минифицированные файлы (JunkDetector) помечаем причиной
+            label += "  [" + file.getJunkReason().getTag() + "]";
+        }
         CheckBoxTreeItem<String> item = new CheckBoxTreeItem<>(label);
         item.setIndependent(true); // ВАЖНО: Мы управляем логикой сами
 
         if (file != null) {
             // Это файл
-            boolean isSelected = selectedFilesSet.contains(file);
+            boolean isSelected = selectedFilesSet.get(file.getIndex());
             item.setSelected(isSelected);
-            activeTreeItemToPathMap.put(item, file);
+            activeTreeItemToRecordMap.put(item, file);
         }
 
         // Слушатель изменений
@@ -221,8 +294,7 @@ public class SelectionController {
 
                 // 1. Если это файл - обновляем Set
                 if (file != null) {
-                    if (newVal) selectedFilesSet.add(file);
-                    else selectedFilesSet.remove(file);
+                    selectedFilesSet.set(file.getIndex(), newVal);
                     updateInfoLabel();
                 }
 
@@ -266,10 +338,9 @@ public class SelectionController {
             // так как он вызывается внутри блока isUpdatingProgrammatically основного триггера).
             // НО! Листенеры детей НЕ сработают, потому что isUpdatingProgrammatically = true.
             // Поэтому обновляем данные файлов вручную здесь:
-            if (activeTreeItemToPathMap.containsKey(cbChild)) {
-                Path p = activeTreeItemToPathMap.get(cbChild);
-                if (isSelected) selectedFilesSet.add(p);
-                else selectedFilesSet.remove(p);
+            FileRecord record = activeTreeItemToRecordMap.get(cbChild);
+            if (record != null) {
+                selectedFilesSet.set(record.getIndex(), isSelected);
             }
 
             if (!cbChild.isLeaf()) {
@@ -354,15 +425,32 @@ public class SelectionController {
         }
     }
 
-    private String getFileExtension(Path path) {
-        String name = path.getFileName().toString();
-        int lastIndexOf = name.lastIndexOf(".");
-        return (lastIndexOf == -1) ? "No Extension" : name.substring(lastIndexOf);
+    private String getFileExtension(FileRecord record) {
+        String ext = record.getExtension();
+        return ext.isEmpty() ? "No Extension" : ext;
     }
 
     private void updateInfoLabel() {
+        // Массовая отметка вызывает метод на каждую папку - пересчитываем подпись один раз за пачку
+        if (infoLabelUpdatePending) return;
+        infoLabelUpdatePending = true;
+        Platform.runLater(() -> {
+            infoLabelUpdatePending = false;
+            renderInfoLabel();
+        });
+    }
+
+    private void renderInfoLabel() {
         if (selectedFilesSet != null) {
-            infoLabel.setText("Выбрано: " + selectedFilesSet.size() + " из " + allFiles.size());
+            String text = "Выбрано: " + selectedFilesSet.cardinality() + " из " + allFiles.size();
+            if (visibleFilter != null) {
+                text += " | Найдено: " + visibleFilter.cardinality();
+            }
+            if (estimates != null) {
+                text += " | ≈ " + DryRunAnalyzer.formatBytes(estimates.totalBytes(compressionLevel, selectedFilesSet, junkPolicy))
+                        + ", ~" + DryRunAnalyzer.formatCount(estimates.totalTokens(compressionLevel, selectedFilesSet, junkPolicy)) + " токенов";
+            }
+            infoLabel.setText(text);
         }
     }
 
@@ -382,6 +470,7 @@ public class SelectionController {
         if (fileTreeView.getRoot() != null) {
             isUpdatingProgrammatically = true;
             CheckBoxTreeItem<String> root = (CheckBoxTreeItem<String>) fileTreeView.getRoot();
+            recordRule(true, visibleQuery());
             // Ставим галочку на рут, рекурсия пойдет вниз через наш ручной метод, 
             // так как листенера на рут нет (он скрыт), вызовем вручную
             setChildrenStateRecursively(root, true);
@@ -394,6 +483,7 @@ public class SelectionController {
     @FXML
     private void handleDeselectAll() {
         if (fileTreeView.getRoot() != null) {
+            recordRule(false, visibleQuery());
             isUpdatingProgrammatically = true;
             CheckBoxTreeItem<String> root = (CheckBoxTreeItem<String>) fileTreeView.getRoot();
             setChildrenStateRecursively(root, false);
@@ -402,9 +492,52 @@ public class SelectionController {
         }
     }
 
+    // Массовая отметка всех совпадений запроса (glob/regex/подстрока) по индексу, а не только видимых узлов
+    @FXML
+    private void handleSelectMatches() {
+        applyToMatches(true);
+    }
+
+    @FXML
+    private void handleDeselectMatches() {
+        applyToMatches(false);
+    }
+
+    private void applyToMatches(boolean select) {
+        String query = searchField.getText();
+        if (searchIndex == null || query == null || query.isBlank()) return;
+
+        BitSet matches;
+        try {
+            matches = searchIndex.search(query);
+        } catch (PatternSyntaxException e) {
+            infoLabel.setText("Ошибка в шаблоне: " + e.getDescription());
+            return;
+        }
+
+        recordRule(select, query.trim());
+        // id в индексе совпадают с позициями allFiles, а значит и с FileRecord.getIndex()
+        if (select) selectedFilesSet.or(matches);
+        else selectedFilesSet.andNot(matches);
+        refreshTree();
+        updateInfoLabel();
+    }
+
+    /** Запрос, которым отфильтровано дерево (действия "все" затрагивают только видимые файлы). */
+    private String visibleQuery() {
+        return visibleFilterQuery;
+    }
+
+    private void recordRule(boolean include, String query) {
+        // Действие над всеми файлами перекрывает все предыдущие правила
+        if (SelectionStore.Rule.ALL.equals(query)) rules.clear();
+        rules.add(new SelectionStore.Rule(include, query));
+        if (rules.size() > SelectionStore.MAX_RULES) rules.remove(0);
+    }
+
     @FXML
     private void handleConfirm() {
-        result = Optional.of(new HashSet<>(selectedFilesSet));
+        result = Optional.of((BitSet) selectedFilesSet.clone());
         dialogStage.close();
     }
 
@@ -414,7 +547,12 @@ public class SelectionController {
         dialogStage.close();
     }
 
-    public Optional<Set<Path>> getSelectedFiles() {
+    public Optional<BitSet> getSelectedFiles() {
         return result;
     }
+
+    /** Правила на момент подтверждения (имеет смысл, только если выбор подтвержден). */
+    public List<SelectionStore.Rule> getRules() {
+        return rules;
+    }
 }
\ No newline at end of file
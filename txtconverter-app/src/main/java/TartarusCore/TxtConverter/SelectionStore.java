@@ -0,0 +1,261 @@
+package TartarusCore.TxtConverter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Сохранение выбора файлов между пересканированиями и запусками, отдельно для каждого источника
+ * (~/.txtconverter/selections/).
+ *
+ * Выбор хранится как правила плюс исключения:
+ * <ul>
+ *   <li>правила - массовые действия диалога выбора ("выбрать все", "выбрать/снять совпадения"
+ *       с маской); по ним определяется состояние файла по умолчанию, в том числе нового;</li>
+ *   <li>исключения - 32-битные хэши относительных путей файлов, состояние которых отличается
+ *       от правил (ручные галочки), в {@link IntBitmap}.</li>
+ * </ul>
+ * Поэтому 2000 выбранных из 80000 файлов занимают несколько килобайт, а новые файлы
+ * получают предсказуемое состояние - то, которое им дают правила (без правил - выбран).
+ * Совпадение хэшей двух путей возможно, но лишь переносит ручную отметку на другой файл.
+ */
+public class SelectionStore {
+
+    private static final int MAGIC = 0x54584353; // "TXCS"
+    private static final int VERSION = 1;
+    private static final String DIR_NAME = "selections";
+    // Старые правила вытесняются: на сохраненный выбор это не влияет, только на новые файлы
+    public static final int MAX_RULES = 32;
+
+    private static SelectionStore instance;
+
+    private final Path directory;
+
+    private SelectionStore() {
+        directory = Paths.get(System.getProperty("user.home"), ProjectConstants.APP_DATA_DIR_NAME, DIR_NAME);
+    }
+
+    public static synchronized SelectionStore getInstance() {
+        if (instance == null) {
+            instance = new SelectionStore();
+        }
+        return instance;
+    }
+
+    /** Массовое действие диалога выбора: отметить или снять все пути, подходящие под запрос. */
+    public static final class Rule {
+        /** Запрос, под который подходит любой путь. */
+        public static final String ALL = "*";
+
+        private final boolean include;
+        private final String query;
+
+        public Rule(boolean include, String query) {
+            this.include = include;
+            this.query = query;
+        }
+
+        public boolean isInclude() { return include; }
+
+        public String getQuery() { return query; }
+    }
+
+    /** Восстановленный выбор для текущего результата сканирования. */
+    public static final class Restored {
+        private final BitSet selection;
+        private final BitSet explicit;
+        private final List<Rule> rules;
+
+        private Restored(BitSet selection, BitSet explicit, List<Rule> rules) {
+            this.selection = selection;
+            this.explicit = explicit;
+            this.rules = rules;
+        }
+
+        /** Выбор по FileRecord.getIndex(). */
+        public BitSet getSelection() { return selection; }
+
+        /** Файлы, отмеченные вручную вопреки правилам: автоматические политики их не трогают. */
+        public BitSet getExplicit() { return explicit; }
+
+        public List<Rule> getRules() { return rules; }
+    }
+
+    private static final class Saved {
+        final List<Rule> rules;
+        final IntBitmap exceptions;
+
+        Saved(List<Rule> rules, IntBitmap exceptions) {
+            this.rules = rules;
+            this.exceptions = exceptions;
+        }
+    }
+
+    /**
+     * Восстанавливает сохраненный выбор для источника.
+     * @return null, если для источника ничего не сохранено (или файл поврежден)
+     */
+    public Restored restore(Path location, List<FileRecord> records) {
+        Saved saved = read(location);
+        if (saved == null) return null;
+
+        List<Predicate<String>> matchers = compile(saved.rules);
+        BitSet selection = new BitSet(records.size());
+        BitSet explicit = new BitSet(records.size());
+        for (FileRecord record : records) {
+            String path = record.getRelativePath();
+            boolean selected = defaultState(saved.rules, matchers, path);
+            if (saved.exceptions.contains(pathHash(path))) {
+                selected = !selected;
+                explicit.set(record.getIndex());
+            }
+            selection.set(record.getIndex(), selected);
+        }
+        return new Restored(selection, explicit, saved.rules);
+    }
+
+    /**
+     * Сохраняет выбор.
+     * @param partial результат сканирования содержит не все файлы источника (режим git):
+     *                исключения для остальных файлов сохраняются, а не стираются
+     */
+    public void save(Path location, List<FileRecord> records, BitSet selection, List<Rule> rules, boolean partial) {
+        List<Rule> kept = (rules.size() > MAX_RULES) ? rules.subList(rules.size() - MAX_RULES, rules.size()) : rules;
+        List<Predicate<String>> matchers = compile(kept);
+
+        int[] hashes = new int[records.size()];
+        int[] exceptions = new int[records.size()];
+        int exceptionCount = 0;
+        for (FileRecord record : records) {
+            String path = record.getRelativePath();
+            int hash = pathHash(path);
+            hashes[record.getIndex()] = hash;
+            if (selection.get(record.getIndex()) != defaultState(kept, matchers, path)) {
+                exceptions[exceptionCount++] = hash;
+            }
+        }
+
+        int[] merged = Arrays.copyOf(exceptions, exceptionCount);
+        if (partial) {
+            Saved previous = read(location);
+            if (previous != null) {
+                IntBitmap scanned = IntBitmap.of(hashes);
+                int[] old = previous.exceptions.toArray();
+                int[] combined = Arrays.copyOf(merged, merged.length + old.length);
+                int n = merged.length;
+                for (int hash : old) {
+                    if (!scanned.contains(hash)) combined[n++] = hash;
+                }
+                merged = Arrays.copyOf(combined, n);
+            }
+        }
+        write(location, new Saved(new ArrayList<>(kept), IntBitmap.of(merged)));
+    }
+
+    /** Правила применяются по порядку, последнее подходящее решает. Без подходящих - файл выбран. */
+    private static boolean defaultState(List<Rule> rules, List<Predicate<String>> matchers, String path) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            if (matchers.get(i).test(path)) return rules.get(i).isInclude();
+        }
+        return true;
+    }
+
+    private static List<Predicate<String>> compile(List<Rule> rules) {
+        List<Predicate<String>> matchers = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            if (Rule.ALL.equals(rule.getQuery())) {
+                matchers.add(path -> true);
+                continue;
+            }
+            try {
+                matchers.add(PathSearchIndex.matcher(rule.getQuery()));
+            } catch (PatternSyntaxException e) {
+                // В диалог такие правила не попадают; на случай ручной правки файла
+                matchers.add(path -> false);
+            }
+        }
+        return matchers;
+    }
+
+    /** Стабильный между запусками хэш относительного пути (FNV-1a, свернутый до 32 бит). */
+    static int pathHash(String relativePath) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < relativePath.length(); i++) {
+            h = (h ^ relativePath.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+
+    // --- Файлы ---
+
+    private Path fileFor(Path location) {
+        String key = location.toAbsolutePath().normalize().toString();
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return directory.resolve(Long.toHexString(h) + ".sel");
+    }
+
+    private Saved read(Path location) {
+        Path file = fileFor(location);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            // Хэш имени файла может совпасть у разных источников: сверяем полный путь
+            if (!in.readUTF().equals(location.toAbsolutePath().normalize().toString())) return null;
+            int ruleCount = in.readInt();
+            if (ruleCount < 0 || ruleCount > MAX_RULES) return null;
+            List<Rule> rules = new ArrayList<>(ruleCount);
+            for (int i = 0; i < ruleCount; i++) {
+                rules.add(new Rule(in.readBoolean(), in.readUTF()));
+            }
+            return new Saved(Collections.unmodifiableList(rules), IntBitmap.read(in));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LogBuffer.getInstance().warn("Cannot read saved selection " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Path location, Saved saved) {
+        Path file = fileFor(location);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(location.toAbsolutePath().normalize().toString());
+                out.writeInt(saved.rules.size());
+                for (Rule rule : saved.rules) {
+                    out.writeBoolean(rule.isInclude());
+                    out.writeUTF(rule.getQuery());
+                }
+                saved.exceptions.write(out);
+            }
+            // Замена целиком: при сбое остается прежний выбор, а не половина файла
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LogBuffer.getInstance().warn("Cannot save selection " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package TartarusCore.TxtConverter;
+
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import javafx.util.StringConverter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+public class SettingsController {
+
+    @FXML private HBox titleBar;
+    @FXML private Label lblTitle;
+    @FXML private Label lblLanguage;
+    @FXML private ComboBox<Locale> languageCombo;
+    @FXML private CheckBox logToFileCheckbox;
+    @FXML private Label lblTimeBudget;
+    @FXML private Spinner<Integer> timeBudgetSpinner;
+    @FXML private Label lblMemoryBudget;
+    @FXML private Spinner<Integer> memoryBudgetSpinner;
+    @FXML private Label lblDeadline;
+    @FXML private Spinner<Integer> deadlineSpinner;
+    @FXML private CheckBox localityReadsCheckbox;
+    @FXML private Button btnClose;
+
+    private Stage stage;
+    private double xOffset = 0;
+    private double yOffset = 0;
+
+    @FXML
+    public void initialize() {
+        setupWindowDrag();
+        setupLanguageCombo();
+        setupLogToFile();
+        setupBudget();
+        setupLocalityReads();
+        updateTexts(); // Первичная установка текстов
+
+        // Подписываемся на изменения языка, чтобы окно настроек тоже переводилось мгновенно
+        LanguageManager.getInstance().addListener(this::updateTexts);
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    private void setupLanguageCombo() {
+        languageCombo.getItems().addAll(Locale.ENGLISH, new Locale("ru"));
+
+        // Конвертер для красивого отображения в списке
+        languageCombo.setConverter(new StringConverter<Locale>() {
+            @Override
+            public String toString(Locale object) {
+                if (object == null) return "";
+                return object.getLanguage().equals("ru") ? "Русский" : "English";
+            }
+
+            @Override
+            public Locale fromString(String string) {
+                return null; // Не используется
+            }
+        });
+
+        // Устанавливаем текущее значение
+        languageCombo.setValue(LanguageManager.getInstance().getCurrentLocale());
+
+        // Обработка выбора
+        languageCombo.setOnAction(e -> {
+            Locale selected = languageCombo.getSelectionModel().getSelectedItem();
+            if (selected != null && !selected.equals(LanguageManager.getInstance().getCurrentLocale())) {
+                LanguageManager.getInstance().setLocale(selected);
+            }
+        });
+    }
+
+    private void setupLogToFile() {
+        logToFileCheckbox.setSelected(PreferenceManager.getInstance().getBoolean(ProjectConstants.PREF_LOG_TO_FILE, false));
+        logToFileCheckbox.setTooltip(new Tooltip(LogBuffer.defaultLogFile().toString()));
+
+        logToFileCheckbox.selectedProperty().addListener((obs, oldVal, enabled) -> {
+            PreferenceManager.getInstance().saveBoolean(ProjectConstants.PREF_LOG_TO_FILE, enabled);
+            try {
+                LogBuffer.getInstance().setLogFile(enabled ? LogBuffer.defaultLogFile() : null);
+            } catch (IOException e) {
+                LogBuffer.getInstance().error("Log file: " + e.getMessage());
+            }
+        });
+    }
+
+    private void setupBudget() {
+        PreferenceManager prefs = PreferenceManager.getInstance();
+        timeBudgetSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(100, 600_000,
+                prefs.getInt(ProjectConstants.PREF_BUDGET_TIME_MS, ConversionBudget.DEFAULT_TIME_MS), 500));
+        memoryBudgetSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(8, 8192,
+                prefs.getInt(ProjectConstants.PREF_BUDGET_MEMORY_MB, ConversionBudget.DEFAULT_MEMORY_MB), 16));
+        deadlineSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 86_400,
+                prefs.getInt(ProjectConstants.PREF_DEADLINE_SECONDS, 0), 10));
+
+        // Новое значение применяется со следующей конвертации
+        timeBudgetSpinner.valueProperty().addListener((obs, oldVal, value) -> {
+            if (value != null) prefs.saveInt(ProjectConstants.PREF_BUDGET_TIME_MS, value);
+        });
+        memoryBudgetSpinner.valueProperty().addListener((obs, oldVal, value) -> {
+            if (value != null) prefs.saveInt(ProjectConstants.PREF_BUDGET_MEMORY_MB, value);
+            updateMemoryBudgetTooltip();
+        });
+        deadlineSpinner.valueProperty().addListener((obs, oldVal, value) -> {
+            if (value != null) prefs.saveInt(ProjectConstants.PREF_DEADLINE_SECONDS, value);
+        });
+    }
+
+    private void setupLocalityReads() {
+        localityReadsCheckbox.setSelected(PreferenceManager.getInstance().getBoolean(ProjectConstants.PREF_LOCALITY_READS, false));
+        localityReadsCheckbox.selectedProperty().addListener((obs, oldVal, enabled) ->
+                PreferenceManager.getInstance().saveBoolean(ProjectConstants.PREF_LOCALITY_READS, enabled));
+    }
+
+    private void updateTexts() {
+        LanguageManager lm = LanguageManager.getInstance();
+        lblTitle.setText(lm.getString("ui.settings"));
+        logToFileCheckbox.setText(lm.getString("ui.log_to_file_cb"));
+        lblTimeBudget.setText(lm.getString("ui.budget_time_label"));
+        lblMemoryBudget.setText(lm.getString("ui.budget_memory_label"));
+        Tooltip budgetTooltip = new Tooltip(lm.getString("ui.budget_tooltip"));
+        timeBudgetSpinner.setTooltip(budgetTooltip);
+        updateMemoryBudgetTooltip();
+        lblDeadline.setText(lm.getString("ui.deadline_label"));
+        deadlineSpinner.setTooltip(new Tooltip(lm.getString("ui.deadline_tooltip")));
+        localityReadsCheckbox.setText(lm.getString("ui.locality_reads_cb"));
+        localityReadsCheckbox.setTooltip(new Tooltip(lm.getString("ui.locality_reads_tooltip")));
+        // lblLanguage оставляем двуязычным для понятности
+        btnClose.setText("OK");
+    }
+
+    /** Подсказка с порогом, выше которого файлы не сжимаются при текущем лимите памяти. */
+    private void updateMemoryBudgetTooltip() {
+        Integer memoryMb = memoryBudgetSpinner.getValue();
+        if (memoryMb == null) return;
+        LanguageManager lm = LanguageManager.getInstance();
+        long maxBytes = ConversionBudget.maxCompressibleBytes(memoryMb);
+        String size = (maxBytes >= 1024 * 1024)
+                ? String.format("%.1f MB", maxBytes / (1024.0 * 1024.0))
+                : (maxBytes / 1024) + " KB";
+        memoryBudgetSpinner.setTooltip(new Tooltip(lm.getString("ui.budget_tooltip") + "\n"
+                + String.format(lm.getString("ui.budget_memory_tooltip"), size)));
+    }
+
+    private void setupWindowDrag() {
+        titleBar.setOnMousePressed(event -> { xOffset = event.getSceneX(); yOffset = event.getSceneY(); });
+        titleBar.setOnMouseDragged(event -> { stage.setX(event.getScreenX() - xOffset); stage.setY(event.getScreenY() - yOffset); });
+    }
+
+    @FXML
+    private void handleClose() {
+        stage.close();
+    }
+}
\ No newline at end of file
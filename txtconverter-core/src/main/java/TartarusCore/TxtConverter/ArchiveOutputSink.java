@@ -0,0 +1,93 @@
+package TartarusCore.TxtConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+
+/**
+ * Общая часть приемников, пишущих один архивный файл.
+ * Архив пишется в ".part"-файл и переименовывается в итоговый только при commit(),
+ * поэтому недописанный архив никогда не подменяет предыдущий.
+ */
+public abstract class ArchiveOutputSink implements OutputSink {
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path partFile;
+    private final OutputStream fileStream;
+    private boolean committed = false;
+    private boolean closed = false;
+
+    protected ArchiveOutputSink(Path target) throws IOException {
+        this.target = target;
+        this.partFile = target.resolveSibling(target.getFileName() + ".part");
+        this.fileStream = new BufferedOutputStream(Files.newOutputStream(partFile), BUFFER_SIZE);
+    }
+
+    protected final OutputStream fileStream() {
+        return fileStream;
+    }
+
+    /** Дописывает служебный хвост архива (центральный каталог zip, конец tar и т.п.). */
+    protected abstract void finish() throws IOException;
+
+    /** Закрывает архивный поток (вместе с fileStream). */
+    protected abstract void closeStreams() throws IOException;
+
+    @Override
+    public void commit() throws IOException {
+        if (committed) return;
+        finish();
+        closeStreams();
+        closed = true;
+        try {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    @Override
+    public String describeLocation() {
+        return target.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+        if (!closed) {
+            closed = true;
+            try {
+                closeStreams();
+            } catch (IOException ignored) {
+                // Архив все равно отбрасывается
+            }
+        }
+        Files.deleteIfExists(partFile);
+    }
+
+    /** Поток записи, который при закрытии завершает текущую запись архива, а не весь архив. */
+    protected abstract static class EntryStream extends OutputStream {
+        private final OutputStream delegate;
+
+        protected EntryStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public abstract void close() throws IOException;
+    }
+}
@@ -0,0 +1,83 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновое удаление старых выходных папок.
+ * Файлы удаляются параллельно, затем директории снизу вверх.
+ * Работает на daemon-потоке, поэтому не держит приложение при выходе
+ * (недоудаленная папка будет подобрана при следующем запуске конвертации).
+ */
+public class BackgroundDeleter {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "output-cleanup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private BackgroundDeleter() {}
+
+    public static void deleteLater(Path dir) {
+        EXECUTOR.execute(() -> deleteRecursively(dir));
+    }
+
+    private static void deleteRecursively(Path root) {
+        if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) return;
+
+        List<Path> files = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    files.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    dirs.add(dir); // postVisit дает порядок "дети раньше родителей"
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Cleanup failed for " + root + ": " + e.getMessage());
+            return;
+        }
+
+        AtomicInteger failed = new AtomicInteger();
+        files.parallelStream().forEach(file -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                failed.incrementAndGet();
+            }
+        });
+
+        for (Path dir : dirs) {
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException e) {
+                failed.incrementAndGet();
+            }
+        }
+
+        if (failed.get() > 0) {
+            System.err.println("Cleanup of " + root + " left " + failed.get() + " entries behind.");
+        }
+    }
+}
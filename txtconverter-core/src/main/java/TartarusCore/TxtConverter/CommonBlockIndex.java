@@ -0,0 +1,347 @@
+package TartarusCore.TxtConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск блоков строк, повторяющихся во многих файлах (лицензионные шапки, баннеры
+ * автогенерации, одинаковые преамбулы using/import), для вынесения в общий раздел.
+ *
+ * Работает в три фазы, тексты между фазами не хранятся:
+ * <ol>
+ *   <li>{@link #countWindows}: скользящий хэш по окнам из WINDOW_LINES строк; для каждого окна
+ *       считается число файлов, где оно встречается (ограниченная хэш-таблица).</li>
+ *   <li>{@link #countRuns}: максимальные серии частых окон дают блоки-кандидаты; считается,
+ *       в скольких файлах встречается каждый блок, тексты запоминаются для ставших общими.</li>
+ *   <li>{@link #replace}: вхождения общих блоков заменяются маркером, {@link #section()} - сами блоки.</li>
+ * </ol>
+ * Обе таблицы счетчиков фиксированного размера: при переполнении из них вытесняются редкие
+ * ключи, поэтому память не растет с размером проекта, а подсчет становится приближенным.
+ * Замена при этом всегда точная: текст блока сверяется посимвольно.
+ */
+public class CommonBlockIndex {
+
+    private static final int WINDOW_LINES = 4;
+    // Блок должен встречаться хотя бы в стольких файлах
+    private static final int MIN_FILES = 3;
+    // Окна из пустых строк и скобок встречаются везде и ничего не экономят
+    private static final int MIN_WINDOW_WEIGHT = 20;
+    // Маркер стоит ~25 символов: короткие блоки выносить невыгодно
+    private static final int MIN_BLOCK_WEIGHT = 120;
+    private static final int MAX_BLOCKS = 500;
+    private static final int MAX_BLOCK_CHARS = 16 * 1024;
+
+    private static final long WINDOW_BASE = 0x9E3779B97F4A7C15L;
+    private static final long WINDOW_BASE_POW;
+
+    static {
+        long pow = 1;
+        for (int k = 1; k < WINDOW_LINES; k++) pow *= WINDOW_BASE;
+        WINDOW_BASE_POW = pow;
+    }
+
+    private final BoundedCounter windows = new BoundedCounter(1 << 18);
+    private final BoundedCounter runs = new BoundedCounter(1 << 15);
+    // Блоки в порядке, в котором они стали общими: хэш -> текст
+    private final Map<Long, String> blockTexts = new LinkedHashMap<>();
+    private final Map<Long, Integer> blockIds = new HashMap<>();
+    private int document = 0;
+
+    /** Фаза 1. Вызывать для каждого файла. */
+    public void countWindows(String text) {
+        Lines lines = new Lines(text);
+        document++;
+        long[] windowHashes = lines.windowHashes();
+        for (int i = 0; i < windowHashes.length; i++) {
+            if (lines.weight(i, i + WINDOW_LINES) >= MIN_WINDOW_WEIGHT) {
+                windows.add(windowHashes[i], document);
+            }
+        }
+    }
+
+    /** Фаза 2. Вызывать для тех же файлов после фазы 1. */
+    public void countRuns(String text) {
+        Lines lines = new Lines(text);
+        document++;
+        for (int[] run : findRuns(lines)) {
+            long hash = lines.rangeHash(run[0], run[1]);
+            int files = runs.add(hash, document);
+            if (files == MIN_FILES && blockTexts.size() < MAX_BLOCKS && !blockTexts.containsKey(hash)) {
+                String block = lines.text(run[0], run[1]);
+                if (block.length() <= MAX_BLOCK_CHARS) {
+                    blockTexts.put(hash, block);
+                    blockIds.put(hash, blockTexts.size());
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return blockTexts.isEmpty();
+    }
+
+    public int getBlockCount() {
+        return blockTexts.size();
+    }
+
+    /**
+     * Фаза 3. Заменяет общие блоки в тексте маркерами "(Common block B3)".
+     */
+    public String replace(String text) {
+        if (blockTexts.isEmpty()) return text;
+        Lines lines = new Lines(text);
+        List<int[]> found = findRuns(lines);
+        if (found.isEmpty()) return text;
+
+        StringBuilder sb = null;
+        int copied = 0; // строк скопировано как есть
+        for (int[] run : found) {
+            long hash = lines.rangeHash(run[0], run[1]);
+            Integer id = blockIds.get(hash);
+            if (id == null) continue;
+            String block = lines.text(run[0], run[1]);
+            if (!block.equals(blockTexts.get(hash))) continue; // коллизия хэшей
+
+            if (sb == null) sb = new StringBuilder(text.length());
+            lines.appendLines(sb, copied, run[0]);
+            sb.append(marker(id)).append('\n');
+            copied = run[1];
+        }
+        if (sb == null) return text;
+        lines.appendLines(sb, copied, lines.count());
+        sb.setLength(sb.length() - 1); // последний перенос добавлен appendLines
+        return sb.toString();
+    }
+
+    /**
+     * Раздел общих блоков для начала общего файла.
+     */
+    public String section() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("## Common blocks (repeated across files, referenced below as \"(Common block Bn)\")\n");
+        int id = 0;
+        for (Map.Entry<Long, String> e : blockTexts.entrySet()) {
+            id++;
+            sb.append("\n>>> B").append(id).append(" (").append(runs.get(e.getKey())).append(" files)\n");
+            sb.append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String marker(int id) {
+        return "(Common block B" + id + ")";
+    }
+
+    /**
+     * Максимальные серии подряд идущих частых окон -> диапазоны строк [from, to)
+     * без пустых строк по краям. Фазы 2 и 3 видят одну и ту же таблицу окон,
+     * поэтому находят одинаковые серии.
+     */
+    private List<int[]> findRuns(Lines lines) {
+        List<int[]> result = new ArrayList<>();
+        long[] windowHashes = lines.windowHashes();
+        int i = 0;
+        while (i < windowHashes.length) {
+            if (!isFrequent(lines, windowHashes, i)) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j + 1 < windowHashes.length && isFrequent(lines, windowHashes, j + 1)) j++;
+
+            int from = i;
+            int to = j + WINDOW_LINES;
+            while (from < to && lines.weight(from, from + 1) == 0) from++;
+            while (to > from && lines.weight(to - 1, to) == 0) to--;
+            if (lines.weight(from, to) >= MIN_BLOCK_WEIGHT) {
+                result.add(new int[]{from, to});
+            }
+            i = j + WINDOW_LINES; // следующая серия не перекрывает текущую
+        }
+        return result;
+    }
+
+    private boolean isFrequent(Lines lines, long[] windowHashes, int i) {
+        return lines.weight(i, i + WINDOW_LINES) >= MIN_WINDOW_WEIGHT
+                && windows.get(windowHashes[i]) >= MIN_FILES;
+    }
+
+    /**
+     * Текст, разбитый на строки по '\n': хэши строк и префиксные суммы "веса"
+     * (числа непробельных символов) для быстрых запросов по диапазонам.
+     */
+    private static final class Lines {
+        private final String text;
+        private final int[] starts;   // начало строки k; starts[count] = text.length() + 1
+        private final long[] hashes;
+        private final int[] weightPrefix;
+        private final int count;
+
+        Lines(String text) {
+            this.text = text;
+            int n = 1;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') n++;
+            }
+            count = n;
+            starts = new int[n + 1];
+            hashes = new long[n];
+            weightPrefix = new int[n + 1];
+
+            int line = 0;
+            long h = 0xcbf29ce484222325L;
+            int weight = 0;
+            for (int i = 0; i <= text.length(); i++) {
+                char c = (i < text.length()) ? text.charAt(i) : '\n';
+                if (c == '\n') {
+                    hashes[line] = mix(h);
+                    weightPrefix[line + 1] = weightPrefix[line] + weight;
+                    starts[line + 1] = i + 1;
+                    line++;
+                    h = 0xcbf29ce484222325L;
+                    weight = 0;
+                } else {
+                    h = (h ^ c) * 0x100000001b3L;
+                    if (c > ' ') weight++;
+                }
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        int weight(int from, int to) {
+            return weightPrefix[to] - weightPrefix[from];
+        }
+
+        /** Полиномиальный скользящий хэш окон: O(1) на сдвиг окна. */
+        long[] windowHashes() {
+            if (count < WINDOW_LINES) return new long[0];
+            long[] result = new long[count - WINDOW_LINES + 1];
+            long h = 0;
+            for (int k = 0; k < WINDOW_LINES; k++) h = h * WINDOW_BASE + hashes[k];
+            result[0] = mix(h);
+            for (int i = 1; i < result.length; i++) {
+                h = (h - hashes[i - 1] * WINDOW_BASE_POW) * WINDOW_BASE + hashes[i + WINDOW_LINES - 1];
+                result[i] = mix(h);
+            }
+            return result;
+        }
+
+        long rangeHash(int from, int to) {
+            long h = to - from;
+            for (int k = from; k < to; k++) h = h * WINDOW_BASE + hashes[k];
+            return mix(h);
+        }
+
+        String text(int from, int to) {
+            return text.substring(starts[from], starts[to] - 1);
+        }
+
+        /** Строки [from, to), каждая с переносом. */
+        void appendLines(StringBuilder sb, int from, int to) {
+            if (from >= to) return;
+            sb.append(text, starts[from], Math.min(starts[to], text.length())).append(to == count ? "\n" : "");
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return key;
+    }
+
+    /**
+     * Счетчик "в скольких документах встречался ключ" с открытой адресацией и фиксированной
+     * емкостью. Когда таблица заполнена, из нее вытесняются ключи с наименьшими счетчиками.
+     */
+    private static final class BoundedCounter {
+        private final int capacity;
+        private final long[] keys;
+        private final int[] counts;
+        private final int[] lastDocument;
+        private final int mask;
+        private int size = 0;
+
+        BoundedCounter(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(capacity * 2 - 1) * 2;
+            keys = new long[tableSize];
+            counts = new int[tableSize];
+            lastDocument = new int[tableSize];
+            mask = tableSize - 1;
+        }
+
+        /** @return счетчик ключа после учета документа */
+        int add(long key, int document) {
+            if (key == 0) key = 1; // 0 - признак пустой ячейки
+            int slot = slotOf(key);
+            if (keys[slot] == key) {
+                if (lastDocument[slot] != document) {
+                    lastDocument[slot] = document;
+                    counts[slot]++;
+                }
+                return counts[slot];
+            }
+            if (size >= capacity) {
+                evictRare();
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            counts[slot] = 1;
+            lastDocument[slot] = document;
+            size++;
+            return 1;
+        }
+
+        int get(long key) {
+            if (key == 0) key = 1;
+            int slot = slotOf(key);
+            return (keys[slot] == key) ? counts[slot] : 0;
+        }
+
+        private int slotOf(long key) {
+            int slot = (int) key & mask;
+            while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        /**
+         * Удаляет ключи со счетчиком не выше порога, поднимая порог, пока не освободится
+         * половина емкости. Оставшиеся ключи перевставляются (удаление из цепочек
+         * открытой адресации иначе ломает поиск).
+         */
+        private void evictRare() {
+            int threshold = 1;
+            int remaining;
+            do {
+                remaining = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != 0 && counts[i] > threshold) remaining++;
+                }
+                threshold++;
+            } while (remaining > capacity / 2);
+            int keep = threshold - 1;
+
+            long[] oldKeys = keys.clone();
+            int[] oldCounts = counts.clone();
+            int[] oldLast = lastDocument.clone();
+            Arrays.fill(keys, 0);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0 || oldCounts[i] <= keep) continue;
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                lastDocument[slot] = oldLast[i];
+                size++;
+            }
+        }
+    }
+}
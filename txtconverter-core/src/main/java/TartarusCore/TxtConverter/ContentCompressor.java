@@ -0,0 +1,76 @@
+package TartarusCore.TxtConverter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Конвейер сжатия текста по уровням. Не зависит от JavaFX и не хранит состояния,
+ * поэтому используется и при конвертации, и при оценке размера (DryRunAnalyzer) из любых потоков.
+ */
+public final class ContentCompressor {
+
+    private static final Pattern BLOCK_COMMENT_PATTERN = Pattern.compile("/\\*[\\s\\S]*?\\*/");
+    private static final Pattern EXCESS_NEWLINES_PATTERN = Pattern.compile("(\\r?\\n){3,}");
+
+    private ContentCompressor() {}
+
+    /**
+     * Сжимает содержимое файла согласно уровню. Markdown и NONE возвращаются без изменений.
+     */
+    public static String compress(String content, FileRecord record, CompressionLevel level) {
+        if (level == CompressionLevel.NONE || record.getKind() == FileKind.MARKDOWN) return content;
+
+        // Logic: If MAXIMUM level AND it is a Godot file -> Use Special Converter
+        // Otherwise -> Use standard compression
+        if (level == CompressionLevel.MAXIMUM && record.getKind() == FileKind.GODOT_SCENE) {
+            return GodotCompactConverter.convert(content, record.getFileName());
+        }
+        if (level == CompressionLevel.MAXIMUM) {
+            // Структурированные форматы сжимаются с учетом синтаксиса, а не построчной обрезкой
+            switch (record.getKind()) {
+                case JSON: return FormatMinifier.minifyJson(content);
+                case XML: return FormatMinifier.minifyXml(content);
+                case HTML: return FormatMinifier.minifyHtml(content);
+                case CSS: return FormatMinifier.minifyCss(content);
+                // Отступы значимы: уровни перекодируются без потерь (табом или пробелом на уровень)
+                case WHITESPACE_SENSITIVE: return IndentationEncoder.compress(content, isYaml(record));
+                default: return compressMax(content);
+            }
+        }
+        return compressSmart(content);
+    }
+
+    static String compressSmart(String content) {
+        return EXCESS_NEWLINES_PATTERN.matcher(ConversionBudget.guard(content)).replaceAll("\n\n").trim();
+    }
+
+    /** Python и GDScript; остальные файлы с значимыми отступами - YAML (в том числе ассеты Unity). */
+    private static boolean isYaml(FileRecord record) {
+        return !record.getExtension().equals(".py") && !record.getExtension().equals(".gd");
+    }
+
+    static String compressMax(String content) {
+        // Standard max compression for non-Godot files
+        // Незакрытый /* в большом файле заставляет regex сканировать до конца от каждого '/':
+        // guard прерывает такой поиск по бюджету времени (ConversionBudget)
+        content = BLOCK_COMMENT_PATTERN.matcher(ConversionBudget.guard(content)).replaceAll("");
+        String[] lines = content.split("\\R");
+        StringBuilder sb = new StringBuilder(content.length() / 2);
+
+        for (String line : lines) {
+            ConversionBudget.checkDeadline();
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) continue;
+            if (trimmed.startsWith("//") || trimmed.startsWith("#")) continue;
+            sb.append(trimmed).append("\n");
+        }
+        return sb.toString().trim();
+    }
+
+    static String stripTrailing(String str) {
+        int len = str.length();
+        while ((len > 0) && (str.charAt(len - 1) <= ' ')) {
+            len--;
+        }
+        return str.substring(0, len);
+    }
+}
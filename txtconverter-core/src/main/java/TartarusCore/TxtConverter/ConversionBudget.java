@@ -0,0 +1,224 @@
+package TartarusCore.TxtConverter;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ограничение времени и памяти на сжатие одного файла.
+ *
+ * Патологический ввод (незакрытый /* в огромном файле, странная сцена Godot с глубокой
+ * вложенностью) не должен останавливать всю конвертацию. Если файл не укладывается в бюджет,
+ * он сжимается более дешевым уровнем (MAXIMUM -> SMART), а в крайнем случае копируется как есть.
+ *
+ * Время контролируется кооперативно: сжатие проверяет дедлайн текущего потока
+ * через {@link #checkDeadline()}, а регулярные выражения получают ввод через {@link #guard},
+ * поэтому даже долгий поиск по regex прерывается. Память оценивается заранее по размеру файла.
+ */
+public final class ConversionBudget {
+
+    public static final int DEFAULT_TIME_MS = 2000;
+    public static final int DEFAULT_MEMORY_MB = 64;
+
+    // Рабочая память на символ входа: исходник в UTF-16, копии после replaceAll/split, результат
+    private static final long WORKING_BYTES_PER_CHAR = 16;
+    // nanoTime не бесплатен: в regex дедлайн проверяется раз в столько обращений к символам
+    private static final int CHECK_INTERVAL = 4096;
+
+    /** Дедлайн текущего потока (System.nanoTime) и признак отмены задачи. */
+    private static final ThreadLocal<Deadline> DEADLINE = new ThreadLocal<>();
+
+    private final long timeNanos;
+    private final long memoryBytes;
+
+    /** Причина отката на более дешевый уровень. */
+    public enum Overrun {
+        TIME("time budget"),
+        MEMORY("memory budget"),
+        STACK("stack overflow"),
+        ERROR("converter error");
+
+        private final String description;
+
+        Overrun(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /** Результат сжатия: текст (null - копировать исходник как есть) и причина отката, если он был. */
+    public static final class Result {
+        private final String text;
+        private final CompressionLevel level;
+        private final Overrun overrun;
+
+        private Result(String text, CompressionLevel level, Overrun overrun) {
+            this.text = text;
+            this.level = level;
+            this.overrun = overrun;
+        }
+
+        public String getText() { return text; }
+
+        /** Уровень, которым файл реально сжат (null - скопирован как есть). */
+        public CompressionLevel getLevel() { return level; }
+
+        /** Причина отката или null, если файл сжат запрошенным уровнем. */
+        public Overrun getOverrun() { return overrun; }
+
+        public boolean isFallback() { return overrun != null; }
+    }
+
+    public ConversionBudget(int timeMs, int memoryMb) {
+        this.timeNanos = Math.max(1, timeMs) * 1_000_000L;
+        this.memoryBytes = Math.max(1, memoryMb) * 1024L * 1024L;
+    }
+
+    /** Бюджеты с одинаковыми лимитами дают одинаковые результаты сжатия (ключ кэшей оценок). */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConversionBudget other)) return false;
+        return timeNanos == other.timeNanos && memoryBytes == other.memoryBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(timeNanos) * 31 + Long.hashCode(memoryBytes);
+    }
+
+    /** Бюджет по умолчанию (без пользовательских настроек). */
+    public static ConversionBudget defaults() {
+        return new ConversionBudget(DEFAULT_TIME_MS, DEFAULT_MEMORY_MB);
+    }
+
+    /**
+     * true, если файл такого размера заведомо не поместится в бюджет памяти ни на одном уровне:
+     * его не стоит даже читать в строку.
+     */
+    public boolean exceedsMemory(long sizeBytes) {
+        return sizeBytes * WORKING_BYTES_PER_CHAR > memoryBytes;
+    }
+
+    /**
+     * Наибольший размер файла, который еще сжимается при бюджете памяти memoryMb:
+     * файлы больше копируются как есть (при 64 МБ по умолчанию - около 4 МБ).
+     */
+    public static long maxCompressibleBytes(int memoryMb) {
+        return Math.max(1, memoryMb) * 1024L * 1024L / WORKING_BYTES_PER_CHAR;
+    }
+
+    /**
+     * Сжимает содержимое уровнем level, при превышении бюджета - SMART, затем исходник как есть.
+     * @param isCancelled проверяется вместе с дедлайном: отмена прерывает и текущий файл
+     */
+    public Result compress(String content, FileRecord record, CompressionLevel level, BooleanSupplier isCancelled) {
+        Overrun overrun = null;
+        CompressionLevel current = level;
+        while (current != null && current != CompressionLevel.NONE) {
+            if (exceedsMemory(content.length())) {
+                overrun = (overrun != null) ? overrun : Overrun.MEMORY;
+            } else {
+                Deadline deadline = new Deadline(System.nanoTime() + timeNanos, isCancelled);
+                DEADLINE.set(deadline);
+                try {
+                    String text = ContentCompressor.compress(content, record, current);
+                    return new Result(text, current, overrun);
+                } catch (BudgetExceededException e) {
+                    if (deadline.cancelled) return new Result(null, null, null);
+                    overrun = (overrun != null) ? overrun : Overrun.TIME;
+                } catch (StackOverflowError e) {
+                    overrun = (overrun != null) ? overrun : Overrun.STACK;
+                } catch (RuntimeException e) {
+                    overrun = (overrun != null) ? overrun : Overrun.ERROR;
+                } finally {
+                    DEADLINE.remove();
+                }
+            }
+            current = (current == CompressionLevel.MAXIMUM) ? CompressionLevel.SMART : null;
+        }
+        return new Result(null, null, overrun);
+    }
+
+    /**
+     * Бросает BudgetExceededException, если время текущего файла истекло или задача отменена.
+     * Вне {@link #compress} ничего не делает.
+     */
+    public static void checkDeadline() {
+        Deadline deadline = DEADLINE.get();
+        if (deadline != null) deadline.check();
+    }
+
+    /**
+     * Оборачивает ввод регулярного выражения так, чтобы поиск прерывался по дедлайну.
+     * Вне {@link #compress} возвращает ввод без изменений.
+     */
+    public static CharSequence guard(CharSequence input) {
+        Deadline deadline = DEADLINE.get();
+        return (deadline != null) ? new DeadlineCharSequence(input, deadline) : input;
+    }
+
+    private static final class Deadline {
+        private final long deadlineNanos;
+        private final BooleanSupplier isCancelled;
+        private boolean cancelled = false;
+
+        Deadline(long deadlineNanos, BooleanSupplier isCancelled) {
+            this.deadlineNanos = deadlineNanos;
+            this.isCancelled = isCancelled;
+        }
+
+        void check() {
+            if (isCancelled.getAsBoolean()) {
+                cancelled = true;
+                throw new BudgetExceededException();
+            }
+            if (System.nanoTime() - deadlineNanos > 0) throw new BudgetExceededException();
+        }
+    }
+
+    private static final class DeadlineCharSequence implements CharSequence {
+        private final CharSequence inner;
+        private final Deadline deadline;
+        private int untilCheck = CHECK_INTERVAL;
+
+        DeadlineCharSequence(CharSequence inner, Deadline deadline) {
+            this.inner = inner;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--untilCheck <= 0) {
+                untilCheck = CHECK_INTERVAL;
+                deadline.check();
+            }
+            return inner.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return inner.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return inner.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return inner.toString();
+        }
+    }
+
+    /** Без стека вызовов: бросается часто и только для раскрутки до {@link #compress}. */
+    private static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package TartarusCore.TxtConverter;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Потоковая конвертация списка файлов через {@link Flow}: каждый сконвертированный файл
+ * публикуется как {@link ConvertedFile}, не дожидаясь конца прогона.
+ *
+ * Издатель "холодный": каждая подписка - отдельный прогон по списку со своим
+ * {@link FileConverter}. Файлы конвертируются только под спрос подписчика
+ * ({@link Flow.Subscription#request}): без запроса движок не читает следующий файл,
+ * поэтому в памяти не копится больше, чем подписчик попросил. Сигналы подписчику
+ * идут последовательно из задачи на executor; отмена ({@link Flow.Subscription#cancel})
+ * прерывает и текущее сжатие.
+ *
+ * Порядок публикации - порядок списка. Ошибка чтения файла завершает подписку через onError.
+ */
+public final class ConversionEngine implements Flow.Publisher<ConvertedFile> {
+
+    private final List<FileRecord> records;
+    private final Supplier<FileConverter> converters;
+    private final boolean rawContent;
+    private final boolean localityReads;
+    private final Executor executor;
+    private final LogSink log;
+
+    /**
+     * @param rawContent читать ли файлы, которые берутся как есть (иначе они публикуются без содержимого)
+     * @param localityReads упреждающее чтение в порядке расположения на диске ({@link LocalityPrefetcher})
+     * @param executor где выполняется прогон; Runnable::run - в потоке подписчика, синхронно
+     * @param log журнал откатов по бюджету и ошибок подписчика
+     */
+    public ConversionEngine(List<FileRecord> records, CompressionLevel level, ConversionBudget budget,
+                            boolean rawContent, boolean localityReads, Executor executor, LogSink log) {
+        this(records, () -> new FileConverter(level, budget, log), rawContent, localityReads, executor, log);
+    }
+
+    /** Все файлы с содержимым, бюджет по умолчанию, прогон в общем пуле. */
+    public ConversionEngine(List<FileRecord> records, CompressionLevel level) {
+        this(records, level, ConversionBudget.defaults(), true, false, ForkJoinPool.commonPool(), LogSink.NONE);
+    }
+
+    /** Для прогона, которому нужен собственный конвертер (общие откаты и кэш с другими проходами). */
+    ConversionEngine(List<FileRecord> records, Supplier<FileConverter> converters,
+                     boolean rawContent, boolean localityReads, Executor executor, LogSink log) {
+        this.records = List.copyOf(records);
+        this.converters = converters;
+        this.rawContent = rawContent;
+        this.localityReads = localityReads;
+        this.executor = executor;
+        this.log = log;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ConvertedFile> subscriber) {
+        Objects.requireNonNull(subscriber);
+        // onSubscribe вызывается из той же задачи, что и onNext: сигналы не пересекаются
+        executor.execute(new EngineSubscription(subscriber, converters.get()));
+    }
+
+    private final class EngineSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ConvertedFile> subscriber;
+        private final FileConverter converter;
+        private final AtomicLong demand = new AtomicLong();
+        // Число необработанных сигналов; задача на executor одна, пока счетчик не ноль.
+        // Первый сигнал - сама подписка.
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private volatile boolean cancelled = false;
+        private volatile Throwable badRequest;
+
+        // Только в задаче прогона
+        private boolean subscribed = false;
+        private boolean done = false;
+        private int next = 0;
+        private LocalityPrefetcher prefetcher;
+
+        EngineSubscription(Flow.Subscriber<? super ConvertedFile> subscriber, FileConverter converter) {
+            this.subscriber = subscriber;
+            this.converter = converter;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                demand.getAndUpdate(d -> (d + n < 0) ? Long.MAX_VALUE : d + n);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+        }
+
+        private void signal() {
+            if (pending.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    if (localityReads) prefetcher = LocalityPrefetcher.start(records, record -> true);
+                    subscriber.onSubscribe(this);
+                }
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (!done) {
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (badRequest != null) {
+                    finish();
+                    subscriber.onError(badRequest);
+                    return;
+                }
+                if (next == records.size()) {
+                    finish();
+                    subscriber.onComplete();
+                    return;
+                }
+                if (demand.get() == 0) return;
+
+                ConvertedFile file;
+                try {
+                    if (prefetcher != null) prefetcher.awaitReady(next);
+                    file = converter.convert(records.get(next), rawContent, () -> cancelled);
+                } catch (Exception e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+                next++;
+                if (cancelled) continue;
+                if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                try {
+                    subscriber.onNext(file);
+                } catch (RuntimeException e) {
+                    // Подписчик нарушил контракт Flow: считаем подписку отмененной
+                    log.warn("Conversion subscriber failed: " + e);
+                    cancelled = true;
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (prefetcher != null) prefetcher.close();
+        }
+    }
+}
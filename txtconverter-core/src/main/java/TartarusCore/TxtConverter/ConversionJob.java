@@ -0,0 +1,1145 @@
+package TartarusCore.TxtConverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Один прогон конвертации: копии файлов, отчет о структуре и общий файл в приемник {@link OutputTarget}.
+ *
+ * Не зависит от UI и глобальных настроек: все параметры передаются в конструктор, поэтому
+ * несколько прогонов могут идти параллельно в разных потоках. Экземпляр одноразовый.
+ * В приложении его запускает ConverterTask, во встраивающем коде - {@link #run} напрямую.
+ */
+public class ConversionJob {
+    private final String sourceDirPath;
+    private final List<FileRecord> filesToProcess;
+    private final BitSet filesSelectedForMerge;
+    private final List<String> ignoredFolders;
+    private final boolean generateStructureFile;
+    private final boolean compactMode;
+    private final CompressionLevel compressionLevel;
+    private final boolean generateMergedFile;
+    private final boolean mergedOnly;
+    private final OutputTarget outputTarget;
+    private final JunkPolicy junkPolicy;
+    private final boolean collapseNearDuplicates;
+    private final GitChangeSet changeSet;
+    private final boolean includeDiff;
+    private final boolean extractCommonBlocks;
+    private final ConversionBudget budget;
+    private final boolean localityReads;
+    private final long deadlineMs;
+    private final FileConverter converter;
+    private final ResourceBundle bundle;
+    private ProgressListener listener = ProgressListener.NONE;
+    // Журнал прогона - тот же получатель, что и ход работы
+    private LogSink log = LogSink.NONE;
+    private BooleanSupplier cancelled = () -> false;
+    // Только в режиме дедлайна: учет пропущенных файлов и конвертер упрощенного уровня
+    private ExportDeadline deadline;
+    private FileConverter degradedConverter;
+
+    private static final int COLLAPSE_THRESHOLD = 5;
+    // Видна DryRunAnalyzer: заглушки входят в оценку размера общего файла
+    static final String MERGED_STUB = "(Stub)\n\n";
+    private static final String DEADLINE_STUB = "(Skipped: export deadline reached)\n\n";
+    // diff почти-дубликата выводится, только если он заметно короче самого файла
+    private static final double MAX_DIFF_RATIO = 0.6;
+    private static final int MAX_DIFF_EDITS = 400;
+
+    /**
+     * @param extractCommonBlocks выносить блоки, повторяющиеся во многих файлах, в начало общего файла
+     *                            ({@link CommonBlockIndex}); только при сжатии
+     * @param budget ограничение времени и памяти на файл
+     * @param localityReads упреждающее чтение в порядке расположения на диске ({@link LocalityPrefetcher})
+     * @param deadlineMs ограничение времени на весь прогон ({@link ExportDeadline}), 0 - без ограничения
+     * @param bundle тексты отчетов и сообщений о ходе работы ({@link ProjectConstants#MESSAGES_BUNDLE})
+     */
+    public ConversionJob(String sourceDirPath, List<FileRecord> filesToProcess,
+                         BitSet filesSelectedForMerge,
+                         List<String> ignoredFolders,
+                         boolean generateStructureFile,
+                         boolean compactMode,
+                         CompressionLevel compressionLevel,
+                         boolean generateMergedFile,
+                         boolean mergedOnly,
+                         OutputTarget outputTarget,
+                         JunkPolicy junkPolicy,
+                         boolean collapseNearDuplicates,
+                         boolean extractCommonBlocks,
+                         GitChangeSet changeSet,
+                         boolean includeDiff,
+                         ConversionBudget budget,
+                         boolean localityReads,
+                         long deadlineMs,
+                         ResourceBundle bundle) {
+        this.sourceDirPath = sourceDirPath;
+        // Общий файл выводится по папкам: весь прогон идет в этом порядке, чтобы запись была потоковой
+        this.filesToProcess = groupByDirectory(filesToProcess);
+        this.filesSelectedForMerge = filesSelectedForMerge;
+        this.ignoredFolders = ignoredFolders;
+        this.generateStructureFile = generateStructureFile;
+        this.compactMode = compactMode;
+        this.compressionLevel = compressionLevel;
+        this.generateMergedFile = generateMergedFile;
+        // Режим "только общий файл" имеет смысл лишь при включенном общем файле
+        this.mergedOnly = mergedOnly && generateMergedFile;
+        this.outputTarget = outputTarget;
+        this.junkPolicy = junkPolicy;
+        this.collapseNearDuplicates = collapseNearDuplicates;
+        // Режим изменений: список файлов уже ограничен сканером, здесь - пометки в отчете и diff
+        this.changeSet = changeSet;
+        this.includeDiff = includeDiff && changeSet != null;
+        // Без сжатия общий файл должен оставаться дословной копией исходников
+        this.extractCommonBlocks = extractCommonBlocks && generateMergedFile && compressionLevel != CompressionLevel.NONE;
+        this.budget = budget;
+        this.converter = new FileConverter(compressionLevel, budget, (level, message) -> log.append(level, message));
+        this.localityReads = localityReads;
+        this.deadlineMs = deadlineMs;
+        this.bundle = bundle;
+    }
+
+    private String loc(String key) {
+        return bundle.getString(key);
+    }
+
+    /** Упреждающее чтение файлов прохода в порядке их расположения на диске (null - выключено или неприменимо). */
+    private LocalityPrefetcher prefetch(Predicate<FileRecord> willRead) {
+        return localityReads ? LocalityPrefetcher.start(filesToProcess, willRead) : null;
+    }
+
+    /** Число файлов, сжатых более дешевым уровнем из-за бюджета (для итоговой сводки). */
+    public int getFallbackCount() {
+        return converter.getFallbackCount() + (degradedConverter != null ? degradedConverter.getFallbackCount() : 0);
+    }
+
+    /** Число файлов, пропущенных из-за дедлайна прогона (0 - дедлайна нет или он не наступил). */
+    public int getDeadlineSkippedCount() {
+        return (deadline != null) ? deadline.getSkippedCount() : 0;
+    }
+
+    /** Число файлов, сжатых более дешевым уровнем, чтобы успеть к дедлайну. */
+    public int getDeadlineDegradedCount() {
+        return (deadline != null) ? deadline.getDegradedCount() : 0;
+    }
+
+    /**
+     * Выполняет прогон в текущем потоке.
+     * @param isCancelled проверяется между файлами и внутри сжатия; отмененный прогон ничего не фиксирует
+     */
+    public void run(ProgressListener listener, BooleanSupplier isCancelled) throws IOException {
+        // Приемник фиксирует результат только при успехе: close() без commit() отбрасывает недописанное
+        try (OutputSink sink = outputTarget.openSink(Paths.get(sourceDirPath))) {
+            run(sink, listener, isCancelled);
+            if (isCancelled()) return;
+            sink.commit();
+        }
+    }
+
+    /**
+     * Выполняет прогон в текущем потоке, записывая результат в готовый приемник.
+     * Фиксация и закрытие приемника - на вызывающем коде (outputTarget при этом не используется).
+     */
+    public void run(OutputSink sink, ProgressListener listener, BooleanSupplier isCancelled) throws IOException {
+        this.listener = listener;
+        this.log = listener;
+        this.cancelled = isCancelled;
+        updateMessage(loc("task.preparing"));
+        // Архив записей держится открытым до конца прогона, даже если его уже пересканировали
+        try (SourceRoot source = SourceRoot.retain(sourceDirPath, filesToProcess)) {
+            convert(sink, source.getRoot());
+        }
+        if (isCancelled()) return;
+
+        if (converter.getFallbackCount() > 0) {
+            log.warn(converter.getFallbackCount() + " file(s) exceeded the per-file conversion budget and were written with a cheaper level");
+        }
+        if (deadline != null && (deadline.getSkippedCount() > 0 || deadline.getDegradedCount() > 0)) {
+            log.warn("Export " + deadline.describe());
+        }
+
+        updateMessage(loc("task.done"));
+        updateProgress(1, 1);
+    }
+
+    /**
+     * Собирает отчет о структуре и общий файл из уже сконвертированных файлов, без копий по файлам:
+     * исходники читаются, только если для файла нет готового содержимого. Для сервера, который
+     * держит сконвертированные файлы в кэше. Фиксация и закрытие приемника - на вызывающем коде.
+     * @param converted сконвертированные файлы по индексу записи; у файлов, взятых как есть, - с байтами
+     */
+    public void assemble(OutputSink sink, Map<Integer, ConvertedFile> converted,
+                         ProgressListener listener, BooleanSupplier isCancelled) throws IOException {
+        this.listener = listener;
+        this.log = listener;
+        this.cancelled = isCancelled;
+        try (SourceRoot source = SourceRoot.retain(sourceDirPath, filesToProcess)) {
+            List<FileRecord> mergedRecords = new ArrayList<>();
+            Map<Integer, String> mergedTexts = new HashMap<>();
+            if (generateMergedFile) {
+                for (FileRecord record : filesToProcess) {
+                    if (isCancelled()) return;
+                    if (isExcluded(record)) continue;
+                    mergedRecords.add(record);
+                    if (filesSelectedForMerge.get(record.getIndex())) {
+                        mergedTexts.put(record.getIndex(), convertedText(record, converted.get(record.getIndex())));
+                    }
+                }
+            }
+
+            if (generateStructureFile) {
+                updateMessage(loc("task.generating_structure"));
+                generateDeepStructureReport(sink, source.getRoot());
+            }
+            writeChangesDiff(sink);
+
+            if (generateMergedFile && !filesToProcess.isEmpty()) {
+                updateMessage(loc("task.merging"));
+                writeMergedFile(sink, buildMergedBody(mergedRecords, mergedTexts));
+            }
+        }
+    }
+
+    /** Текст файла для общего файла из готового результата (null - сконвертировать здесь). */
+    private String convertedText(FileRecord record, ConvertedFile file) {
+        if (file != null && file.getText() != null) return file.getText();
+        if (file != null && file.getBytes() != null) return new String(file.getBytes(), StandardCharsets.UTF_8);
+        String text = (file == null) ? convertToText(record) : null;
+        return (text != null) ? text : rawMergedText(record);
+    }
+
+    private void convert(OutputSink sink, Path sourcePath) throws IOException {
+        if (deadlineMs > 0) {
+            deadline = new ExportDeadline(deadlineMs, compressionLevel);
+            convertWithDeadline(sink, sourcePath);
+        } else if (mergedOnly) {
+            convertMergedOnly(sink, sourcePath);
+        } else {
+            convertInto(sink, sourcePath);
+        }
+    }
+
+    private boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    private void updateMessage(String message) {
+        listener.message(message);
+    }
+
+    private void updateProgress(long done, long total) {
+        listener.progress(done, total);
+    }
+
+    private void convertInto(OutputSink sink, Path sourcePath) throws IOException {
+        List<FileRecord> toConvert = new ArrayList<>();
+        for (FileRecord record : filesToProcess) {
+            if (!isExcluded(record)) toConvert.add(record);
+        }
+        // Тот же движок, что и у внешних потребителей, но синхронно в потоке задачи и по одному файлу:
+        // следующий файл читается только после записи предыдущего
+        ConversionEngine engine = new ConversionEngine(toConvert, () -> converter, false, localityReads, Runnable::run, log);
+        OutputWriter writer = new OutputWriter(sink, toConvert.size());
+        engine.subscribe(writer);
+        writer.rethrowFailure();
+        if (isCancelled()) return;
+
+        if (generateStructureFile) {
+            updateMessage(loc("task.generating_structure"));
+            generateDeepStructureReport(sink, sourcePath);
+        }
+        writeChangesDiff(sink);
+
+        // Общий файл пишется потоково после копий: в архив одновременно открыта только одна запись,
+        // а тексты копий не копятся. Файлы читаются заново, но сжатие повторно не выполняется
+        // для текстов из кэша конвертера
+        if (generateMergedFile && !filesToProcess.isEmpty()) {
+            updateMessage(loc("task.merging"));
+            streamMergedFile(sink);
+        }
+    }
+
+    /**
+     * Пишет публикуемые движком файлы в приемник. Ошибка записи отменяет подписку
+     * и пробрасывается из {@link #rethrowFailure()}.
+     */
+    private final class OutputWriter implements Flow.Subscriber<ConvertedFile> {
+        private final OutputSink sink;
+        private final int totalFiles;
+        private final Set<String> usedEntryNames = new HashSet<>();
+        private Flow.Subscription subscription;
+        private Throwable failure;
+        private int processedCount = 0;
+
+        OutputWriter(OutputSink sink, int totalFiles) {
+            this.sink = sink;
+            this.totalFiles = totalFiles;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ConvertedFile file) {
+            if (isCancelled()) {
+                subscription.cancel();
+                return;
+            }
+            try {
+                write(file);
+            } catch (IOException e) {
+                failure = e;
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        private void write(ConvertedFile file) throws IOException {
+            FileRecord record = file.getRecord();
+            processedCount++;
+            updateProgress(processedCount, totalFiles);
+            updateMessage(String.format(loc("task.processing"), record.getFileName()));
+
+            // Движок создан без чтения исходников: текст есть только у сжатых файлов
+            writeCopy(sink, record, file.getText(), usedEntryNames);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void rethrowFailure() throws IOException {
+            if (failure instanceof IOException e) throw e;
+            if (failure instanceof RuntimeException e) throw e;
+            if (failure instanceof Error e) throw e;
+            if (failure != null) throw new IOException(failure);
+        }
+    }
+
+    /**
+     * Копия файла: сжатый текст или байты исходника, если text == null.
+     */
+    private void writeCopy(OutputSink sink, FileRecord record, String text, Set<String> usedEntryNames) throws IOException {
+        String sourceFileName = record.getFileName();
+        boolean isMarkdown = record.getKind() == FileKind.MARKDOWN;
+        String destFileName = uniqueEntryName(isMarkdown ? sourceFileName : sourceFileName + ".txt", usedEntryNames);
+        // Размер копии известен заранее, поэтому приемник пишет ее сразу (tar.gz - без временного файла)
+        if (text != null) {
+            sink.write(destFileName, text);
+        } else {
+            try {
+                sink.copyFile(destFileName, record.getPath());
+            } catch (IOException e) {
+                // Исходник удален или заблокирован во время прогона: без копии, но прогон продолжается
+                if (!isSourceFailure(e, record.getPath())) throw e;
+                log.error(record.getRelativePath() + ": cannot read, not copied (" + e.getMessage() + ")");
+                return;
+            }
+        }
+        if (text != null) {
+            log.debug(record.getRelativePath() + " -> " + destFileName + " (" + record.getSize() + " -> " + text.length() + " chars)");
+        } else {
+            log.debug(record.getRelativePath() + " -> " + destFileName + " (raw, " + record.getSize() + " bytes)");
+        }
+    }
+
+    /**
+     * Прогон к дедлайну ({@link ExportDeadline}): файлы читаются в порядке ценности, копии пишутся
+     * по мере готовности, а отчет о структуре и общий файл собираются в конце в обычном порядке
+     * и перечисляют пропущенные и упрощенные файлы. Тексты выбранных файлов копятся в памяти: второй
+     * проход по исходникам после дедлайна его бы нарушил, а обработанное к дедлайну должно попасть в результат.
+     * В режиме "только общий файл" копии не пишутся, а невыбранные файлы не читаются.
+     * Упреждающее чтение по расположению на диске здесь не используется: порядок задает ценность.
+     */
+    private void convertWithDeadline(OutputSink sink, Path sourcePath) throws IOException {
+        List<FileRecord> included = new ArrayList<>();
+        List<FileRecord> work = new ArrayList<>();
+        for (FileRecord record : filesToProcess) {
+            if (isExcluded(record)) continue;
+            included.add(record);
+            if (!mergedOnly || filesSelectedForMerge.get(record.getIndex())) work.add(record);
+        }
+        List<FileRecord> order = deadline.prioritize(work, filesSelectedForMerge);
+        if (deadline.getDegradedLevel() != null) {
+            degradedConverter = new FileConverter(deadline.getDegradedLevel(), budget, log);
+        }
+
+        Map<Integer, String> mergedTexts = new HashMap<>();
+        Set<String> usedEntryNames = new HashSet<>();
+        int processedCount = 0;
+        for (FileRecord record : order) {
+            if (isCancelled()) return;
+            processedCount++;
+            updateProgress(processedCount, order.size());
+            ExportDeadline.Treatment treatment = deadline.plan(record);
+            if (treatment == ExportDeadline.Treatment.SKIPPED) {
+                log.debug(record.getRelativePath() + " -> skipped (deadline)");
+                continue;
+            }
+            updateMessage(String.format(loc("task.processing"), record.getFileName()));
+
+            long start = System.nanoTime();
+            FileConverter fileConverter = (treatment == ExportDeadline.Treatment.DEGRADED) ? degradedConverter : converter;
+            String text = fileConverter.convertToText(record, this::isCancelled);
+            if (!mergedOnly) writeCopy(sink, record, text, usedEntryNames);
+            if (generateMergedFile && filesSelectedForMerge.get(record.getIndex())) {
+                mergedTexts.put(record.getIndex(), (text != null) ? text : rawMergedText(record));
+            }
+            deadline.finished(record, treatment, System.nanoTime() - start);
+        }
+        if (isCancelled()) return;
+
+        if (generateStructureFile) {
+            updateMessage(loc("task.generating_structure"));
+            generateDeepStructureReport(sink, sourcePath);
+        }
+        writeChangesDiff(sink);
+
+        if (generateMergedFile && !filesToProcess.isEmpty()) {
+            updateMessage(loc("task.merging"));
+            writeMergedFile(sink, buildMergedBody(included, mergedTexts));
+        }
+    }
+
+    /**
+     * Режим "только общий файл": отдельные копии не создаются, а каждый файл пишется прямо
+     * в общий файл ({@link #streamMergedFile}).
+     */
+    private void convertMergedOnly(OutputSink sink, Path sourcePath) throws IOException {
+        // Отчет не зависит от результатов конвертации, а пока открыт общий файл, в архив писать больше нельзя
+        if (generateStructureFile) {
+            updateMessage(loc("task.generating_structure"));
+            generateDeepStructureReport(sink, sourcePath);
+        }
+        writeChangesDiff(sink);
+        streamMergedFile(sink);
+    }
+
+    /**
+     * Пишет общий файл за один проход по файлам, без накопления текстов в памяти. Файлы без сжатия
+     * (NONE, .md) не декодируются вовсе - байты переливаются из исходника через FileChannel.transferTo.
+     * Невыбранные файлы (заглушки) даже не читаются.
+     */
+    private void streamMergedFile(OutputSink sink) throws IOException {
+        // Для схлопывания дубликатов и общих блоков нужны предварительные проходы: сигнатуры
+        // и частоты всех файлов должны быть известны до записи первого из них.
+        // Тексты при этом не хранятся, каждый проход читает файлы заново.
+        NearDuplicateDetector detector = collapseNearDuplicates ? new NearDuplicateDetector() : null;
+        CommonBlockIndex commonBlocks = extractCommonBlocks ? new CommonBlockIndex() : null;
+        if (detector != null || commonBlocks != null) {
+            updateMessage(loc(detector != null ? "task.finding_duplicates" : "task.finding_common_blocks"));
+            try (LocalityPrefetcher prefetcher = prefetch(this::isMergedContent)) {
+                for (int i = 0; i < filesToProcess.size(); i++) {
+                    if (isCancelled()) return;
+                    FileRecord record = filesToProcess.get(i);
+                    if (!isMergedContent(record)) continue;
+                    if (prefetcher != null) prefetcher.awaitReady(i);
+                    String text = mergedTextOf(record);
+                    if (text == null) continue;
+                    if (detector != null) detector.add(record.getIndex(), text);
+                    if (commonBlocks != null && hasCommonBlocks(record)) commonBlocks.countWindows(text);
+                }
+            }
+        }
+        if (commonBlocks != null) {
+            updateMessage(loc("task.finding_common_blocks"));
+            Predicate<FileRecord> counted = record -> isMergedContent(record) && hasCommonBlocks(record);
+            try (LocalityPrefetcher prefetcher = prefetch(counted)) {
+                for (int i = 0; i < filesToProcess.size(); i++) {
+                    if (isCancelled()) return;
+                    FileRecord record = filesToProcess.get(i);
+                    if (!counted.test(record)) continue;
+                    if (prefetcher != null) prefetcher.awaitReady(i);
+                    String text = convertToText(record);
+                    if (text != null) commonBlocks.countRuns(text);
+                }
+            }
+            log.info("Common blocks extracted: " + commonBlocks.getBlockCount());
+        }
+        NearDuplicateDetector.Clusters clusters = (detector != null) ? detector.cluster() : null;
+        Map<Integer, String> representativeTexts = new HashMap<>();
+        Map<Integer, FileRecord> representativeRecords = new HashMap<>();
+
+        int totalFiles = filesToProcess.size();
+        int processedCount = 0;
+
+        try (WritableByteChannel merged = sink.openChannel(getMergedFileName())) {
+            writeText(merged, mergedFileHeader());
+            if (commonBlocks != null && !commonBlocks.isEmpty()) {
+                writeText(merged, commonBlocks.section());
+            }
+
+            // Заглушки не читаются, поэтому упреждающее чтение - только для выбранных файлов
+            try (LocalityPrefetcher prefetcher = prefetch(this::isMergedContent)) {
+                int lastDirectory = PathTable.NOT_FOUND;
+                for (FileRecord record : filesToProcess) {
+                    if (isCancelled()) return;
+                    if (prefetcher != null) prefetcher.awaitReady(processedCount);
+                    processedCount++;
+                    updateProgress(processedCount, totalFiles);
+                    if (isExcluded(record)) continue;
+                    updateMessage(String.format(loc("task.processing"), record.getFileName()));
+
+                    writeText(merged, mergedEntryHeader(record, record.getDirectoryId() != lastDirectory));
+                    lastDirectory = record.getDirectoryId();
+                    if (!filesSelectedForMerge.get(record.getIndex())) {
+                        writeText(merged, MERGED_STUB);
+                        log.debug(record.getRelativePath() + " -> stub");
+                        continue;
+                    }
+
+                    // Файл конвертируется один раз: тот же текст идет и в diff, и в вывод.
+                    // Файлы вне кластеров, которые копируются как есть, в текст не читаются
+                    int representative = (clusters != null) ? clusters.getRepresentative(record.getIndex()) : -1;
+                    boolean inCluster = representative >= 0 || (clusters != null && clusters.isRepresentative(record.getIndex()));
+                    String outputText = inCluster ? mergedTextOf(record) : convertToText(record);
+                    // Diff строится по тексту в том виде, в каком он выводится: после замены общих блоков
+                    if (outputText != null && commonBlocks != null && hasCommonBlocks(record)) {
+                        outputText = commonBlocks.replace(outputText);
+                    }
+                    if (representative >= 0 && outputText != null && representativeTexts.containsKey(representative)) {
+                        String entry = nearDuplicateEntry(record, representativeRecords.get(representative),
+                                clusters.getSimilarity(record.getIndex()), representativeTexts.get(representative), outputText);
+                        if (entry != null) {
+                            writeText(merged, entry);
+                            continue;
+                        }
+                    }
+                    if (outputText != null && clusters != null && clusters.isRepresentative(record.getIndex())) {
+                        representativeTexts.put(record.getIndex(), outputText);
+                        representativeRecords.put(record.getIndex(), record);
+                    }
+
+                    if (outputText != null) {
+                        writeText(merged, outputText);
+                        writeText(merged, "\n");
+                        log.debug(record.getRelativePath() + " -> merged (" + outputText.length() + " chars)");
+                    } else {
+                        try {
+                            transferFile(record.getPath(), merged);
+                        } catch (IOException e) {
+                            if (!isSourceFailure(e, record.getPath())) throw e;
+                            writeText(merged, readErrorLine(record, e));
+                        }
+                        writeText(merged, "\n");
+                        log.debug(record.getRelativePath() + " -> merged (raw, " + record.getSize() + " bytes)");
+                    }
+                }
+            }
+        }
+    }
+
+    /** Файл попадает в общий файл содержимым, а не заглушкой. */
+    private boolean isMergedContent(FileRecord record) {
+        return !isExcluded(record) && filesSelectedForMerge.get(record.getIndex());
+    }
+
+    /**
+     * Собирает тело общего файла в памяти из уже готовых текстов: для прогона к дедлайну и для сервера,
+     * который отдает результат из памяти. Обычные прогоны пишут общий файл потоково ({@link #streamMergedFile}).
+     * Если включено схлопывание, почти одинаковые файлы (NearDuplicateDetector) выводятся как diff
+     * относительно первого файла своего кластера. Если включено, при сжатии блоки, повторяющиеся во многих файлах, выносятся в раздел в начале (CommonBlockIndex).
+     * @param mergedTexts Тексты выбранных файлов по индексу; невыбранные идут заглушкой
+     */
+    private StringBuilder buildMergedBody(List<FileRecord> mergedRecords, Map<Integer, String> mergedTexts) {
+        NearDuplicateDetector.Clusters clusters = null;
+        if (collapseNearDuplicates) {
+            updateMessage(loc("task.finding_duplicates"));
+            NearDuplicateDetector detector = new NearDuplicateDetector();
+            for (FileRecord record : mergedRecords) {
+                String text = mergedTexts.get(record.getIndex());
+                if (text != null) detector.add(record.getIndex(), text);
+            }
+            clusters = detector.cluster();
+        }
+
+        CommonBlockIndex commonBlocks = null;
+        if (extractCommonBlocks) {
+            updateMessage(loc("task.finding_common_blocks"));
+            commonBlocks = new CommonBlockIndex();
+            for (FileRecord record : mergedRecords) {
+                String text = mergedTexts.get(record.getIndex());
+                if (text != null && hasCommonBlocks(record)) commonBlocks.countWindows(text);
+            }
+            for (FileRecord record : mergedRecords) {
+                String text = mergedTexts.get(record.getIndex());
+                if (text != null && hasCommonBlocks(record)) commonBlocks.countRuns(text);
+            }
+            log.info("Common blocks extracted: " + commonBlocks.getBlockCount());
+        }
+
+        Map<Integer, FileRecord> recordsByIndex = new HashMap<>();
+        // Тексты представителей кластеров в выведенном виде: diff дубликата строится по ним
+        Map<Integer, String> shownTexts = new HashMap<>();
+        StringBuilder body = new StringBuilder();
+        if (deadline != null) body.append(deadlineSection(mergedRecords));
+        if (commonBlocks != null && !commonBlocks.isEmpty()) {
+            body.append(commonBlocks.section());
+        }
+        int lastDirectory = PathTable.NOT_FOUND;
+        for (FileRecord record : mergedRecords) {
+            recordsByIndex.put(record.getIndex(), record);
+            body.append(mergedEntryHeader(record, record.getDirectoryId() != lastDirectory));
+            lastDirectory = record.getDirectoryId();
+            String text = mergedTexts.get(record.getIndex());
+            if (text == null) {
+                body.append(deadline != null && deadline.isSkipped(record) ? DEADLINE_STUB : MERGED_STUB);
+                continue;
+            }
+
+            if (commonBlocks != null && hasCommonBlocks(record)) text = commonBlocks.replace(text);
+            int representative = (clusters != null) ? clusters.getRepresentative(record.getIndex()) : -1;
+            if (representative >= 0 && shownTexts.containsKey(representative)) {
+                String entry = nearDuplicateEntry(record, recordsByIndex.get(representative),
+                        clusters.getSimilarity(record.getIndex()), shownTexts.get(representative), text);
+                if (entry != null) {
+                    body.append(entry);
+                    continue;
+                }
+            }
+            if (clusters != null && clusters.isRepresentative(record.getIndex())) shownTexts.put(record.getIndex(), text);
+            body.append(text).append("\n");
+        }
+        return body;
+    }
+
+    /**
+     * Перечень пропущенных и упрощенных к дедлайну файлов в начале общего файла (пусто, если все успели).
+     */
+    private String deadlineSection(List<FileRecord> mergedRecords) {
+        if (deadline.getSkippedCount() == 0 && deadline.getDegradedCount() == 0) return "";
+        StringBuilder skipped = new StringBuilder();
+        StringBuilder degraded = new StringBuilder();
+        for (FileRecord record : mergedRecords) {
+            if (deadline.isSkipped(record)) skipped.append("- ").append(record.getRelativePath()).append("\n");
+            else if (deadline.isDegraded(record)) degraded.append("- ").append(record.getRelativePath()).append("\n");
+        }
+        StringBuilder section = new StringBuilder("(Partial export, ").append(deadline.describe()).append(")\n");
+        if (skipped.length() > 0) section.append("Skipped:\n").append(skipped);
+        if (degraded.length() > 0) section.append("Compressed with a cheaper level:\n").append(degraded);
+        return section.append("\n").toString();
+    }
+
+    /**
+     * Общие блоки выносятся только из сжатого текста: Markdown и файлы не в UTF-8
+     * попадают в общий файл дословно.
+     */
+    private boolean hasCommonBlocks(FileRecord record) {
+        return extractCommonBlocks && record.getKind() != FileKind.MARKDOWN;
+    }
+
+    /**
+     * Текст файла в том виде, в каком он попадет в общий файл (null - не читается как UTF-8).
+     */
+    private String mergedTextOf(FileRecord record) {
+        String text = convertToText(record);
+        if (text != null) return text;
+        if (budget.exceedsMemory(record.getSize())) return null;
+        try {
+            PooledTextIO io = PooledTextIO.forCurrentThread();
+            return io.read(record.getPath()) ? io.text() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@link #readRawText} для общего файла: если исходник не читается (удален или заблокирован
+     * во время прогона), вместо текста идет строка с ошибкой, а прогон продолжается.
+     */
+    private String rawMergedText(FileRecord record) {
+        try {
+            return readRawText(record.getPath());
+        } catch (IOException e) {
+            return readErrorLine(record, e);
+        }
+    }
+
+    private String readErrorLine(FileRecord record, IOException e) {
+        log.error(record.getRelativePath() + ": cannot read (" + e.getMessage() + ")");
+        return "!!! Error: " + e.getMessage();
+    }
+
+    /** Ошибка открытия самого исходника (а не записи в приемник): она не должна обрывать прогон. */
+    private static boolean isSourceFailure(IOException e, Path source) {
+        return e instanceof FileSystemException failure && source.toString().equals(failure.getFile());
+    }
+
+    /**
+     * Текст файла, скопированного как есть, для общего файла: некорректные последовательности
+     * UTF-8 заменяются, как и раньше при new String(bytes, UTF_8).
+     */
+    private static String readRawText(Path file) throws IOException {
+        PooledTextIO io = PooledTextIO.forCurrentThread();
+        return io.read(file) ? io.text() : new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Запись почти-дубликата: diff относительно представителя кластера.
+     * @return текст записи или null, если diff не короче самого файла (тогда файл выводится целиком)
+     */
+    private String nearDuplicateEntry(FileRecord record, FileRecord representative, double similarity,
+                                      String representativeText, String text) {
+        String diff = LineDiff.diff(representativeText, text, MAX_DIFF_EDITS);
+        if (diff == null || diff.length() > text.length() * MAX_DIFF_RATIO) return null;
+
+        log.debug(record.getRelativePath() + " -> near-duplicate of " + representative.getRelativePath());
+        if (diff.isEmpty()) {
+            return "(Identical to " + representative.getRelativePath() + ")\n\n";
+        }
+        return "(Near-duplicate of " + representative.getRelativePath() + ", ~"
+                + Math.round(similarity * 100) + "% similar. Diff against it:)\n" + diff + "\n";
+    }
+
+    /**
+     * Сгенерированные/минифицированные файлы при политике EXCLUDE не копируются и не попадают
+     * в общий файл, но остаются в отчете о структуре с пометкой.
+     */
+    private boolean isExcluded(FileRecord record) {
+        if (junkPolicy == JunkPolicy.EXCLUDE && record.isJunk()) {
+            log.debug(record.getRelativePath() + " -> excluded (" + record.getJunkReason().getTag() + ")");
+            return true;
+        }
+        return false;
+    }
+
+    private String convertToText(FileRecord record) {
+        return converter.convertToText(record, this::isCancelled);
+    }
+
+    private static void transferFile(Path source, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, target);
+                if (transferred <= 0) break; // файл укоротился во время чтения
+                position += transferred;
+            }
+        }
+    }
+
+    private static void writeText(WritableByteChannel channel, String text) throws IOException {
+        PooledTextIO.forCurrentThread().write(channel, text);
+    }
+
+    /**
+     * Вывод плоский, поэтому одноименные файлы из разных папок получают суффикс (~2, ~3...)
+     * вместо молчаливой перезаписи. Сравнение без учета регистра, как в файловой системе Windows.
+     */
+    private String uniqueEntryName(String name, Set<String> usedNames) {
+        if (usedNames.add(name.toLowerCase(Locale.ROOT))) return name;
+
+        int dot = name.indexOf('.', 1);
+        String base = (dot > 0) ? name.substring(0, dot) : name;
+        String suffix = (dot > 0) ? name.substring(dot) : "";
+        for (int n = 2; ; n++) {
+            String candidate = base + "~" + n + suffix;
+            if (usedNames.add(candidate.toLowerCase(Locale.ROOT))) return candidate;
+        }
+    }
+
+    /**
+     * Единый diff относительно git-ссылки отдельным файлом (если включен).
+     */
+    private void writeChangesDiff(OutputSink sink) throws IOException {
+        if (!includeDiff || isCancelled()) return;
+        updateMessage(loc("task.writing_diff"));
+        String diff = changeSet.readDiff();
+        sink.write(ProjectConstants.CHANGES_DIFF_FILE, diff);
+        log.debug(ProjectConstants.CHANGES_DIFF_FILE + " (" + diff.length() + " chars)");
+    }
+
+    private void generateDeepStructureReport(OutputSink sink, Path rootPath) throws IOException {
+        StringBuilder report = new StringBuilder();
+        report.append(loc("report.structure_header")).append("\n");
+        report.append(String.format(loc("report.generated_date"),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))).append("\n\n");
+        if (changeSet != null) {
+            report.append("Changes since git ref `").append(changeSet.getRef()).append("`: ")
+                    .append(filesToProcess.size()).append(" changed file(s) included, marked [Δ]\n\n");
+        }
+        if (deadline != null) {
+            report.append("Export ").append(deadline.describe()).append(", marked [skipped] / [degraded]\n\n");
+        }
+
+        if (compressionLevel == CompressionLevel.NONE) {
+            report.append("### Legend / Легенда:\n");
+            report.append("- `[ M ]` Merged: Full content included.\n");
+            report.append("- `[ S ]` Stub: File included as a stub.\n");
+            report.append("- `[ J ]` Junk: Generated/minified file, stubbed or excluded (reason in brackets).\n");
+            if (deadline != null) {
+                report.append("- `[skipped]` Not read: the export deadline was reached first.\n");
+            }
+            if (changeSet != null) {
+                report.append("- `[ Δ ]` Changed since `").append(changeSet.getRef()).append("` (added/modified/renamed/new).\n");
+            }
+            report.append("\n");
+            report.append("```text\n");
+        } else {
+            if (compressionLevel == CompressionLevel.MAXIMUM) {
+                report.append("(Flat Structure Mode)\n");
+            } else {
+                report.append("(Compact Tree Mode)\n");
+            }
+        }
+
+        if (compressionLevel != CompressionLevel.MAXIMUM) {
+            report.append(compressionLevel == CompressionLevel.SMART ? projectName() + "/" : "[ROOT] " + projectName()).append("\n");
+        }
+
+        // Файлы из сканирования ищутся по таблице путей: (папка, имя) -> индекс записи
+        RecordLookup records = new RecordLookup(filesToProcess);
+
+        if (compressionLevel == CompressionLevel.MAXIMUM) {
+            generateFlatStructure(rootPath, report, records);
+        } else {
+            boolean simpleTree = (compressionLevel == CompressionLevel.SMART);
+            walkDirectoryTree(rootPath, PathTable.ROOT, "", report, records, simpleTree);
+        }
+
+        if (compressionLevel == CompressionLevel.NONE) report.append("```\n");
+
+        if (changeSet != null) {
+            List<String> deleted = changeSet.getDeletedPaths();
+            if (!deleted.isEmpty()) {
+                report.append("\nDeleted since `").append(changeSet.getRef()).append("`:\n");
+                for (String path : deleted) report.append("- ").append(path).append("\n");
+            }
+        }
+        sink.write(ProjectConstants.REPORT_STRUCTURE_FILE, report.toString());
+    }
+
+    private void generateFlatStructure(Path rootDir, StringBuilder sb, RecordLookup records) {
+        try {
+            Files.walkFileTree(rootDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(rootDir)) return FileVisitResult.CONTINUE;
+                    return shouldIncludeInStructure(dir.getFileName().toString(), true)
+                            ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || !shouldIncludeInStructure(file.getFileName().toString(), false)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String relPath = rootDir.relativize(file).toString().replace('\\', '/');
+                    FileRecord record = records.find(relPath);
+                    if (record != null) {
+                        sb.append(relPath).append(junkMarker(record)).append(deadlineMarker(record)).append(changeMarker(record)).append("\n");
+                    } else if (!compactMode) {
+                        sb.append(relPath).append(" [ignore]\n");
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            sb.append("Error generating flat structure");
+        }
+    }
+
+    /**
+     * @param dirId id папки в таблице путей сканирования или PathTable.NOT_FOUND, если в ней нет найденных файлов
+     */
+    private void walkDirectoryTree(Path currentDir, int dirId, String prefix, StringBuilder sb, RecordLookup records, boolean simpleTree) {
+        List<StructureNode> nodesToShow = new ArrayList<>();
+        List<StructureNode> filesToCollapse = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(currentDir)) {
+            for (Path child : stream) {
+                StructureNode node = toStructureNode(child, dirId, records);
+                if (node == null || !shouldIncludeInStructure(node.name, node.isDirectory)) continue;
+
+                if (node.isDirectory || node.record != null) nodesToShow.add(node);
+                else if (!compactMode) filesToCollapse.add(node);
+            }
+        } catch (IOException e) { return; }
+
+        if (!compactMode && !filesToCollapse.isEmpty() && filesToCollapse.size() <= COLLAPSE_THRESHOLD) {
+            nodesToShow.addAll(filesToCollapse);
+            filesToCollapse.clear();
+        }
+
+        nodesToShow.sort((n1, n2) -> {
+            if (n1.isDirectory && !n2.isDirectory) return -1;
+            if (!n1.isDirectory && n2.isDirectory) return 1;
+            return n1.path.getFileName().compareTo(n2.path.getFileName());
+        });
+
+        int totalItems = nodesToShow.size() + (filesToCollapse.isEmpty() ? 0 : 1);
+        int currentIndex = 0;
+
+        for (StructureNode node : nodesToShow) {
+            boolean isLast = (currentIndex == totalItems - 1);
+            printNode(node, prefix, isLast, sb, records, simpleTree);
+            currentIndex++;
+        }
+
+        if (!filesToCollapse.isEmpty()) {
+            Map<String, Long> extStats = filesToCollapse.stream().map(n -> getExtension(n.name))
+                    .collect(Collectors.groupingBy(s -> s, Collectors.counting()));
+            String statsStr = extStats.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(3).map(e -> e.getKey() + "(" + e.getValue() + ")").collect(Collectors.joining(", "));
+
+            if (simpleTree) {
+                sb.append(prefix).append("  ... (").append(filesToCollapse.size()).append(": ").append(statsStr).append(")\n");
+            } else {
+                String connector = "└── ";
+                sb.append(prefix).append(connector).append("[ ... ").append(filesToCollapse.size()).append(" ignored: ").append(statsStr).append(" ... ]\n");
+            }
+        }
+    }
+
+    private void printNode(StructureNode node, String prefix, boolean isLast, StringBuilder sb, RecordLookup records, boolean simpleTree) {
+        if (simpleTree) {
+            String currentIndent = prefix + "  ";
+            if (node.isDirectory) {
+                sb.append(currentIndent).append(node.name).append("/\n");
+                walkDirectoryTree(node.path, node.dirId, currentIndent, sb, records, true);
+            } else {
+                sb.append(currentIndent).append(node.name).append(junkMarker(node.record)).append(deadlineMarker(node.record)).append(changeMarker(node.record)).append("\n");
+            }
+        } else {
+            String connector = isLast ? "└── " : "├── ";
+            String childPrefix = prefix + (isLast ? "    " : "│   ");
+
+            if (node.isDirectory) {
+                sb.append(prefix).append(connector).append("[DIR] ").append(node.name).append("\n");
+                walkDirectoryTree(node.path, node.dirId, childPrefix, sb, records, false);
+            } else {
+                sb.append(prefix).append(connector)
+                        .append("[FILE] ").append(node.name)
+                        .append(" (").append(formatSize(node.size)).append(") ")
+                        .append(getFileStatus(node.record)).append("\n");
+            }
+        }
+    }
+
+    /**
+     * Для файлов из сканирования атрибуты уже известны, ФС запрашиваем только для остальных.
+     */
+    private StructureNode toStructureNode(Path child, int dirId, RecordLookup records) {
+        String name = child.getFileName().toString();
+        FileRecord record = records.find(dirId, name);
+        if (record != null) {
+            return new StructureNode(child, name, false, record.getSize(), record, PathTable.NOT_FOUND);
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class);
+            int childDirId = attrs.isDirectory() ? records.findDirectory(dirId, name) : PathTable.NOT_FOUND;
+            return new StructureNode(child, name, attrs.isDirectory(), attrs.size(), null, childDirId);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class StructureNode {
+        final Path path;
+        final String name;
+        final boolean isDirectory;
+        final long size;
+        final FileRecord record;
+        final int dirId;
+
+        StructureNode(Path path, String name, boolean isDirectory, long size, FileRecord record, int dirId) {
+            this.path = path;
+            this.name = name;
+            this.isDirectory = isDirectory;
+            this.size = size;
+            this.record = record;
+            this.dirId = dirId;
+        }
+    }
+
+    /**
+     * Поиск обрабатываемых записей по таблице путей сканирования: вместо карты Path -> FileRecord
+     * достаточно массива записей по индексу.
+     */
+    private static class RecordLookup {
+        private final PathTable table;
+        private final FileRecord[] byIndex;
+
+        RecordLookup(List<FileRecord> records) {
+            this.table = records.isEmpty() ? null : records.get(0).getTable();
+            this.byIndex = new FileRecord[(table != null) ? table.getFileCount() : 0];
+            for (FileRecord record : records) byIndex[record.getIndex()] = record;
+        }
+
+        FileRecord find(int dirId, String name) {
+            return (table != null) ? byIndex(table.findFile(dirId, name)) : null;
+        }
+
+        FileRecord find(String relativePath) {
+            return (table != null) ? byIndex(table.find(relativePath)) : null;
+        }
+
+        int findDirectory(int dirId, String name) {
+            return (table != null) ? table.findDirectory(dirId, name) : PathTable.NOT_FOUND;
+        }
+
+        private FileRecord byIndex(int index) {
+            return (index != PathTable.NOT_FOUND) ? byIndex[index] : null;
+        }
+    }
+
+    private String projectName() {
+        return SourceRoot.projectName(Paths.get(sourceDirPath));
+    }
+
+    private String getMergedFileName() {
+        return "_" + projectName() + ProjectConstants.MERGED_FILE_SUFFIX;
+    }
+
+    private String mergedFileHeader() {
+        String projectName = projectName();
+        if (compressionLevel != CompressionLevel.NONE) {
+            return "# Project: " + projectName + "\n\n";
+        }
+        return String.format(loc("report.merged_header"), projectName) + "\n"
+                + String.format(loc("report.generated_date"),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))) + "\n";
+    }
+
+    /**
+     * Заголовок записи общего файла. Файлы идут группами по папкам ({@link #groupByDirectory}):
+     * путь папки выводится один раз перед первым ее файлом, а у файлов - только имя.
+     * Так записи однозначны, а заголовки короче, чем полный путь у каждого файла.
+     * @param newDirectory файл первый в своей папке
+     */
+    private String mergedEntryHeader(FileRecord record, boolean newDirectory) {
+        String fileName = record.getFileName();
+        String directory = newDirectory ? record.getTable().directoryPath(record.getDirectoryId()) : null;
+        if (directory != null && directory.isEmpty()) directory = "./";
+        if (compressionLevel != CompressionLevel.NONE) {
+            return (directory != null ? "\n=== " + directory : "") + "\n>>> " + fileName + "\n";
+        }
+        return (directory != null ? "\n=== " + String.format(loc("report.directory_header"), directory) + " ===" : "")
+                + "\n--- " + String.format(loc("report.file_header"), fileName) + " ---\n";
+    }
+
+    /**
+     * Порядок прогона и общего файла: файлы сгруппированы по папкам, папки упорядочены по пути,
+     * внутри папки сохраняется порядок сканирования. Сканер сортирует по полному пути, и файлы
+     * папки перемежаются файлами ее подпапок ("a/b.txt", "a/c/d.txt", "a/e.txt").
+     */
+    static List<FileRecord> groupByDirectory(List<FileRecord> records) {
+        if (records.isEmpty()) return records;
+        PathTable table = records.get(0).getTable();
+        List<FileRecord> grouped = new ArrayList<>(records);
+        // Сортировка устойчивая, путь папки в таблице кэшируется
+        grouped.sort(Comparator.comparing(record -> table.directoryPath(record.getDirectoryId())));
+        return grouped;
+    }
+
+    private void writeMergedFile(OutputSink sink, StringBuilder mergedBody) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(sink.openStream(getMergedFileName()), StandardCharsets.UTF_8))) {
+            writer.write(mergedFileHeader());
+            writer.append(mergedBody);
+        }
+    }
+
+    private String getExtension(String name) {
+        int lastDot = name.lastIndexOf('.');
+        return (lastDot > 0) ? name.substring(lastDot) : "no-ext";
+    }
+
+    private boolean shouldIncludeInStructure(String name, boolean isDirectory) {
+        if (name.startsWith(ProjectConstants.OUTPUT_DIR_NAME)) return false;
+        if (name.endsWith(".import") || name.endsWith(".tmp") || name.endsWith(".uid")) return false;
+        if (name.startsWith(".") && !name.equals(".gitignore")) return false;
+
+        if (isDirectory) {
+            if (ignoredFolders.contains(name.toLowerCase())) return false;
+        }
+        return true;
+    }
+
+    private String formatSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        return (bytes / 1024) + " KB";
+    }
+
+    /** Пометка сгенерированного файла для компактных режимов отчета, где статусов нет. */
+    private String junkMarker(FileRecord record) {
+        if (record == null || !record.isJunk() || junkPolicy == JunkPolicy.INCLUDE) return "";
+        return " [junk: " + record.getJunkReason().getTag() + "]";
+    }
+
+    /** Пометка файла, пропущенного или упрощенного из-за дедлайна прогона. */
+    private String deadlineMarker(FileRecord record) {
+        if (record == null || deadline == null) return "";
+        if (deadline.isSkipped(record)) return " [skipped]";
+        if (deadline.isDegraded(record)) return " [degraded: " + deadline.getDegradedLevel() + "]";
+        return "";
+    }
+
+    /**
+     * Пометка измененного файла в режиме git: " [Δ modified]" и т.п.
+     */
+    private String changeMarker(FileRecord record) {
+        String change = changeDescription(record);
+        return (change != null) ? " [Δ " + change + "]" : "";
+    }
+
+    private String changeDescription(FileRecord record) {
+        if (record == null || changeSet == null) return null;
+        switch (changeSet.getStatus(record.getRelativePath())) {
+            case 0: return null;
+            case GitChangeSet.ADDED: return "added";
+            case GitChangeSet.MODIFIED: return "modified";
+            case GitChangeSet.RENAMED: return "renamed";
+            case GitChangeSet.UNTRACKED: return "new";
+            default: return "changed";
+        }
+    }
+
+    private String getFileStatus(FileRecord record) {
+        String status = getMergeStatus(record) + deadlineMarker(record);
+        String change = changeDescription(record);
+        return (change != null) ? status + " [ Δ ] (" + change + ")" : status;
+    }
+
+    private String getMergeStatus(FileRecord record) {
+        if (record != null && record.isJunk() && junkPolicy != JunkPolicy.INCLUDE) {
+            return "[ J ] (" + record.getJunkReason().getTag() + ")";
+        }
+        if (record != null && filesSelectedForMerge.get(record.getIndex())) {
+            return "[ M ]";
+        } else if (record != null) {
+            return "[ S ]";
+        } else {
+            return "[ - ]";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,697 @@
+package TartarusCore.TxtConverter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+
+/**
+ * Локальный HTTP-сервис конвертации на com.sun.net.httpserver из JDK с прогретыми кэшами.
+ *
+ * Снимки сканирования, сконвертированные файлы и готовые общий файл / отчет о структуре
+ * держатся в памяти по каждому источнику: повторный запрос отдается без обхода диска и сжатия.
+ * Одинаковые запросы разных клиентов, пришедшие одновременно, ждут одно вычисление ({@link SharedCache}).
+ * Ответы несут ETag по хэшу содержимого, If-None-Match дает 304 без тела.
+ *
+ * Запросы GET (или HEAD), параметры в строке запроса:
+ * <ul>
+ *   <li>root - папка или архив, ext - расширения через запятую (оба обязательны);</li>
+ *   <li>ignore - игнорируемые папки через запятую, level - NONE / SMART / MAXIMUM (SMART),
+ *       junk - политика для мусорных файлов (STUB), refresh=1 - пересканировать немедленно.</li>
+ * </ul>
+ * /scan - список файлов (JSON), /convert - сводка конвертации всех файлов (JSON),
+ * /merged - общий файл, /structure - отчет о структуре, /file?path=... - один сконвертированный файл.
+ *
+ * Снимок сканирования считается свежим snapshotTtl миллисекунд, затем источник сканируется заново;
+ * кэши файлов и результатов привязаны к размеру и времени изменения, поэтому после
+ * пересканирования без изменений ответы по-прежнему отдаются из памяти.
+ * Сервер читает любые пути, доступные процессу, поэтому по умолчанию слушает только 127.0.0.1
+ * и отвечает только на запросы с локальным Host.
+ */
+public final class ConversionServer {
+
+    public static final int DEFAULT_PORT = 8765;
+    public static final long DEFAULT_SNAPSHOT_TTL_MS = 5000;
+    public static final long DEFAULT_CACHE_MB = 256;
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    // Конвертация файлов для /convert и общего файла: отдельно от потоков HTTP,
+    // которые ждут ее результатов, иначе при загрузке пул мог бы заблокировать сам себя
+    private final ExecutorService conversions;
+    private final long snapshotTtlNanos;
+    private final ConversionBudget budget;
+    private final ResourceBundle bundle = ResourceBundle.getBundle(ProjectConstants.MESSAGES_BUNDLE, Locale.ENGLISH);
+    private final LogSink log;
+    // Сканирования и прогоны сервера пишут в его журнал
+    private final ProgressListener progress;
+
+    // Снимков немного (по одному на источник и набор фильтров), их не вытесняем
+    private final SharedCache<ScanKey, Snapshot> snapshots = new SharedCache<>(Long.MAX_VALUE, snapshot -> 0);
+    private final SharedCache<FileKey, ConvertedFile> files;
+    private final SharedCache<ExportKey, Export> exports;
+
+    public ConversionServer(InetSocketAddress address, long snapshotTtlMs, long cacheMb, ConversionBudget budget,
+                            LogSink log) throws IOException {
+        this.snapshotTtlNanos = snapshotTtlMs * 1_000_000L;
+        this.budget = budget;
+        this.log = log;
+        this.progress = new ProgressListener() {
+            @Override
+            public void append(LogLevel level, String message) {
+                log.append(level, message);
+            }
+        };
+        long cacheBytes = cacheMb * 1024 * 1024;
+        this.files = new SharedCache<>(cacheBytes / 2, ConversionServer::weight);
+        this.exports = new SharedCache<>(cacheBytes / 2, export -> export.merged.length + export.structure.length);
+
+        http = HttpServer.create(address, 0);
+        executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "http-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        http.setExecutor(executor);
+        conversions = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "conversion-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        http.createContext("/scan", exchange -> handle(exchange, this::scan));
+        http.createContext("/convert", exchange -> handle(exchange, this::convert));
+        http.createContext("/merged", exchange -> handle(exchange, this::merged));
+        http.createContext("/structure", exchange -> handle(exchange, this::structure));
+        http.createContext("/file", exchange -> handle(exchange, this::file));
+    }
+
+    public void start() {
+        http.start();
+        log.info("Conversion server listening on http://" + describeAddress());
+    }
+
+    public void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+        conversions.shutdownNow();
+        for (Snapshot snapshot : snapshots.clear()) release(snapshot);
+    }
+
+    public String describeAddress() {
+        InetSocketAddress address = http.getAddress();
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * Запуск из командной строки: [--port N] [--bind HOST] [--snapshot-ttl-ms N] [--cache-mb N]
+     * [--log-level DEBUG|INFO|WARN|ERROR]. Журнал пишется в stderr.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String bind = "127.0.0.1";
+        long ttl = DEFAULT_SNAPSHOT_TTL_MS;
+        long cacheMb = DEFAULT_CACHE_MB;
+        LogLevel logLevel = LogLevel.INFO;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--bind" -> bind = args[i + 1];
+                case "--snapshot-ttl-ms" -> ttl = Long.parseLong(args[i + 1]);
+                case "--cache-mb" -> cacheMb = Long.parseLong(args[i + 1]);
+                case "--log-level" -> logLevel = LogLevel.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        ConversionServer server = new ConversionServer(new InetSocketAddress(bind, port), ttl, cacheMb, ConversionBudget.defaults(),
+                LogSink.stderr(logLevel));
+        server.start();
+        System.out.println("TxtConverter server: http://" + server.describeAddress());
+    }
+
+    // --- Эндпоинты ---
+
+    private Response scan(Map<String, String> params) throws IOException {
+        ScanKey key = scanKey(params);
+        Snapshot snapshot = snapshot(key, params);
+        StringBuilder json = new StringBuilder(snapshot.records.size() * 64);
+        json.append("{\"root\":").append(quote(key.root()))
+                .append(",\"fingerprint\":\"").append(Long.toHexString(snapshot.fingerprint)).append("\",\"files\":[");
+        for (FileRecord record : snapshot.records) {
+            if (json.charAt(json.length() - 1) != '[') json.append(',');
+            json.append("{\"path\":").append(quote(record.getRelativePath()))
+                    .append(",\"size\":").append(record.getSize())
+                    .append(",\"kind\":\"").append(record.getKind()).append('"')
+                    .append(",\"junk\":").append(record.isJunk() ? quote(record.getJunkReason().getTag()) : "null")
+                    .append('}');
+        }
+        json.append("]}");
+        return Response.json(json.toString(), etag("s", snapshot.fingerprint));
+    }
+
+    private Response convert(Map<String, String> params) throws IOException {
+        ScanKey key = scanKey(params);
+        CompressionLevel level = level(params);
+        Snapshot snapshot;
+        List<ConvertedFile> converted;
+        try (Lease lease = lease(key, params)) {
+            snapshot = lease.snapshot();
+            converted = convertAll(key, snapshot.records, level);
+        }
+
+        StringBuilder json = new StringBuilder(converted.size() * 96);
+        json.append("{\"root\":").append(quote(key.root())).append(",\"level\":\"").append(level).append("\",\"files\":[");
+        for (ConvertedFile file : converted) {
+            if (json.charAt(json.length() - 1) != '[') json.append(',');
+            json.append("{\"path\":").append(quote(file.getRelativePath()))
+                    .append(",\"kind\":\"").append(file.getKind()).append('"')
+                    .append(",\"size\":").append(file.getOriginalSize())
+                    .append(",\"level\":").append(file.isConverted() ? "\"" + file.getLevel() + "\"" : "null")
+                    .append(",\"chars\":").append(file.getText() != null ? String.valueOf(file.getText().length()) : "null")
+                    .append(",\"etag\":").append(quote(fileEtag(file, level)))
+                    .append('}');
+        }
+        json.append("]}");
+        return Response.json(json.toString(), etag("c", snapshot.fingerprint * 31 + level.ordinal()));
+    }
+
+    private Response merged(Map<String, String> params) throws IOException {
+        Export export = export(params);
+        return new Response(export.merged, "text/plain; charset=utf-8", etag("m", export.key.hash()));
+    }
+
+    private Response structure(Map<String, String> params) throws IOException {
+        Export export = export(params);
+        return new Response(export.structure, "text/markdown; charset=utf-8", etag("r", export.key.hash()));
+    }
+
+    private Response file(Map<String, String> params) throws IOException {
+        ScanKey key = scanKey(params);
+        CompressionLevel level = level(params);
+        String path = required(params, "path").replace('\\', '/');
+        ConvertedFile file;
+        try (Lease lease = lease(key, params)) {
+            Snapshot snapshot = lease.snapshot();
+            int index = snapshot.table.find(path);
+            if (index == PathTable.NOT_FOUND) throw new HttpError(404, "Not in scan result: " + path);
+            file = convertFile(key, snapshot.records.get(index), level);
+        }
+        String etag = fileEtag(file, level);
+        if (file.getText() != null) {
+            return new Response(file.getText().getBytes(StandardCharsets.UTF_8), "text/plain; charset=utf-8", etag);
+        }
+        if (file.getBytes() != null) {
+            return new Response(file.getBytes(), "application/octet-stream", etag);
+        }
+        throw new HttpError(413, "File exceeds the per-file memory budget: " + path);
+    }
+
+    // --- Снимки и кэши ---
+
+    private Snapshot snapshot(ScanKey key, Map<String, String> params) throws IOException {
+        long requestStart = System.nanoTime();
+        Snapshot snapshot = snapshots.get(key, () -> scanSource(key));
+        boolean fresh = snapshot.createdNanos >= requestStart;
+        boolean expired = System.nanoTime() - snapshot.createdNanos > snapshotTtlNanos;
+        if (!fresh && (expired || "1".equals(params.get("refresh")))) {
+            // Пересканирует только первый из одновременно пришедших: остальные получат его снимок.
+            // Архив прежнего снимка закроется, когда его отпустят запросы, которые еще читают его записи
+            if (snapshots.invalidate(key, snapshot)) release(snapshot);
+            snapshot = snapshots.get(key, () -> scanSource(key));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Снимок вместе со ссылкой на его источник: архив не закроется посреди запроса,
+     * даже если за это время снимок заменят новым.
+     */
+    private Lease lease(ScanKey key, Map<String, String> params) throws IOException {
+        while (true) {
+            Snapshot snapshot = snapshot(key, params);
+            if (snapshot.source == null) return new Lease(snapshot, null);
+            try {
+                return new Lease(snapshot, snapshot.source.retain());
+            } catch (IOException closed) {
+                // Снимок только что заменили и его архив закрыли: берем новый
+            }
+        }
+    }
+
+    private void release(Snapshot snapshot) {
+        if (snapshot.source == null) return;
+        try {
+            snapshot.source.close();
+        } catch (IOException e) {
+            log.warn("Cannot close " + snapshot.source.getLocation() + ": " + e.getMessage());
+        }
+    }
+
+    private Snapshot scanSource(ScanKey key) throws IOException {
+        FileScanner scanner = new FileScanner(key.root(), key.extensions(), key.ignored(), null, bundle);
+        List<FileRecord> records = scanner.scan(progress, () -> false);
+        long fingerprint = 0xcbf29ce484222325L;
+        for (FileRecord record : records) {
+            fingerprint = (fingerprint ^ record.getRelativePath().hashCode()) * 0x100000001b3L;
+            fingerprint = (fingerprint ^ record.getSize()) * 0x100000001b3L;
+            fingerprint = (fingerprint ^ record.getLastModified()) * 0x100000001b3L;
+        }
+        PathTable table = records.isEmpty() ? null : records.get(0).getTable();
+        log.debug("Server scan " + key.root() + ": " + records.size() + " file(s)");
+        return new Snapshot(records, table, fingerprint, System.nanoTime(), scanner.takeSource());
+    }
+
+    /**
+     * Конвертирует файлы параллельно на пуле сервера; каждый попадает в общий кэш,
+     * откуда его возьмут /file, общий файл и другие клиенты.
+     * @return результаты в порядке records
+     */
+    private List<ConvertedFile> convertAll(ScanKey key, List<FileRecord> records, CompressionLevel level) throws IOException {
+        List<CompletableFuture<ConvertedFile>> futures = new ArrayList<>(records.size());
+        for (FileRecord record : records) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return convertFile(key, record, level);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, conversions));
+        }
+        List<ConvertedFile> converted = new ArrayList<>(records.size());
+        try {
+            for (CompletableFuture<ConvertedFile> future : futures) converted.add(future.join());
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+        return converted;
+    }
+
+    private ConvertedFile convertFile(ScanKey key, FileRecord record, CompressionLevel level) throws IOException {
+        FileKey fileKey = new FileKey(key.root(), record.getRelativePath(), record.getSize(), record.getLastModified(), level);
+        // Конвертер на файл: откаты и кэш FileConverter здесь не нужны, их роль играет общий кэш сервера
+        return files.get(fileKey, () -> new FileConverter(level, budget, log).convert(record, true, () -> false));
+    }
+
+    private Export export(Map<String, String> params) throws IOException {
+        ScanKey scanKey = scanKey(params);
+        CompressionLevel level = level(params);
+        JunkPolicy junk = junkPolicy(params);
+        try (Lease lease = lease(scanKey, params)) {
+            return export(scanKey, lease.snapshot(), level, junk);
+        }
+    }
+
+    private Export export(ScanKey scanKey, Snapshot snapshot, CompressionLevel level, JunkPolicy junk) throws IOException {
+        ExportKey key = new ExportKey(scanKey, snapshot.fingerprint, level, junk);
+        return exports.get(key, () -> {
+            // Общий файл собирается из файлов кэша (их же отдают /convert и /file): исходники
+            // читаются и сжимаются только для файлов, которых там еще нет
+            // Мусорные файлы содержимым идут только при INCLUDE: при STUB они снимаются с выбора
+            // (в общем файле - заглушка, как в приложении), при EXCLUDE не попадают в него вовсе
+            List<FileRecord> included = snapshot.records;
+            if (junk != JunkPolicy.INCLUDE) included = included.stream().filter(record -> !record.isJunk()).toList();
+            Map<Integer, ConvertedFile> converted = new HashMap<>();
+            for (ConvertedFile file : convertAll(scanKey, included, level)) {
+                converted.put(file.getRecord().getIndex(), file);
+            }
+
+            BitSet selected = new BitSet(snapshot.records.size());
+            for (FileRecord record : included) selected.set(record.getIndex());
+            ConversionJob job = new ConversionJob(scanKey.root(), snapshot.records, selected, scanKey.ignored(),
+                    true, false, level, true, false, null, junk, false, false, null, false, budget, false, 0, bundle);
+            MemoryOutputSink sink = new MemoryOutputSink();
+            job.assemble(sink, converted, progress, () -> false);
+            byte[] merged = sink.find(ProjectConstants.MERGED_FILE_SUFFIX);
+            byte[] structure = sink.find(ProjectConstants.REPORT_STRUCTURE_FILE);
+            return new Export(key, merged != null ? merged : new byte[0], structure != null ? structure : new byte[0]);
+        });
+    }
+
+    private static long weight(ConvertedFile file) {
+        long weight = 128;
+        if (file.getText() != null) weight += 2L * file.getText().length();
+        if (file.getBytes() != null) weight += file.getBytes().length;
+        return weight;
+    }
+
+    // --- Параметры ---
+
+    private static ScanKey scanKey(Map<String, String> params) {
+        return new ScanKey(required(params, "root"), list(required(params, "ext")), list(params.get("ignore")));
+    }
+
+    private static List<String> list(String raw) {
+        if (raw == null || raw.isBlank()) return List.of();
+        return Arrays.stream(raw.split(",")).map(String::trim).map(String::toLowerCase).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) throw new HttpError(400, "Missing parameter: " + name);
+        return value;
+    }
+
+    private static CompressionLevel level(Map<String, String> params) {
+        return enumParam(params, "level", CompressionLevel.class, CompressionLevel.SMART);
+    }
+
+    private static JunkPolicy junkPolicy(Map<String, String> params) {
+        return enumParam(params, "junk", JunkPolicy.class, JunkPolicy.STUB);
+    }
+
+    private static <E extends Enum<E>> E enumParam(Map<String, String> params, String name, Class<E> type, E def) {
+        String value = params.get(name);
+        if (value == null) return def;
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = (eq >= 0) ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    // --- HTTP ---
+
+    private interface Endpoint {
+        Response handle(Map<String, String> params) throws IOException;
+    }
+
+    private static final class Response {
+        final byte[] body;
+        final String contentType;
+        final String etag;
+
+        Response(byte[] body, String contentType, String etag) {
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+        }
+
+        static Response json(String json, String etag) {
+            return new Response(json.getBytes(StandardCharsets.UTF_8), "application/json; charset=utf-8", etag);
+        }
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Разрешены только адреса loopback и адрес, на котором слушает сервер (--bind), без обращения к DNS.
+     * Запрос без Host (HTTP/1.0) пропускается: браузеры Host отправляют всегда.
+     */
+    private boolean isLocalHost(String hostHeader) {
+        if (hostHeader == null) return true;
+        String host = hostHeader.trim().toLowerCase(Locale.ROOT);
+        if (host.startsWith("[")) {
+            int end = host.indexOf(']');
+            host = (end > 0) ? host.substring(1, end) : host;
+        } else {
+            int colon = host.lastIndexOf(':');
+            if (colon >= 0) host = host.substring(0, colon);
+        }
+        if (host.equals("localhost") || host.equals("::1") || host.equals("0:0:0:0:0:0:0:1")) return true;
+        if (host.startsWith("127.") && host.chars().allMatch(c -> c == '.' || Character.isDigit(c))) return true;
+        return host.equals(http.getAddress().getHostString().toLowerCase(Locale.ROOT));
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                // Защита от DNS rebinding: страница с чужого домена, перепривязанного на 127.0.0.1,
+                // приходит с этим доменом в Host и иначе могла бы читать исходники
+                sendError(exchange, 403, "Host not allowed");
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                sendError(exchange, 405, "Only GET and HEAD are supported");
+                return;
+            }
+            Response response;
+            try {
+                response = endpoint.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (HttpError e) {
+                sendError(exchange, e.status, e.getMessage());
+                return;
+            } catch (IOException | UncheckedIOException | CompletionException e) {
+                log.warn("Server request " + exchange.getRequestURI() + " failed: " + e.getMessage());
+                sendError(exchange, 500, String.valueOf(e.getMessage()));
+                return;
+            } catch (RuntimeException e) {
+                // Ошибка в коде конвертации не должна оставлять клиента без ответа
+                log.error("Server request " + exchange.getRequestURI() + " failed: " + e);
+                sendError(exchange, 500, "Internal error: " + e);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("ETag", response.etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match"), response.etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            if (method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(response.body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, response.body.length == 0 ? -1 : response.body.length);
+            if (response.body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response.body);
+                }
+            }
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) trimmed = trimmed.substring(2);
+            if (trimmed.equals("*") || trimmed.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String etag(String kind, long hash) {
+        return "\"" + kind + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /** ETag файла: содержимое и уровень; непрочитанный файл - по размеру и времени изменения. */
+    private static String fileEtag(ConvertedFile file, CompressionLevel level) {
+        long hash = file.getContentHash() != 0 ? file.getContentHash()
+                : file.getOriginalSize() * 31 + file.getRecord().getLastModified();
+        return etag("f", hash * 31 + level.ordinal());
+    }
+
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // --- Ключи и значения кэшей ---
+
+    private record ScanKey(String root, List<String> extensions, List<String> ignored) {}
+
+    private record FileKey(String root, String relativePath, long size, long lastModified, CompressionLevel level) {}
+
+    private record ExportKey(ScanKey scan, long fingerprint, CompressionLevel level, JunkPolicy junk) {
+        long hash() {
+            return (fingerprint * 31 + level.ordinal()) * 31 + junk.ordinal();
+        }
+    }
+
+    private static final class Snapshot {
+        final List<FileRecord> records;
+        final PathTable table;
+        final long fingerprint;
+        final long createdNanos;
+        // Ссылка снимка на источник записей (null - записей нет); закрывается при замене снимка
+        final SourceRoot source;
+
+        Snapshot(List<FileRecord> records, PathTable table, long fingerprint, long createdNanos, SourceRoot source) {
+            this.records = records;
+            this.table = (table != null) ? table : new PathTable(null);
+            this.fingerprint = fingerprint;
+            this.createdNanos = createdNanos;
+            this.source = source;
+        }
+    }
+
+    /** Ссылка запроса на снимок и его источник (см. {@link #lease}). */
+    private record Lease(Snapshot snapshot, SourceRoot source) implements AutoCloseable {
+        @Override
+        public void close() throws IOException {
+            if (source != null) source.close();
+        }
+    }
+
+    private static final class Export {
+        final ExportKey key;
+        final byte[] merged;
+        final byte[] structure;
+
+        Export(ExportKey key, byte[] merged, byte[] structure) {
+            this.key = key;
+            this.merged = merged;
+            this.structure = structure;
+        }
+    }
+
+    /**
+     * Кэш с общими вычислениями: первый запросивший ключ вычисляет значение, остальные ждут
+     * тот же CompletableFuture. Готовые значения вытесняются по давности использования,
+     * когда суммарный вес превышает capacity; ошибка вычисления не кэшируется.
+     */
+    static final class SharedCache<K, V> {
+        private final long capacity;
+        private final ToLongFunction<V> weigher;
+        private final LinkedHashMap<K, CompletableFuture<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+        private long weight = 0;
+
+        SharedCache(long capacity, ToLongFunction<V> weigher) {
+            this.capacity = capacity;
+            this.weigher = weigher;
+        }
+
+        V get(K key, Callable<V> loader) throws IOException {
+            CompletableFuture<V> future;
+            boolean owner = false;
+            synchronized (this) {
+                future = map.get(key);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    map.put(key, future);
+                    owner = true;
+                }
+            }
+            if (owner) {
+                try {
+                    V value = loader.call();
+                    future.complete(value);
+                    synchronized (this) {
+                        if (map.get(key) == future) {
+                            weight += weigher.applyAsLong(value);
+                            evict();
+                        }
+                    }
+                } catch (Exception e) {
+                    synchronized (this) {
+                        map.remove(key, future);
+                    }
+                    future.completeExceptionally(e);
+                }
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+                throw e;
+            }
+        }
+
+        /**
+         * Удаляет значение, только если в кэше все еще именно оно (его не заменил другой поток).
+         * @return удалено ли значение этим вызовом
+         */
+        synchronized boolean invalidate(K key, V value) {
+            CompletableFuture<V> future = map.get(key);
+            if (future != null && future.isDone() && !future.isCompletedExceptionally() && future.join() == value) {
+                map.remove(key);
+                weight -= weigher.applyAsLong(value);
+                return true;
+            }
+            return false;
+        }
+
+        /** Очищает кэш. @return готовые значения, которые в нем были */
+        synchronized List<V> clear() {
+            List<V> values = new ArrayList<>();
+            for (CompletableFuture<V> future : map.values()) {
+                if (future.isDone() && !future.isCompletedExceptionally()) values.add(future.join());
+            }
+            map.clear();
+            weight = 0;
+            return values;
+        }
+
+        private void evict() {
+            Iterator<CompletableFuture<V>> it = map.values().iterator();
+            while (weight > capacity && it.hasNext()) {
+                CompletableFuture<V> eldest = it.next();
+                // Вычисляемые значения не вытесняем: их ждут клиенты
+                if (!eldest.isDone()) continue;
+                weight -= weigher.applyAsLong(eldest.join());
+                it.remove();
+            }
+        }
+    }
+}
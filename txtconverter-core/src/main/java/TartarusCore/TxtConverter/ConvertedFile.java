@@ -0,0 +1,68 @@
+package TartarusCore.TxtConverter;
+
+import java.nio.file.Path;
+
+/**
+ * Результат конвертации одного файла, публикуемый {@link ConversionEngine}.
+ *
+ * Содержимое - одно из трех:
+ * <ul>
+ *   <li>{@link #getText()} при {@link #isConverted()} - сжатый текст;</li>
+ *   <li>{@link #getText()} без сжатия - исходный текст (NONE, .md, откат по бюджету);</li>
+ *   <li>{@link #getBytes()} - исходные байты файла не в UTF-8.</li>
+ * </ul>
+ * Если содержимого нет ({@link #hasContent()} == false), файл не читался: он превышает
+ * бюджет памяти или движок создан без чтения исходников, и его нужно взять из {@link #getPath()}.
+ */
+public final class ConvertedFile {
+
+    private final FileRecord record;
+    private final String text;
+    private final byte[] bytes;
+    private final long contentHash;
+    private final CompressionLevel level;
+    private final long readNanos;
+    private final long convertNanos;
+
+    ConvertedFile(FileRecord record, String text, byte[] bytes, long contentHash,
+                  CompressionLevel level, long readNanos, long convertNanos) {
+        this.record = record;
+        this.text = text;
+        this.bytes = bytes;
+        this.contentHash = contentHash;
+        this.level = level;
+        this.readNanos = readNanos;
+        this.convertNanos = convertNanos;
+    }
+
+    public FileRecord getRecord() { return record; }
+
+    public String getRelativePath() { return record.getRelativePath(); }
+
+    public Path getPath() { return record.getPath(); }
+
+    public FileKind getKind() { return record.getKind(); }
+
+    /** Размер исходного файла в байтах. */
+    public long getOriginalSize() { return record.getSize(); }
+
+    /** Текст (сжатый или исходный) или null для файлов не в UTF-8 и непрочитанных. */
+    public String getText() { return text; }
+
+    /** Исходные байты файла не в UTF-8 или null. */
+    public byte[] getBytes() { return bytes; }
+
+    public boolean hasContent() { return text != null || bytes != null; }
+
+    /** Уровень, которым файл сжат (после отката по бюджету), или null - взят как есть. */
+    public CompressionLevel getLevel() { return level; }
+
+    public boolean isConverted() { return level != null; }
+
+    /** Хэш исходных байтов ({@link PooledTextIO#hash()}); 0, если файл не читался. */
+    public long getContentHash() { return contentHash; }
+
+    public long getReadNanos() { return readNanos; }
+
+    public long getConvertNanos() { return convertNanos; }
+}
@@ -0,0 +1,52 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Классический вывод в папку _ConvertedToTxt через staging-директорию.
+ */
+public class DirectoryOutputSink implements OutputSink {
+
+    private final StagedOutputDirectory stagedOutput;
+
+    public DirectoryOutputSink(StagedOutputDirectory stagedOutput) {
+        this.stagedOutput = stagedOutput;
+    }
+
+    @Override
+    public void write(String name, byte[] data) throws IOException {
+        Files.write(stagedOutput.getPath().resolve(name), data);
+    }
+
+    @Override
+    public OutputStream openStream(String name) throws IOException {
+        return Files.newOutputStream(stagedOutput.getPath().resolve(name));
+    }
+
+    @Override
+    public WritableByteChannel openChannel(String name) throws IOException {
+        return FileChannel.open(stagedOutput.getPath().resolve(name),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        stagedOutput.commit();
+    }
+
+    @Override
+    public String describeLocation() {
+        return stagedOutput.getPath().toString();
+    }
+
+    @Override
+    public void close() {
+        // После commit() это no-op, иначе staging отбрасывается
+        stagedOutput.abort();
+    }
+}
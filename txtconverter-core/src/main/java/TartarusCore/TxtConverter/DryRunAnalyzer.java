@@ -0,0 +1,299 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * "Сухой прогон": прогоняет все уровни сжатия в памяти, ничего не записывая,
+ * и считает итоговый объем и примерное число токенов.
+ *
+ * Каждый файл читается один раз, три уровня считаются за этот же проход, файлы обрабатываются
+ * параллельно. Результат кэшируется по (путь, размер, mtime) и дополнительно по хэшу содержимого,
+ * поэтому повторная оценка после пересканирования почти бесплатна, а переключение уровня
+ * или выбора файлов пересчитывается по готовым массивам мгновенно ({@link Estimates}).
+ * Кэш хранит только файлы последней завершенной оценки: удаленные и измененные с пересканированием уходят,
+ * а при смене бюджета (от него зависят откаты уровней) кэш начинается заново.
+ */
+public class DryRunAnalyzer {
+
+    /** Грубая оценка для LLM-токенизаторов: ~4 символа на токен. */
+    public static final int CHARS_PER_TOKEN = 4;
+
+    private static final int LEVELS = CompressionLevel.values().length;
+
+    private static DryRunAnalyzer instance;
+
+    // Заменяется целиком по завершении каждой оценки
+    private volatile Cache cache = new Cache(null);
+
+    /** Размеры одного файла на каждом уровне (индекс = CompressionLevel.ordinal()). */
+    private static final class FileEstimate {
+        final long[] bytes = new long[LEVELS];
+        final long[] chars = new long[LEVELS];
+        Long contentHash; // null - содержимое не читалось (файл пропал или слишком велик)
+    }
+
+    /** Оценки по (путь, размер, mtime) и по хэшу содержимого, посчитанные с бюджетом budget. */
+    private static final class Cache {
+        final ConversionBudget budget;
+        final Map<String, FileEstimate> byStamp = new ConcurrentHashMap<>();
+        final Map<Long, FileEstimate> byContentHash = new ConcurrentHashMap<>();
+
+        Cache(ConversionBudget budget) {
+            this.budget = budget;
+        }
+
+        void put(String stamp, FileEstimate estimate) {
+            byStamp.put(stamp, estimate);
+            if (estimate.contentHash != null) byContentHash.put(estimate.contentHash, estimate);
+        }
+    }
+
+    private DryRunAnalyzer() {}
+
+    public static synchronized DryRunAnalyzer getInstance() {
+        if (instance == null) {
+            instance = new DryRunAnalyzer();
+        }
+        return instance;
+    }
+
+    /**
+     * Оценивает все файлы списка. Файлы из кэша не читаются.
+     * @param localityReads читать файлы в порядке расположения на диске ({@link LocalityPrefetcher})
+     * @param isCancelled проверяется перед каждым файлом
+     * @param onProgress получает число обработанных файлов (вызывается из рабочих потоков)
+     * @return оценки или null, если прогон отменен
+     */
+    public Estimates analyze(List<FileRecord> files, ConversionBudget budget, boolean localityReads,
+                             BooleanSupplier isCancelled, IntConsumer onProgress) {
+        FileEstimate[] results = new FileEstimate[files.size()];
+        AtomicInteger done = new AtomicInteger();
+
+        // Результаты раскладываются по индексу, поэтому порядок чтения свободен: каждый рабочий
+        // поток получает непрерывный кусок списка и при включенной опции идет по нему в порядке inode
+        List<FileRecord> readOrder = localityReads ? LocalityPrefetcher.inLocalityOrder(files) : files;
+
+        // Новый кэш собирается только из файлов этого списка, старый служит источником готовых оценок
+        Cache previous = budget.equals(cache.budget) ? cache : new Cache(budget);
+        Cache next = new Cache(budget);
+        readOrder.parallelStream().forEach(record -> {
+            if (isCancelled.getAsBoolean()) return;
+            results[record.getIndex()] = estimate(record, budget, previous, next, isCancelled);
+            onProgress.accept(done.incrementAndGet());
+        });
+
+        if (isCancelled.getAsBoolean()) return null;
+        cache = next;
+        return new Estimates(files, results);
+    }
+
+    private static FileEstimate estimate(FileRecord record, ConversionBudget budget, Cache previous, Cache next,
+                                         BooleanSupplier isCancelled) {
+        String stamp = record.getPath() + "|" + record.getSize() + "|" + record.getLastModified();
+        FileEstimate cached = previous.byStamp.get(stamp);
+        if (cached != null) {
+            next.put(stamp, cached);
+            return cached;
+        }
+
+        if (budget.exceedsMemory(record.getSize())) {
+            // Конвертер такой файл не сжимает и копирует как есть - читать его незачем
+            return rawEstimate(record.getSize());
+        }
+
+        // Хэш считается за тот же проход, что и чтение с декодированием
+        PooledTextIO io = PooledTextIO.forCurrentThread();
+        try {
+            io.read(record.getPath());
+        } catch (IOException e) {
+            // Файл пропал или недоступен: конвертер его тоже не запишет
+            FileEstimate missing = new FileEstimate();
+            next.put(stamp, missing);
+            return missing;
+        }
+
+        // Одинаковое содержимое (копии, touch без изменений) считаем один раз.
+        // В хэш подмешиваем тип файла: от него зависит алгоритм сжатия.
+        long hash = io.hash() * 31 + record.getKind().ordinal();
+        FileEstimate result = next.byContentHash.get(hash);
+        if (result == null) result = previous.byContentHash.get(hash);
+        if (result == null) {
+            result = io.isText() ? compute(record, io.text(), budget, isCancelled) : rawEstimate(io.length());
+            // Прерванный отменой расчет неполон: не кэшируем
+            if (isCancelled.getAsBoolean()) return result;
+            result.contentHash = hash;
+        }
+        next.put(stamp, result);
+        return result;
+    }
+
+    /** Не UTF-8: конвертер скопирует байты как есть на любом уровне. */
+    private static FileEstimate rawEstimate(long length) {
+        FileEstimate result = new FileEstimate();
+        Arrays.fill(result.bytes, length);
+        Arrays.fill(result.chars, length);
+        return result;
+    }
+
+    private static FileEstimate compute(FileRecord record, String content, ConversionBudget budget, BooleanSupplier isCancelled) {
+        FileEstimate result = new FileEstimate();
+        for (CompressionLevel level : CompressionLevel.values()) {
+            // Тот же бюджет и те же откаты, что и при конвертации
+            String text = budget.compress(content, record, level, isCancelled).getText();
+            if (text == null) text = content;
+            result.bytes[level.ordinal()] = utf8Length(text);
+            result.chars[level.ordinal()] = text.length();
+        }
+        return result;
+    }
+
+    private static long utf8Length(String s) {
+        long len = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) len++;
+            else if (c < 0x800) len += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else len += 3;
+        }
+        return len;
+    }
+
+    public static long estimateTokens(long chars) {
+        return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    public static String formatCount(long count) {
+        if (count < 1000) return String.valueOf(count);
+        if (count < 1_000_000) return String.format(Locale.ROOT, "%.1fk", count / 1000.0);
+        return String.format(Locale.ROOT, "%.2fM", count / 1_000_000.0);
+    }
+
+    /**
+     * Оценки для конкретного списка файлов. Все суммы считаются по массивам, без чтения диска.
+     * Невыбранные файлы попадают в общий файл заглушкой, выбранные - целиком; сгенерированные
+     * при {@link JunkPolicy#EXCLUDE} не попадают в него вовсе, даже выбранные.
+     */
+    public static final class Estimates {
+        private static final long STUB_LENGTH = ConversionJob.MERGED_STUB.length();
+
+        private final List<FileRecord> files;
+        private final long[][] bytes;
+        private final long[][] chars;
+        private final BitSet junk = new BitSet();
+
+        private Estimates(List<FileRecord> files, FileEstimate[] perFile) {
+            this.files = files;
+            for (FileRecord record : files) {
+                if (record.isJunk()) junk.set(record.getIndex());
+            }
+            this.bytes = new long[LEVELS][files.size()];
+            this.chars = new long[LEVELS][files.size()];
+            for (int i = 0; i < perFile.length; i++) {
+                for (int level = 0; level < LEVELS; level++) {
+                    bytes[level][i] = perFile[i].bytes[level];
+                    chars[level][i] = perFile[i].chars[level];
+                }
+            }
+        }
+
+        /** true, если оценки построены именно для этого списка (после пересканирования список другой). */
+        public boolean covers(List<FileRecord> list) {
+            return files == list;
+        }
+
+        public long getBytes(CompressionLevel level, int index) {
+            return bytes[level.ordinal()][index];
+        }
+
+        public long getTokens(CompressionLevel level, int index) {
+            return estimateTokens(chars[level.ordinal()][index]);
+        }
+
+        public long totalBytes(CompressionLevel level, BitSet selected, JunkPolicy junkPolicy) {
+            return total(bytes[level.ordinal()], selected, junkPolicy);
+        }
+
+        public long totalTokens(CompressionLevel level, BitSet selected, JunkPolicy junkPolicy) {
+            return estimateTokens(total(chars[level.ordinal()], selected, junkPolicy));
+        }
+
+        private long total(long[] values, BitSet selected, JunkPolicy junkPolicy) {
+            BitSet merged = merged(selected, junkPolicy);
+            long sum = 0;
+            for (int i = merged.nextSetBit(0); i >= 0 && i < values.length; i = merged.nextSetBit(i + 1)) {
+                sum += values[i];
+            }
+            int entries = values.length - (junkPolicy == JunkPolicy.EXCLUDE ? junk.cardinality() : 0);
+            long stubs = entries - merged.cardinality();
+            return sum + Math.max(0, stubs) * STUB_LENGTH;
+        }
+
+        /** Выбранные файлы, которые войдут в общий файл целиком. */
+        private BitSet merged(BitSet selected, JunkPolicy junkPolicy) {
+            if (junkPolicy != JunkPolicy.EXCLUDE || junk.isEmpty()) return selected;
+            BitSet merged = (BitSet) selected.clone();
+            merged.andNot(junk);
+            return merged;
+        }
+
+        /**
+         * Объем выбранных файлов по расширениям: ext -> {файлов, байт, токенов}, по убыванию байт.
+         */
+        public Map<String, long[]> byExtension(CompressionLevel level, BitSet selected, JunkPolicy junkPolicy) {
+            BitSet merged = merged(selected, junkPolicy);
+            Map<String, long[]> totals = new HashMap<>();
+            int l = level.ordinal();
+            for (int i = merged.nextSetBit(0); i >= 0 && i < files.size(); i = merged.nextSetBit(i + 1)) {
+                String ext = files.get(i).getExtension();
+                long[] t = totals.computeIfAbsent(ext.isEmpty() ? "(none)" : ext, k -> new long[3]);
+                t[0]++;
+                t[1] += bytes[l][i];
+                t[2] += chars[l][i];
+            }
+            List<Map.Entry<String, long[]>> entries = new ArrayList<>(totals.entrySet());
+            entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+
+            Map<String, long[]> sorted = new LinkedHashMap<>();
+            for (Map.Entry<String, long[]> e : entries) {
+                long[] t = e.getValue();
+                t[2] = estimateTokens(t[2]);
+                sorted.put(e.getKey(), t);
+            }
+            return sorted;
+        }
+
+        /**
+         * Самые тяжелые выбранные файлы на данном уровне (по убыванию байт).
+         */
+        public List<FileRecord> heaviest(CompressionLevel level, BitSet selected, JunkPolicy junkPolicy, int limit) {
+            BitSet merged = merged(selected, junkPolicy);
+            long[] values = bytes[level.ordinal()];
+            // Мин-куча на limit элементов: O(n log k) без сортировки всего списка
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.comparingLong(i -> values[i]));
+            for (int i = merged.nextSetBit(0); i >= 0 && i < values.length; i = merged.nextSetBit(i + 1)) {
+                heap.add(i);
+                if (heap.size() > limit) heap.poll();
+            }
+            List<FileRecord> result = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                result.add(files.get(heap.poll()));
+            }
+            Collections.reverse(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package TartarusCore.TxtConverter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ограничение времени на весь прогон: результат собирается из того, что успело обработаться.
+ *
+ * Файлы обрабатываются в порядке ценности ({@link #prioritize}): сначала выбранные для общего файла,
+ * обычные раньше мусорных, код и документация раньше данных (JSON, XML, сцены), меньшие раньше больших.
+ * Перед каждым файлом {@link #plan} решает, как его обработать. Если по замеренной скорости оставшиеся
+ * файлы не успевают обработаться, файл сжимается более дешевым уровнем (MAXIMUM -> SMART -> как есть);
+ * скорость меряется на всех файлах, поэтому, когда упрощение наверстало отставание, полный уровень возвращается;
+ * после дедлайна файлы больше не читаются и в отчете и общем файле помечаются пропущенными.
+ * Последняя доля бюджета ({@link #ASSEMBLY_RESERVE}) оставлена на отчет о структуре и сборку общего файла.
+ *
+ * Экземпляр на один прогон, используется из его потока.
+ */
+public final class ExportDeadline {
+
+    /** Как обработать очередной файл. */
+    public enum Treatment {
+        /** Выбранным уровнем сжатия. */
+        FULL,
+        /** Более дешевым уровнем ({@link #getDegradedLevel()}). */
+        DEGRADED,
+        /** Не читается: время вышло. */
+        SKIPPED
+    }
+
+    // Доля бюджета на отчет и общий файл после обработки файлов
+    private static final double ASSEMBLY_RESERVE = 0.1;
+    private static final double RATE_DECAY = 0.875;
+    // До стольких замеров прогноз не строится: первые файлы идут до прогрева JIT
+    private static final int MIN_SAMPLES = 4;
+
+    private final long timeMs;
+    private final CompressionLevel level;
+    private final CompressionLevel degradedLevel;
+    private final long processingEndNanos;
+    private final BitSet skipped = new BitSet();
+    private final BitSet degraded = new BitSet();
+
+    // Объем файлов, до которых очередь еще не дошла
+    private long remainingBytes = 0;
+    // Скорость по уже обработанным файлам; старые замеры затухают (RATE_DECAY),
+    // чтобы первые файлы, обработанные до прогрева JIT и кэшей, не занижали прогноз до конца прогона
+    private double measuredBytes = 0;
+    private double measuredNanos = 0;
+    private int samples = 0;
+
+    /**
+     * Отсчет времени начинается при создании.
+     * @param level выбранный уровень сжатия
+     */
+    public ExportDeadline(long timeMs, CompressionLevel level) {
+        this.timeMs = timeMs;
+        this.level = level;
+        this.degradedLevel = switch (level) {
+            case MAXIMUM -> CompressionLevel.SMART;
+            case SMART -> CompressionLevel.NONE;
+            case NONE -> null;
+        };
+        this.processingEndNanos = System.nanoTime() + (long) (timeMs * 1_000_000L * (1 - ASSEMBLY_RESERVE));
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /** Уровень для упрощенной обработки; null - выбранный уровень уже самый дешевый. */
+    public CompressionLevel getDegradedLevel() {
+        return degradedLevel;
+    }
+
+    /**
+     * Порядок обработки: по ценности, при равной ценности - от меньших файлов к большим.
+     * Запоминает общий объем для прогноза в {@link #plan}.
+     * @param selected файлы, выбранные для общего файла (по индексу записи)
+     */
+    public List<FileRecord> prioritize(List<FileRecord> files, BitSet selected) {
+        List<FileRecord> order = new ArrayList<>(files);
+        order.sort(Comparator.comparing((FileRecord record) -> !selected.get(record.getIndex()))
+                .thenComparing(FileRecord::isJunk)
+                .thenComparingInt(ExportDeadline::valueRank)
+                .thenComparingLong(FileRecord::getSize));
+        remainingBytes = 0;
+        for (FileRecord record : order) remainingBytes += record.getSize();
+        return order;
+    }
+
+    /** Документация и исходный код ценнее сериализованных данных и разметки. */
+    private static int valueRank(FileRecord record) {
+        return switch (record.getKind()) {
+            case MARKDOWN, TEXT, WHITESPACE_SENSITIVE -> 0;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Решение для очередного файла из {@link #prioritize}; после обработки нужно вызвать {@link #finished}.
+     */
+    public Treatment plan(FileRecord record) {
+        remainingBytes -= record.getSize();
+        long now = System.nanoTime();
+        if (now - processingEndNanos >= 0) {
+            skipped.set(record.getIndex());
+            return Treatment.SKIPPED;
+        }
+        if (degradedLevel != null && samples >= MIN_SAMPLES) {
+            // Успевают ли этот и все оставшиеся файлы при нынешней скорости
+            double nanosPerByte = measuredNanos / measuredBytes;
+            long projected = (long) ((record.getSize() + remainingBytes) * nanosPerByte);
+            if (now + projected - processingEndNanos > 0) {
+                degraded.set(record.getIndex());
+                return Treatment.DEGRADED;
+            }
+        }
+        return Treatment.FULL;
+    }
+
+    /** Время обработки файла (чтение, сжатие, запись) для прогноза скорости. */
+    public void finished(FileRecord record, Treatment treatment, long nanos) {
+        if (treatment == Treatment.SKIPPED) return;
+        measuredBytes = measuredBytes * RATE_DECAY + Math.max(1, record.getSize());
+        measuredNanos = measuredNanos * RATE_DECAY + nanos;
+        samples++;
+    }
+
+    public boolean isSkipped(FileRecord record) {
+        return skipped.get(record.getIndex());
+    }
+
+    public boolean isDegraded(FileRecord record) {
+        return degraded.get(record.getIndex());
+    }
+
+    public int getSkippedCount() {
+        return skipped.cardinality();
+    }
+
+    public int getDegradedCount() {
+        return degraded.cardinality();
+    }
+
+    /** Краткая сводка для отчетов: "deadline 30 s: 12 file(s) skipped, 3 compressed with SMART instead of MAXIMUM". */
+    public String describe() {
+        StringBuilder sb = new StringBuilder("deadline ")
+                .append(timeMs % 1000 == 0 ? (timeMs / 1000) + " s" : timeMs + " ms")
+                .append(": ").append(getSkippedCount()).append(" file(s) skipped");
+        if (degradedLevel != null) {
+            sb.append(", ").append(getDegradedCount()).append(" compressed with ")
+                    .append(degradedLevel == CompressionLevel.NONE ? "no compression" : degradedLevel)
+                    .append(" instead of ").append(level);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,182 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Конвертация отдельных файлов одного прогона: чтение, сжатие в пределах бюджета,
+ * запоминание откатов и кэш сжатых текстов по содержимому.
+ *
+ * Общая часть {@link ConversionJob} и {@link ConversionEngine}. Экземпляр не потокобезопасен:
+ * им пользуется один поток прогона (счетчик откатов можно читать из любого).
+ */
+public final class FileConverter {
+
+    // Объем кэша сжатых текстов в символах
+    private static final long CONVERTED_CACHE_CHARS = 8L * 1024 * 1024;
+
+    private final CompressionLevel compressionLevel;
+    private final ConversionBudget budget;
+    private final LogSink log;
+    // Файлы, не уложившиеся в бюджет: индекс -> уровень, которым они в итоге сжаты (null - как есть)
+    private final Map<Integer, CompressionLevel> fallbacks = new HashMap<>();
+    private volatile int fallbackCount = 0;
+    // Сжатые тексты по отпечатку содержимого (PooledTextIO.hash): копии одного файла
+    // и повторные проходы общего файла не сжимаются заново. Объем ограничен CONVERTED_CACHE_CHARS.
+    private final LinkedHashMap<Long, String> convertedByHash = new LinkedHashMap<>(256, 0.75f, true);
+    private long convertedCacheChars = 0;
+    // Файлы, о которых уже предупредили (по индексу записи)
+    private final BitSet warned = new BitSet();
+
+    public FileConverter(CompressionLevel compressionLevel, ConversionBudget budget, LogSink log) {
+        this.compressionLevel = compressionLevel;
+        this.budget = budget;
+        this.log = log;
+    }
+
+    public ConversionBudget getBudget() {
+        return budget;
+    }
+
+    /** Число файлов, сжатых более дешевым уровнем из-за бюджета. */
+    public int getFallbackCount() {
+        return fallbackCount;
+    }
+
+    /**
+     * Читает и сжимает файл согласно уровню в пределах бюджета (ConversionBudget).
+     * Файл, который однажды не уложился в бюджет, при повторных чтениях (предварительные
+     * проходы общего файла) сразу сжимается уровнем, на который он откатился.
+     * @return сжатый текст или null, если файл нужно взять как есть (NONE, .md, не UTF-8, бюджет)
+     */
+    public String convertToText(FileRecord record, BooleanSupplier isCancelled) {
+        CompressionLevel level = levelFor(record);
+        if (level == null) return null;
+
+        PooledTextIO io = PooledTextIO.forCurrentThread();
+        try {
+            if (!io.read(record.getPath())) {
+                warnOnce(record, "not valid UTF-8 text, copied as is");
+                return null;
+            }
+        } catch (IOException e) {
+            warnOnce(record, "not readable as UTF-8 text, copied as is (" + e.getMessage() + ")");
+            return null;
+        }
+        return compress(record, io.text(), io.hash(), level, isCancelled);
+    }
+
+    /**
+     * Конвертирует файл в запись для {@link ConversionEngine}.
+     * @param withRawContent читать ли содержимое файлов, которые берутся как есть; без него такие
+     *                       файлы (и файлы, которые не удалось прочитать) публикуются без содержимого,
+     *                       и потребитель копирует их сам
+     * @throws IOException если файл не читается, а нужно его содержимое (withRawContent)
+     */
+    public ConvertedFile convert(FileRecord record, boolean withRawContent, BooleanSupplier isCancelled) throws IOException {
+        long start = System.nanoTime();
+        CompressionLevel level = levelFor(record);
+        if ((level == null && !withRawContent) || budget.exceedsMemory(record.getSize())) {
+            return new ConvertedFile(record, null, null, 0, null, 0, 0);
+        }
+
+        PooledTextIO io = PooledTextIO.forCurrentThread();
+        boolean isText;
+        try {
+            isText = io.read(record.getPath());
+        } catch (IOException e) {
+            if (withRawContent) throw e;
+            // Без содержимого файл копирует сам потребитель: он же и сообщит, что исходник не читается
+            return new ConvertedFile(record, null, null, 0, null, 0, 0);
+        }
+        long readNanos = System.nanoTime() - start;
+        if (!isText) {
+            if (level != null) warnOnce(record, "not valid UTF-8 text, copied as is");
+            byte[] bytes = withRawContent ? Files.readAllBytes(record.getPath()) : null;
+            return new ConvertedFile(record, null, bytes, io.hash(), null, readNanos, 0);
+        }
+        String original = io.text();
+        if (level == null) {
+            return new ConvertedFile(record, original, null, io.hash(), null, readNanos, 0);
+        }
+
+        long hash = io.hash();
+        long convertStart = System.nanoTime();
+        String converted = compress(record, original, hash, level, isCancelled);
+        long convertNanos = System.nanoTime() - convertStart;
+        if (converted == null) {
+            return new ConvertedFile(record, withRawContent ? original : null, null, hash, null, readNanos, convertNanos);
+        }
+        CompressionLevel applied = fallbacks.containsKey(record.getIndex()) ? fallbacks.get(record.getIndex()) : level;
+        return new ConvertedFile(record, converted, null, hash, applied, readNanos, convertNanos);
+    }
+
+    /** Общий файл может читать файл несколькими проходами: о том же файле сообщаем один раз. */
+    private void warnOnce(FileRecord record, String message) {
+        if (warned.get(record.getIndex())) return;
+        warned.set(record.getIndex());
+        log.warn(record.getRelativePath() + ": " + message);
+    }
+
+    /** Уровень сжатия файла с учетом прошлых откатов; null - файл берется как есть. */
+    private CompressionLevel levelFor(FileRecord record) {
+        if (compressionLevel == CompressionLevel.NONE || record.getKind() == FileKind.MARKDOWN) return null;
+
+        CompressionLevel level = fallbacks.containsKey(record.getIndex())
+                ? fallbacks.get(record.getIndex()) : compressionLevel;
+        if (level == null) return null;
+        if (budget.exceedsMemory(record.getSize())) {
+            reportFallback(record, null, ConversionBudget.Overrun.MEMORY);
+            return null;
+        }
+        return level;
+    }
+
+    private String compress(FileRecord record, String text, long contentHash, CompressionLevel level,
+                            BooleanSupplier isCancelled) {
+        long key = conversionKey(contentHash, record, level);
+        String cached = convertedByHash.get(key);
+        if (cached != null) return cached;
+
+        ConversionBudget.Result result = budget.compress(text, record, level, isCancelled);
+        if (result.isFallback()) reportFallback(record, result.getLevel(), result.getOverrun());
+        else if (result.getText() != null) cacheConverted(key, result.getText());
+        return result.getText();
+    }
+
+    /**
+     * Результат сжатия зависит от содержимого, типа файла и уровня; для сцен Godot еще и от имени файла.
+     */
+    private static long conversionKey(long contentHash, FileRecord record, CompressionLevel level) {
+        long key = contentHash * 31 + record.getKind().ordinal();
+        key = key * 31 + level.ordinal();
+        if (record.getKind() == FileKind.GODOT_SCENE) key = key * 31 + record.getFileName().hashCode();
+        return key;
+    }
+
+    private void cacheConverted(long key, String text) {
+        if (text.length() > CONVERTED_CACHE_CHARS / 4) return;
+        String previous = convertedByHash.put(key, text);
+        if (previous != null) convertedCacheChars -= previous.length();
+        convertedCacheChars += text.length();
+        Iterator<String> eldest = convertedByHash.values().iterator();
+        while (convertedCacheChars > CONVERTED_CACHE_CHARS && eldest.hasNext()) {
+            convertedCacheChars -= eldest.next().length();
+            eldest.remove();
+        }
+    }
+
+    private void reportFallback(FileRecord record, CompressionLevel level, ConversionBudget.Overrun overrun) {
+        if (fallbacks.containsKey(record.getIndex())) return;
+        fallbacks.put(record.getIndex(), level);
+        fallbackCount = fallbacks.size();
+        log.warn(record.getRelativePath() + ": " + overrun.getDescription() + " exceeded, "
+                + (level != null ? "compressed with " + level : "copied as is"));
+    }
+}
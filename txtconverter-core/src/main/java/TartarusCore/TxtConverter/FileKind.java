@@ -0,0 +1,60 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Тип файла, определяемый один раз при сканировании по имени.
+ * Дальнейшие этапы (сжатие, отчеты, диалог выбора) опираются на него,
+ * а не разбирают имя файла повторно.
+ */
+public enum FileKind {
+    /** Документация: всегда копируется как есть. */
+    MARKDOWN,
+    /** Сцены и ресурсы Godot (.tscn, .tres): в режиме MAXIMUM идут через GodotCompactConverter. */
+    GODOT_SCENE,
+    /**
+     * Языки, где отступы значимы (.gd, .py, .yaml, .yml): ведущие пробелы не трогаем.
+     * Сюда же сериализованные ассеты Unity (.asset, .prefab, .unity, .mat...) - это YAML, а не XML.
+     */
+    WHITESPACE_SENSITIVE,
+    /** JSON и JSONC (.json, .asmdef, .inputactions...): в режиме MAXIMUM минифицируется. */
+    JSON,
+    /** XML-форматы (.xml, .csproj, .xaml, .resx, .fxml...): в режиме MAXIMUM минифицируется. */
+    XML,
+    /** .html, .htm: в режиме MAXIMUM минифицируется с сохранением pre/script/style. */
+    HTML,
+    /** .css, .uss: в режиме MAXIMUM минифицируется. */
+    CSS,
+    /** Любой другой текстовый файл. */
+    TEXT;
+
+    /**
+     * @param lowerName Имя файла в нижнем регистре
+     */
+    public static FileKind classify(String lowerName) {
+        if (lowerName.endsWith(".md")) return MARKDOWN;
+        if (lowerName.endsWith(".tscn") || lowerName.endsWith(".tres")) return GODOT_SCENE;
+        if (lowerName.endsWith(".gd") || lowerName.endsWith(".py")
+                || lowerName.endsWith(".yaml") || lowerName.endsWith(".yml")) {
+            return WHITESPACE_SENSITIVE;
+        }
+
+        int dot = lowerName.lastIndexOf('.');
+        String ext = (dot >= 0) ? lowerName.substring(dot + 1) : "";
+        switch (ext) {
+            case "asset": case "prefab": case "unity": case "mat": case "controller": case "anim":
+                return WHITESPACE_SENSITIVE;
+            case "json": case "jsonc": case "asmdef": case "asmref": case "inputactions":
+                return JSON;
+            case "xml": case "csproj": case "vbproj": case "fsproj": case "props": case "targets":
+            case "xaml": case "axaml": case "resx": case "config": case "nuspec": case "fxml":
+            case "svg": case "plist": case "uxml":
+                return XML;
+            case "html": case "htm":
+                return HTML;
+            // .scss/.less не входят: в них бывают строчные комментарии //
+            case "css": case "uss":
+                return CSS;
+            default:
+                return TEXT;
+        }
+    }
+}
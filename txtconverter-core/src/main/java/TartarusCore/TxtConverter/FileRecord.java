@@ -0,0 +1,90 @@
+package TartarusCore.TxtConverter;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+
+/**
+ * Неизменяемая запись о найденном файле.
+ * Формируется сканером из уже полученных BasicFileAttributes, чтобы последующие этапы
+ * не делали повторных системных вызовов (size, isDirectory) и не разбирали имя заново.
+ *
+ * {@code index} - позиция записи в результате сканирования; по нему строятся выборки (BitSet).
+ * Путь хранится как (папка в {@link PathTable}, имя): общие префиксы папок не дублируются,
+ * а {@link Path} и полный относительный путь строятся по запросу.
+ */
+public final class FileRecord {
+
+    private final int index;
+    private final PathTable table;
+    private final int dirId;
+    private final String fileName;
+    private final String extension;
+    private final long size;
+    private final long lastModified;
+    private final Object fileKey;
+    private final FileKind kind;
+    private final JunkReason junkReason;
+
+    public FileRecord(PathTable table, String relativePath, BasicFileAttributes attrs) {
+        this(table, relativePath, attrs, null);
+    }
+
+    /**
+     * Добавляет файл в таблицу путей; индекс записи - его позиция в таблице.
+     * @param junkReason Результат JunkDetector или null для обычного файла
+     */
+    public FileRecord(PathTable table, String relativePath, BasicFileAttributes attrs, JunkReason junkReason) {
+        this.index = table.getFileCount();
+        this.table = table;
+        this.dirId = table.addFile(relativePath);
+        this.fileName = table.fileName(index);
+
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        int lastDot = lowerName.lastIndexOf('.');
+        this.extension = (lastDot > 0) ? table.internExtension(lowerName.substring(lastDot)) : "";
+        this.kind = FileKind.classify(lowerName);
+
+        this.size = attrs.size();
+        this.lastModified = attrs.lastModifiedTime().toMillis();
+        this.fileKey = attrs.fileKey();
+        this.junkReason = junkReason;
+    }
+
+    public int getIndex() { return index; }
+
+    /** Абсолютный путь для операций ввода-вывода (создается при каждом вызове). */
+    public Path getPath() { return table.resolve(dirId, fileName); }
+
+    /** Путь относительно корня проекта с разделителем '/'. */
+    public String getRelativePath() { return table.relativePath(dirId, fileName); }
+
+    public PathTable getTable() { return table; }
+
+    /** id папки файла в {@link #getTable()}. */
+    public int getDirectoryId() { return dirId; }
+
+    public String getFileName() { return fileName; }
+
+    /** Расширение в нижнем регистре вместе с точкой (".cs") или пустая строка. */
+    public String getExtension() { return extension; }
+
+    public long getSize() { return size; }
+
+    public long getLastModified() { return lastModified; }
+
+    /** Идентификатор файла в ФС (inode и т.п.), может быть null. */
+    public Object getFileKey() { return fileKey; }
+
+    public FileKind getKind() { return kind; }
+
+    /** Причина, по которой файл признан сгенерированным/минифицированным, или null. */
+    public JunkReason getJunkReason() { return junkReason; }
+
+    public boolean isJunk() { return junkReason != null; }
+
+    @Override
+    public String toString() {
+        return getRelativePath();
+    }
+}
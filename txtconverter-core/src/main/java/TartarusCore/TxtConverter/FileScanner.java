@@ -0,0 +1,230 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Сканирование директории проекта (или архива, см. {@link SourceRoot}).
+ * ОПТИМИЗИРОВАНО: Использует walkFileTree для пропуска игнорируемых поддеревьев (node_modules и т.д.).
+ * Возвращает {@link FileRecord} с атрибутами, уже полученными при обходе, чтобы не запрашивать их повторно.
+ * Экземпляр одноразовый; в приложении его запускает FileScannerTask.
+ */
+public class FileScanner {
+
+    private final String sourceDirPath;
+    private final List<String> extensions;
+    private final List<String> ignoredFolders;
+    private final String gitRef;
+    private final String loadingMsg;
+    private final String junkCheckMsg;
+    private volatile GitChangeSet changeSet;
+    private BooleanSupplier cancelled = () -> false;
+    private LogSink log = LogSink.NONE;
+    // Ссылка на источник записей последнего сканирования, пока ее не забрали (takeSource)
+    private final AtomicReference<SourceRoot> source = new AtomicReference<>();
+
+    /**
+     * @param gitRef Если задан, сканируются только файлы, измененные относительно этой git-ссылки
+     * @param bundle тексты сообщений о ходе работы ({@link ProjectConstants#MESSAGES_BUNDLE})
+     */
+    public FileScanner(String sourceDirPath, List<String> extensions, List<String> ignoredFolders, String gitRef,
+                       ResourceBundle bundle) {
+        this.sourceDirPath = sourceDirPath;
+        this.extensions = extensions;
+        this.ignoredFolders = ignoredFolders;
+        this.gitRef = gitRef;
+        this.loadingMsg = bundle.getString("ui.status_scanning");
+        this.junkCheckMsg = bundle.getString("ui.status_junk_check");
+    }
+
+    /**
+     * Сканирует источник в текущем потоке.
+     * Записи из архива действительны, пока открыт архив: ссылку на него забирает
+     * и закрывает вызывающий код ({@link #takeSource}), когда записи больше не нужны.
+     * @return записи в порядке путей (индекс записи = позиция); пустой список, если отменено
+     */
+    public List<FileRecord> scan(ProgressListener listener, BooleanSupplier isCancelled) throws IOException {
+        this.cancelled = isCancelled;
+        this.log = listener;
+        listener.message(loadingMsg);
+        SourceRoot opened = SourceRoot.open(sourceDirPath, true);
+        List<FileRecord> records = List.of();
+        try {
+            records = scan(opened, listener);
+        } finally {
+            SourceRoot previous = records.isEmpty() ? opened : source.getAndSet(opened);
+            if (previous != null) previous.close();
+        }
+        return records;
+    }
+
+    /**
+     * Ссылка на источник записей последнего сканирования; закрыть ее - дело вызывающего кода.
+     * Отдается один раз: null, если уже забрана или сканирование не дало записей.
+     */
+    public SourceRoot takeSource() {
+        return source.getAndSet(null);
+    }
+
+    private List<FileRecord> scan(SourceRoot source, ProgressListener listener) throws IOException {
+        Path sourcePath = source.getRoot();
+        if (source.isArchive()) {
+            log.info("Scanning archive " + source.getLocation()
+                    + (sourcePath.getNameCount() > 0 ? " (root: " + sourcePath + ")" : ""));
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> foundFiles = new ArrayList<>();
+
+        if (gitRef != null) {
+            if (source.isArchive()) throw new IOException("git mode is not available for archives");
+            changeSet = GitChangeSet.load(sourcePath, gitRef);
+            collectChangedFiles(sourcePath, foundFiles);
+        } else {
+            walkSourceTree(sourcePath, foundFiles);
+        }
+
+        if (isCancelled()) return List.of();
+
+        // Сортируем результат для красоты, индекс записи = позиция после сортировки
+        foundFiles.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+
+        // Lock-файлы, бандлы и сгенерированный код: читаем только начало файла, параллельно
+        listener.message(junkCheckMsg);
+        JunkReason[] junkReasons = new JunkReason[foundFiles.size()];
+        IntStream.range(0, foundFiles.size()).parallel().forEach(i -> {
+            if (isCancelled()) return;
+            Map.Entry<Path, BasicFileAttributes> entry = foundFiles.get(i);
+            String lowerName = entry.getKey().getFileName().toString().toLowerCase(Locale.ROOT);
+            junkReasons[i] = JunkDetector.detect(entry.getKey(), lowerName, entry.getValue().size());
+        });
+        if (isCancelled()) return List.of();
+
+        // Path обхода дальше не хранятся: записи ссылаются на общую таблицу путей
+        PathTable table = new PathTable(sourcePath);
+        List<FileRecord> records = new ArrayList<>(foundFiles.size());
+        for (Map.Entry<Path, BasicFileAttributes> entry : foundFiles) {
+            String relativePath = sourcePath.relativize(entry.getKey()).toString().replace('\\', '/');
+            records.add(new FileRecord(table, relativePath, entry.getValue(), junkReasons[records.size()]));
+        }
+        return records;
+    }
+
+    private boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    /**
+     * Изменения относительно git-ссылки, если сканирование шло в этом режиме (иначе null).
+     */
+    public GitChangeSet getChangeSet() {
+        return changeSet;
+    }
+
+    /**
+     * Режим git: вместо обхода дерева проверяются только измененные пути -
+     * те же фильтры пресета (расширения, игнорируемые папки), удаленные файлы пропускаются.
+     */
+    private void collectChangedFiles(Path sourcePath, List<Map.Entry<Path, BasicFileAttributes>> foundFiles) {
+        for (String relativePath : changeSet.getStatuses().keySet()) {
+            if (isCancelled()) return;
+            if (isInIgnoredFolder(relativePath)) continue;
+
+            Path file = sourcePath.resolve(relativePath);
+            if (!matchesExtensions(file.getFileName().toString().toLowerCase())) continue;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) foundFiles.add(Map.entry(file, attrs));
+            } catch (IOException e) {
+                // Удален или переименован: в результат не попадает, но виден в отчете о структуре
+            }
+        }
+    }
+
+    private boolean isInIgnoredFolder(String relativePath) {
+        String[] segments = relativePath.split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            String dirName = segments[i].toLowerCase();
+            if (dirName.startsWith(ProjectConstants.OUTPUT_DIR_NAME.toLowerCase()) || ignoredFolders.contains(dirName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesExtensions(String fileName) {
+        // Всегда берем .md файлы (полезно для документации), если это не жестко запрещено
+        if (fileName.endsWith(".md")) return true;
+
+        // Проверка расширения
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0) {
+            return extensions.contains(fileName.substring(dotIndex + 1));
+        }
+        // Файлы без расширения (например Makefile, Dockerfile)
+        return extensions.contains(fileName);
+    }
+
+    private void walkSourceTree(Path sourcePath, List<Map.Entry<Path, BasicFileAttributes>> foundFiles) throws IOException {
+        Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                // Обход отменен более новым сканированием - сразу выходим
+                if (isCancelled()) return FileVisitResult.TERMINATE;
+                // У корня архива нет имени, а сам корень не фильтруем
+                if (dir.equals(sourcePath)) return FileVisitResult.CONTINUE;
+
+                // 1. Игнорируем нашу выходную папку (и ее staging/корзины от прошлых запусков)
+                if (dir.getFileName().toString().startsWith(ProjectConstants.OUTPUT_DIR_NAME)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                // 2. Проверяем имя папки на наличие в списке игнорируемых
+                // Это позволяет НЕ заходить внутрь node_modules, .git и т.д.
+                String dirName = dir.getFileName().toString().toLowerCase();
+
+                // Пропускаем скрытые папки (кроме текущей корневой, если она скрытая)
+                if (dirName.startsWith(".") && !dirName.equals(".gitignore")) {
+                    // Дополнительная проверка: если папка .git или .idea, скипаем сразу.
+                    // Но если пользователь явно не добавил их в игнор, логика ниже сработает.
+                    // По умолчанию считаем, что скрытые папки часто системные, но доверимся списку ignoredFolders.
+                }
+
+                if (ignoredFolders.contains(dirName)) {
+                    log.debug("Skipped folder: " + sourcePath.relativize(dir));
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (isCancelled()) return FileVisitResult.TERMINATE;
+
+                String fileName = file.getFileName().toString().toLowerCase();
+                if (matchesExtensions(fileName)) {
+                    foundFiles.add(Map.entry(file, attrs));
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                // Игнорируем ошибки доступа к файлам
+                log.warn("Cannot access: " + file + " (" + exc.getMessage() + ")");
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,298 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Потоковые минификаторы структурированных форматов для режима MAXIMUM.
+ *
+ * Каждый метод - один проход по символам без построения дерева: убираются только
+ * незначимые пробелы, переносы и комментарии. Содержимое строк, значения атрибутов,
+ * CDATA и текстовые узлы (кроме чисто пробельных отступов) не меняются.
+ * Некорректный ввод не приводит к ошибке: недописанный хвост копируется как есть.
+ */
+public final class FormatMinifier {
+
+    private FormatMinifier() {}
+
+    // --- JSON ---
+
+    /**
+     * JSON и JSONC (tsconfig, .vscode): пробелы вне строк, строчные и блочные комментарии удаляются.
+     */
+    public static String minifyJson(String src) {
+        int n = src.length();
+        StringBuilder out = new StringBuilder(n);
+        int i = 0;
+        while (i < n) {
+            char c = src.charAt(i);
+            if (c == '"') {
+                i = copyQuoted(src, i, '"', true, out);
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '/') {
+                i = skipLine(src, i);
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '*') {
+                i = skipPast(src, i + 2, "*/");
+            } else if (isWhitespace(c)) {
+                i++;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    // --- CSS ---
+
+    /**
+     * CSS (а также Unity USS): комментарии удаляются, пробелы схлопываются,
+     * вокруг { } ; , > и после ':' пробелы убираются, ';' перед '}' опускается.
+     * Пробелы вокруг + и - сохраняются: внутри calc() они значимы.
+     */
+    public static String minifyCss(String src) {
+        int n = src.length();
+        StringBuilder out = new StringBuilder(n);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < n) {
+            char c = src.charAt(i);
+            if (c == '/' && i + 1 < n && src.charAt(i + 1) == '*') {
+                i = skipPast(src, i + 2, "*/");
+                continue;
+            }
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+
+            // Пробел перед ':' оставляем: в селекторе "a :hover" он значим
+            boolean isPunct = c == '{' || c == '}' || c == ';' || c == ',' || c == '>';
+            if (pendingSpace && !isPunct && out.length() > 0 && !isCssPunct(out.charAt(out.length() - 1))) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+
+            if (c == '"' || c == '\'') {
+                i = copyQuoted(src, i, c, true, out);
+                continue;
+            }
+            if (c == '}' && out.length() > 0 && out.charAt(out.length() - 1) == ';') {
+                out.setLength(out.length() - 1);
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    private static boolean isCssPunct(char c) {
+        return c == '{' || c == '}' || c == ';' || c == ',' || c == ':' || c == '>';
+    }
+
+    // --- XML ---
+
+    /**
+     * XML (csproj, xaml, resx, fxml...): удаляются комментарии и пробельные узлы между тегами,
+     * пробелы внутри тегов схлопываются. Пролог, DOCTYPE, CDATA и инструкции обработки сохраняются.
+     */
+    public static String minifyXml(String src) {
+        return minifyMarkup(src, false);
+    }
+
+    // --- HTML ---
+
+    /**
+     * HTML: как XML, но содержимое pre/textarea/script/style не трогается, условные комментарии
+     * IE сохраняются, а пробелы в тексте схлопываются до одного (отступы с переносом строки удаляются).
+     */
+    public static String minifyHtml(String src) {
+        return minifyMarkup(src, true);
+    }
+
+    private static final String[] HTML_RAW_ELEMENTS = {"pre", "textarea", "script", "style"};
+
+    private static String minifyMarkup(String src, boolean html) {
+        int n = src.length();
+        StringBuilder out = new StringBuilder(n);
+        int i = 0;
+        while (i < n) {
+            ConversionBudget.checkDeadline();
+            char c = src.charAt(i);
+            if (c != '<') {
+                int end = src.indexOf('<', i);
+                if (end < 0) end = n;
+                appendText(src, i, end, html, out);
+                i = end;
+                continue;
+            }
+
+            if (src.startsWith("<!--", i)) {
+                int end = src.indexOf("-->", i + 4);
+                end = (end < 0) ? n : end + 3;
+                if (html && src.startsWith("<!--[if", i)) out.append(src, i, end);
+                i = end;
+            } else if (src.startsWith("<![CDATA[", i)) {
+                int end = src.indexOf("]]>", i + 9);
+                end = (end < 0) ? n : end + 3;
+                out.append(src, i, end);
+                i = end;
+            } else if (src.startsWith("<?", i) || src.startsWith("<!", i)) {
+                // Пролог, инструкции обработки, DOCTYPE: переносим целиком
+                int end = src.indexOf('>', i);
+                end = (end < 0) ? n : end + 1;
+                out.append(src, i, end);
+                i = end;
+            } else {
+                int tagStart = out.length();
+                i = copyTag(src, i, out);
+                if (html) {
+                    String raw = rawElementName(out, tagStart);
+                    if (raw != null) {
+                        // Содержимое до закрывающего тега - как есть
+                        int close = indexOfIgnoreCase(src, "</" + raw, i);
+                        if (close < 0) close = n;
+                        out.append(src, i, close);
+                        i = close;
+                    }
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Копирует тег, схлопывая пробелы между атрибутами. Значения в кавычках не меняются.
+     * @return позиция после '>'
+     */
+    private static int copyTag(String src, int i, StringBuilder out) {
+        int n = src.length();
+        boolean pendingSpace = false;
+        out.append('<');
+        i++;
+        while (i < n) {
+            char c = src.charAt(i);
+            if (c == '"' || c == '\'') {
+                if (pendingSpace && out.charAt(out.length() - 1) != '=') out.append(' ');
+                pendingSpace = false;
+                // В XML/HTML обратный слэш не экранирует кавычку (пути Windows в атрибутах)
+                i = copyQuoted(src, i, c, false, out);
+                continue;
+            }
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '>' || c == '=' || (c == '/' && i + 1 < n && src.charAt(i + 1) == '>')) {
+                pendingSpace = false;
+            } else if (pendingSpace) {
+                char last = out.charAt(out.length() - 1);
+                if (last != '=' && last != '<') out.append(' ');
+                pendingSpace = false;
+            }
+            out.append(c);
+            i++;
+            if (c == '>') break;
+        }
+        return i;
+    }
+
+    private static void appendText(String src, int from, int to, boolean html, StringBuilder out) {
+        boolean allWhitespace = true;
+        for (int k = from; k < to; k++) {
+            if (!isWhitespace(src.charAt(k))) {
+                allWhitespace = false;
+                break;
+            }
+        }
+
+        if (allWhitespace) {
+            // Отступы форматирования между тегами. В HTML пробел без переноса строки
+            // разделяет inline-элементы, поэтому его оставляем.
+            int newline = src.indexOf('\n', from);
+            boolean hasNewline = newline >= 0 && newline < to;
+            if (html && to > from && !hasNewline) {
+                out.append(' ');
+            }
+            return;
+        }
+        if (!html) {
+            out.append(src, from, to);
+            return;
+        }
+
+        boolean pendingSpace = false;
+        for (int k = from; k < to; k++) {
+            char c = src.charAt(k);
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+            } else {
+                if (pendingSpace) out.append(' ');
+                pendingSpace = false;
+                out.append(c);
+            }
+        }
+        if (pendingSpace) out.append(' ');
+    }
+
+    /**
+     * Имя raw-элемента HTML, если только что скопированный тег открывает его (и не самозакрыт).
+     */
+    private static String rawElementName(StringBuilder out, int tagStart) {
+        if (tagStart + 1 >= out.length() || out.charAt(tagStart + 1) == '/') return null;
+        if (out.length() >= 2 && out.charAt(out.length() - 2) == '/') return null;
+        for (String name : HTML_RAW_ELEMENTS) {
+            int end = tagStart + 1 + name.length();
+            if (end > out.length()) continue;
+            if (!out.substring(tagStart + 1, end).equalsIgnoreCase(name)) continue;
+            char next = out.charAt(end);
+            if (next == '>' || next == ' ' || next == '/') return name;
+        }
+        return null;
+    }
+
+    // --- Общие помощники ---
+
+    /**
+     * Копирует строку в кавычках целиком.
+     * @param backslashEscapes true для JSON/CSS, где \" не закрывает строку
+     * @return позиция после закрывающей кавычки (или конец ввода)
+     */
+    private static int copyQuoted(String src, int i, char quote, boolean backslashEscapes, StringBuilder out) {
+        int n = src.length();
+        out.append(quote);
+        i++;
+        while (i < n) {
+            char c = src.charAt(i);
+            out.append(c);
+            i++;
+            if (backslashEscapes && c == '\\' && i < n) {
+                out.append(src.charAt(i));
+                i++;
+            } else if (c == quote) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int skipLine(String src, int i) {
+        int end = src.indexOf('\n', i);
+        return (end < 0) ? src.length() : end + 1;
+    }
+
+    private static int skipPast(String src, int i, String terminator) {
+        int end = src.indexOf(terminator, i);
+        return (end < 0) ? src.length() : end + terminator.length();
+    }
+
+    private static int indexOfIgnoreCase(String src, String needle, int from) {
+        int max = src.length() - needle.length();
+        for (int k = from; k <= max; k++) {
+            if (src.regionMatches(true, k, needle, 0, needle.length())) return k;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+}
@@ -0,0 +1,194 @@
+package TartarusCore.TxtConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Файлы, измененные относительно git-ссылки (ветка, тег, коммит), по данным локального git CLI:
+ * {@code git diff --name-status <ref>} плюс неотслеживаемые файлы ({@code git ls-files --others}).
+ *
+ * Пути относительные к корню источника (а не репозитория), с прямыми слэшами - как
+ * {@link FileRecord#getRelativePath()}. Сканирование в этом режиме проверяет только эти пути,
+ * поэтому экспорт стоит пропорционально изменению, а не размеру репозитория.
+ */
+public final class GitChangeSet {
+
+    public static final char ADDED = 'A';
+    public static final char MODIFIED = 'M';
+    public static final char DELETED = 'D';
+    public static final char RENAMED = 'R';
+    public static final char UNTRACKED = '?';
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final Path root;
+    private final String ref;
+    // Относительный путь -> статус (буква git diff --name-status или UNTRACKED)
+    private final Map<String, Character> statuses;
+
+    private GitChangeSet(Path root, String ref, Map<String, Character> statuses) {
+        this.root = root;
+        this.ref = ref;
+        this.statuses = statuses;
+    }
+
+    /**
+     * Запрашивает у git список изменений.
+     * @throws IOException если git не найден, папка не репозиторий или ссылка неизвестна
+     */
+    public static GitChangeSet load(Path root, String ref) throws IOException {
+        // Ссылка передается git аргументом: "-..." была бы воспринята как опция (например --output)
+        if (ref.isEmpty() || ref.startsWith("-")) throw new IOException("Invalid git ref: " + ref);
+        run(root, "git", "rev-parse", "--is-inside-work-tree");
+        try {
+            run(root, "git", "rev-parse", "--verify", "--quiet", ref + "^{commit}");
+        } catch (IOException e) {
+            throw new IOException("Unknown git ref: " + ref, e);
+        }
+
+        Map<String, Character> statuses = new LinkedHashMap<>();
+
+        // -z: пути без кавычек и экранирования; --relative: относительно root, изменения вне его не выводятся
+        List<String> fields = splitNul(run(root, "git", "diff", "--name-status", "--relative", "-z", ref, "--"));
+        int i = 0;
+        while (i < fields.size()) {
+            String status = fields.get(i++);
+            if (status.isEmpty() || i >= fields.size()) break;
+            char kind = status.charAt(0);
+            if (kind == RENAMED || kind == 'C') {
+                // R100 <старый путь> <новый путь>: старый считаем удаленным
+                String oldPath = fields.get(i++);
+                if (kind == RENAMED) statuses.put(oldPath, DELETED);
+                if (i < fields.size()) statuses.put(fields.get(i++), kind == RENAMED ? RENAMED : ADDED);
+            } else {
+                statuses.put(fields.get(i++), kind);
+            }
+        }
+
+        for (String path : splitNul(run(root, "git", "ls-files", "--others", "--exclude-standard", "-z"))) {
+            if (!path.isEmpty()) statuses.putIfAbsent(path, UNTRACKED);
+        }
+        return new GitChangeSet(root, ref, statuses);
+    }
+
+    /**
+     * Единый diff относительно ссылки (неотслеживаемые файлы в него не входят - они выводятся целиком).
+     */
+    public String readDiff() throws IOException {
+        return run(root, "git", "diff", "--relative", "--no-color", ref, "--");
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    /** Статус файла или 0, если файл не менялся. */
+    public char getStatus(String relativePath) {
+        Character status = statuses.get(relativePath);
+        return (status != null) ? status : 0;
+    }
+
+    public boolean contains(String relativePath) {
+        return statuses.containsKey(relativePath);
+    }
+
+    /** Все измененные пути, включая удаленные. */
+    public Map<String, Character> getStatuses() {
+        return Collections.unmodifiableMap(statuses);
+    }
+
+    public List<String> getDeletedPaths() {
+        List<String> deleted = new ArrayList<>();
+        statuses.forEach((path, status) -> {
+            if (status == DELETED) deleted.add(path);
+        });
+        return deleted;
+    }
+
+    private static List<String> splitNul(String output) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < output.length(); i++) {
+            if (output.charAt(i) == '\0') {
+                result.add(output.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < output.length()) result.add(output.substring(start));
+        return result;
+    }
+
+    private static String run(Path dir, String... command) throws IOException {
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).start();
+        // Оба потока читаем в своих потоках, а ждем с таймаутом: зависший git не должен
+        // блокировать экспорт, а заполненный буфер stderr - самого git
+        CompletableFuture<byte[]> stdout = drain(process.getInputStream(), "git-stdout");
+        CompletableFuture<byte[]> stderr = drain(process.getErrorStream(), "git-stderr");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        byte[] output;
+        try {
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                kill(process);
+                throw new IOException("git timed out: " + String.join(" ", command));
+            }
+            // Вывод дочитывается после выхода git; держать канал могут только его потомки
+            output = stdout.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            kill(process);
+            Thread.currentThread().interrupt();
+            throw new IOException("git interrupted", e);
+        } catch (TimeoutException e) {
+            kill(process);
+            throw new IOException("git timed out: " + String.join(" ", command));
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof IOException io) ? io : new IOException(e.getCause());
+        }
+        if (process.exitValue() != 0) {
+            // Первой строки достаточно: дальше git обычно печатает справку по использованию
+            byte[] errors = stderr.completeOnTimeout(new byte[0], 1, TimeUnit.SECONDS).exceptionally(e -> new byte[0]).join();
+            String message = new String(errors, StandardCharsets.UTF_8).trim().lines().findFirst().orElse("");
+            throw new IOException(message.isEmpty()
+                    ? "git " + command[1] + " failed (exit code " + process.exitValue() + ")" : message);
+        }
+        return new String(output, StandardCharsets.UTF_8);
+    }
+
+    /** Читает поток до конца в отдельном потоке-демоне; закрывает его по завершении. */
+    private static CompletableFuture<byte[]> drain(InputStream in, String name) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        Thread reader = new Thread(() -> {
+            try (in) {
+                result.complete(readAll(in));
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        }, name);
+        reader.setDaemon(true);
+        reader.start();
+        return result;
+    }
+
+    /** Убивает git вместе с потомками: иначе они держат открытыми каналы вывода. */
+    private static void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toByteArray();
+    }
+}
@@ -43,11 +43,9 @@ public class GodotCompactConverter {
             "uid", "load_steps", "format", "q_index", "node_paths", "skeleton"
     );
 
-    private static final DecimalFormat FLOAT_FMT;
-    static {
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-        FLOAT_FMT = new DecimalFormat("0.##", symbols);
-    }
+    // DecimalFormat не потокобезопасен, а конвертер вызывается параллельно (оценка размера)
+    private static final ThreadLocal<DecimalFormat> FLOAT_FMT =
+            ThreadLocal.withInitial(() -> new DecimalFormat("0.##", new DecimalFormatSymbols(Locale.US)));
 
     // --- State ---
     private final Map<String, String> extResourceAliases = new HashMap<>();
@@ -85,6 +83,7 @@ public class GodotCompactConverter {
 
         // Pass 1: Extract External Resources
         for (String line : lines) {
+            ConversionBudget.checkDeadline();
             line = line.trim();
             if (line.startsWith("[ext_resource")) {
                 Map<String, String> attrs = parseAttributes(extractContent(line));
@@ -108,6 +107,7 @@ public class GodotCompactConverter {
         // Pass 2: Build Node Tree
         GdNode currentNode = null;
         for (String line : lines) {
+            ConversionBudget.checkDeadline();
             line = line.trim();
             if (line.isEmpty() || line.startsWith(";") || line.startsWith("#")) continue;
 
@@ -179,6 +179,7 @@ public class GodotCompactConverter {
 
     private void optimizeTree(List<GdNode> nodes) {
         if (nodes == null || nodes.isEmpty()) return;
+        ConversionBudget.checkDeadline();
 
         for (GdNode node : nodes) {
             optimizeTree(node.children);
@@ -243,6 +244,7 @@ public class GodotCompactConverter {
     // --- Printing ---
 
     private void printNode(GdNode node, String indent) {
+        ConversionBudget.checkDeadline();
         output.append(indent);
 
         String typeAbbr = abbreviateType(node.type);
@@ -356,6 +358,9 @@ public class GodotCompactConverter {
     }
 
     private String formatSubResourceInline(GdNode node) {
+        // Циклические ссылки между sub_resource дают бесконечную рекурсию:
+        // ее останавливает бюджет времени или StackOverflowError (ConversionBudget)
+        ConversionBudget.checkDeadline();
         StringBuilder sb = new StringBuilder();
         // Use Type Abbreviation
         sb.append(abbreviateType(node.type)).append("{");
@@ -397,7 +402,7 @@ public class GodotCompactConverter {
             if (d == Math.floor(d) && !Double.isInfinite(d)) {
                 return String.valueOf((int)d);
             }
-            return FLOAT_FMT.format(d);
+            return FLOAT_FMT.get().format(d);
         } catch (Exception e) {
             return numStr.trim();
         }
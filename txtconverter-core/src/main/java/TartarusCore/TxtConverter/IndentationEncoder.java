@@ -0,0 +1,269 @@
+package TartarusCore.TxtConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Режим MAXIMUM для файлов, где отступы значимы (FileKind.WHITESPACE_SENSITIVE):
+ * удаление комментариев и пустых строк и перекодирование отступов за один проход по строкам.
+ *
+ * Перекодирование без потерь. В Python и GDScript отступ строки важен только в сравнении
+ * с отступами открытых блоков (больше, равно, меньше), в YAML - в сравнении колонок. Поэтому
+ * при проходе собираются все ширины отступов файла, и каждая заменяется своим номером по возрастанию
+ * (уровнем): в Python/GDScript уровень кодируется табом, в YAML (табы там запрещены) - пробелом.
+ * Шаг отступа определять не нужно: 4 пробела на уровень, 2 или вперемешку дают одни и те же уровни.
+ * В YAML после "- " содержимое элемента стоит на своей колонке, и вложенные строки выравниваются
+ * по ней, поэтому между '-' и содержимым остается столько пробелов, сколько нужно до ее нового номера.
+ *
+ * Не перекодируются: строки внутри многострочных строк ("""...""", продолжение через '\') - это
+ * содержимое; продолжения выражений в скобках и после '\' получают уровень своей строки плюс один
+ * (их отступ ни на что не влияет). Файл с табами в отступах и YAML с блочными скалярами (| и >),
+ * где отступ внутри текста входит в значение, выводятся с отступами как есть.
+ *
+ * Удаляются только пустые строки и комментарии '#' вне строковых литералов и блочных скаляров:
+ * внутри них пустые строки, '#' и хвостовые пробелы - часть значения и выводятся дословно.
+ */
+final class IndentationEncoder {
+
+    // Индикатор блочного скаляра в конце строки: "key: |", "- >-", "key: |2 # comment"
+    private static final Pattern BLOCK_SCALAR = Pattern.compile("(?:^|[\\s:-])[|>][-+0-9]*\\s*(?:#.*)?$");
+
+    private static final byte STRUCTURAL = 0;   // отступ определяет блок
+    private static final byte CONTINUATION = 1; // продолжение выражения: отступ не важен
+    private static final byte VERBATIM = 2;     // внутри многострочной строки: выводится как есть
+
+    private IndentationEncoder() {}
+
+    /** Строка, оставшаяся после удаления комментариев. */
+    private static final class Line {
+        final String original;  // без хвостовых пробелов, для вывода как есть
+        final byte kind;
+        final int[] columns;    // колонки '-' в начале строки (YAML), затем колонка содержимого
+        final String text;      // содержимое после отступа и "- "
+        final int owner;        // для продолжения: ширина отступа строки, которую оно продолжает
+
+        Line(String original, byte kind, int[] columns, String text, int owner) {
+            this.original = original;
+            this.kind = kind;
+            this.columns = columns;
+            this.text = text;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * @param yaml YAML (в том числе ассеты Unity); иначе Python/GDScript
+     */
+    static String compress(String content, boolean yaml) {
+        String[] lines = content.split("\\R");
+        List<Line> kept = new ArrayList<>(lines.length);
+        CodeScanner scanner = yaml ? null : new CodeScanner();
+        boolean encodable = true;
+        int maxColumn = 0;
+        int owner = 0;
+        int scalarIndent = -1; // YAML: отступ строки с открытым блочным скаляром (-1 - его нет)
+
+        for (String raw : lines) {
+            ConversionBudget.checkDeadline();
+            String line = ContentCompressor.stripTrailing(raw);
+            int indent = indentWidth(line);
+            if (scalarIndent >= 0 && (indent == line.length() || indent > scalarIndent)) {
+                // Содержимое блочного скаляра: пустые строки и '#' в нем - текст значения
+                kept.add(new Line(raw, VERBATIM, null, null, 0));
+                continue;
+            }
+            scalarIndent = -1;
+            boolean insideString = scanner != null && scanner.insideString();
+            boolean continuation = scanner != null && scanner.continuesExpression();
+            if (!insideString && (indent == line.length() || line.startsWith("#", indent))) continue;
+            if (scanner != null) {
+                scanner.scan(line, indent);
+                // Хвостовые пробелы строки, которая начинается или заканчивается внутри строкового литерала, - его содержимое
+                if (insideString || scanner.insideString()) line = raw;
+            }
+
+            if (insideString) {
+                kept.add(new Line(line, VERBATIM, null, null, 0));
+                continue;
+            }
+            if (continuation) {
+                kept.add(new Line(line, CONTINUATION, null, line.substring(indent), owner));
+                continue;
+            }
+            if (line.substring(0, indent).indexOf('\t') >= 0) encodable = false;
+            if (yaml && BLOCK_SCALAR.matcher(line).find()) {
+                encodable = false;
+                scalarIndent = indent;
+            }
+
+            int[] columns = yaml ? sequenceColumns(line, indent) : new int[] {indent};
+            int content0 = columns[columns.length - 1];
+            kept.add(new Line(line, STRUCTURAL, columns, line.substring(Math.min(content0, line.length())), 0));
+            maxColumn = Math.max(maxColumn, content0);
+            owner = indent;
+        }
+
+        StringBuilder sb = new StringBuilder(content.length() / 2);
+        if (!encodable) {
+            for (Line line : kept) sb.append(line.original).append("\n");
+            return sb.toString().trim();
+        }
+
+        int[] levels = levels(kept, maxColumn);
+        char unit = yaml ? ' ' : '\t';
+        for (Line line : kept) {
+            switch (line.kind) {
+                case VERBATIM -> sb.append(line.original);
+                case CONTINUATION -> repeat(sb, unit, levels[line.owner] + 1).append(line.text);
+                default -> {
+                    int[] columns = line.columns;
+                    repeat(sb, unit, levels[columns[0]]);
+                    // Между '-' и следующей колонкой: '-' занимает одну, остальное - пробелы
+                    for (int i = 0; i + 1 < columns.length; i++) {
+                        sb.append('-');
+                        repeat(sb, ' ', levels[columns[i + 1]] - levels[columns[i]] - 1);
+                    }
+                    sb.append(line.text);
+                }
+            }
+            sb.append("\n");
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Новые колонки по возрастанию старых: каждая использованная колонка - следующий номер,
+     * но содержимое после '-' не ближе чем через одну колонку от него.
+     */
+    private static int[] levels(List<Line> kept, int maxColumn) {
+        boolean[] used = new boolean[maxColumn + 1];
+        // Для колонки: наибольшая колонка '-', за которой она идет в той же строке (-1 - нет)
+        int[] afterDash = new int[maxColumn + 1];
+        java.util.Arrays.fill(afterDash, -1);
+        for (Line line : kept) {
+            if (line.kind != STRUCTURAL) continue;
+            int[] columns = line.columns;
+            used[columns[0]] = true;
+            for (int i = 1; i < columns.length; i++) {
+                used[columns[i]] = true;
+                afterDash[columns[i]] = Math.max(afterDash[columns[i]], columns[i - 1]);
+            }
+        }
+        int[] levels = new int[maxColumn + 1];
+        int next = 0;
+        for (int column = 0; column <= maxColumn; column++) {
+            if (!used[column]) continue;
+            int level = next;
+            if (afterDash[column] >= 0) level = Math.max(level, levels[afterDash[column]] + 2);
+            levels[column] = level;
+            next = level + 1;
+        }
+        return levels;
+    }
+
+    /**
+     * Колонки элемента последовательности YAML: каждый '-' в начале строки ("- - a") и содержимое.
+     * Для строки без '-' - только отступ.
+     */
+    private static int[] sequenceColumns(String line, int indent) {
+        int[] columns = new int[4];
+        int count = 0;
+        int pos = indent;
+        while (pos < line.length() && line.charAt(pos) == '-'
+                && (pos + 1 == line.length() || line.charAt(pos + 1) == ' ')) {
+            if (count == columns.length - 1) columns = java.util.Arrays.copyOf(columns, count * 2);
+            columns[count++] = pos;
+            pos++;
+            while (pos < line.length() && line.charAt(pos) == ' ') pos++;
+        }
+        if (count > 0 && pos == line.length()) {
+            // Строка "-" без содержимого: вложенные строки ниже просто глубже
+            return java.util.Arrays.copyOf(columns, count);
+        }
+        columns[count++] = pos;
+        return java.util.Arrays.copyOf(columns, count);
+    }
+
+    private static int indentWidth(String line) {
+        int i = 0;
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) i++;
+        return i;
+    }
+
+    private static StringBuilder repeat(StringBuilder sb, char c, int count) {
+        for (int i = 0; i < count; i++) sb.append(c);
+        return sb;
+    }
+
+    /**
+     * Состояние лексера Python/GDScript между строками: открытые строки, скобки и '\' в конце строки.
+     * Строки с префиксами (r"", f"", &"", ^"") разбираются как обычные: для границ строк этого достаточно.
+     */
+    private static final class CodeScanner {
+        private char tripleQuote = 0;   // открытая """ или '''
+        private char singleQuote = 0;   // открытая " или ', продолженная через '\'
+        private int depth = 0;          // открытые ( [ {
+        private boolean backslash = false;
+
+        boolean insideString() {
+            return tripleQuote != 0 || singleQuote != 0;
+        }
+
+        boolean continuesExpression() {
+            return depth > 0 || backslash;
+        }
+
+        void scan(String line, int from) {
+            backslash = false;
+            int len = line.length();
+            int i = from;
+            while (i < len) {
+                char c = line.charAt(i);
+                if (tripleQuote != 0) {
+                    if (c == '\\') {
+                        i += 2;
+                    } else if (c == tripleQuote && line.startsWith(triple(c), i)) {
+                        tripleQuote = 0;
+                        i += 3;
+                    } else {
+                        i++;
+                    }
+                    continue;
+                }
+                if (singleQuote != 0) {
+                    if (c == '\\') {
+                        // '\' в конце строки продолжает строковый литерал на следующей строке
+                        if (i + 1 == len) return;
+                        i += 2;
+                    } else {
+                        if (c == singleQuote) singleQuote = 0;
+                        i++;
+                    }
+                    continue;
+                }
+                if (c == '#') break;
+                if (c == '"' || c == '\'') {
+                    if (line.startsWith(triple(c), i)) {
+                        tripleQuote = c;
+                        i += 3;
+                    } else {
+                        singleQuote = c;
+                        i++;
+                    }
+                    continue;
+                }
+                if (c == '(' || c == '[' || c == '{') depth++;
+                else if ((c == ')' || c == ']' || c == '}') && depth > 0) depth--;
+                else if (c == '\\' && i + 1 == len) backslash = true;
+                i++;
+            }
+            // Незакрытая обычная строка без '\' - ошибка в исходнике, дальше не переносим
+            singleQuote = 0;
+        }
+
+        private static String triple(char quote) {
+            return quote == '"' ? "\"\"\"" : "'''";
+        }
+    }
+}
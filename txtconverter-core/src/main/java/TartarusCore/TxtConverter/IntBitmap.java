@@ -0,0 +1,167 @@
+package TartarusCore.TxtConverter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Неизменяемое множество 32-битных чисел в духе Roaring bitmap.
+ *
+ * Числа делятся по старшим 16 битам на контейнеры. Разреженный контейнер хранит
+ * отсортированные младшие 16 бит (2 байта на число), плотный (больше ARRAY_LIMIT чисел) -
+ * битовую карту на 65536 бит. Поиск - двоичный поиск контейнера и затем числа в нем.
+ */
+public final class IntBitmap {
+
+    public static final IntBitmap EMPTY = new IntBitmap(new char[0], new Object[0], 0);
+
+    // Начиная с этого размера битовая карта (8 КБ) не больше массива
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 65536 / 64;
+
+    private final char[] keys;
+    // char[] (отсортированные младшие биты) или long[BITMAP_WORDS]
+    private final Object[] containers;
+    private final int size;
+
+    private IntBitmap(char[] keys, Object[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /** Множество из произвольных чисел (порядок и повторы не важны). */
+    public static IntBitmap of(int[] values) {
+        if (values.length == 0) return EMPTY;
+        // Сортировка без знака: инвертируем старший бит, сортируем, возвращаем бит
+        int[] sorted = new int[values.length];
+        for (int i = 0; i < values.length; i++) sorted[i] = values[i] ^ Integer.MIN_VALUE;
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[distinct - 1]) sorted[distinct++] = sorted[i];
+        }
+        for (int i = 0; i < distinct; i++) sorted[i] ^= Integer.MIN_VALUE;
+
+        char[] keys = new char[distinct];
+        Object[] containers = new Object[distinct];
+        int count = 0;
+        int from = 0;
+        while (from < distinct) {
+            int high = sorted[from] >>> 16;
+            int to = from;
+            while (to < distinct && sorted[to] >>> 16 == high) to++;
+            keys[count] = (char) high;
+            containers[count] = container(sorted, from, to);
+            count++;
+            from = to;
+        }
+        return new IntBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count), distinct);
+    }
+
+    private static Object container(int[] sorted, int from, int to) {
+        if (to - from > ARRAY_LIMIT) {
+            long[] bits = new long[BITMAP_WORDS];
+            for (int i = from; i < to; i++) {
+                int low = sorted[i] & 0xFFFF;
+                bits[low >>> 6] |= 1L << low;
+            }
+            return bits;
+        }
+        char[] lows = new char[to - from];
+        for (int i = from; i < to; i++) lows[i - from] = (char) sorted[i];
+        return lows;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (index < 0) return false;
+        Object container = containers[index];
+        char low = (char) value;
+        if (container instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, low) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Все числа по возрастанию (без знака). */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int k = 0; k < keys.length; k++) {
+            int high = keys[k] << 16;
+            if (containers[k] instanceof long[] bits) {
+                for (int word = 0; word < bits.length; word++) {
+                    long w = bits[word];
+                    while (w != 0) {
+                        result[n++] = high | (word << 6) | Long.numberOfTrailingZeros(w);
+                        w &= w - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) containers[k]) result[n++] = high | low;
+            }
+        }
+        return result;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(keys.length);
+        for (int k = 0; k < keys.length; k++) {
+            out.writeChar(keys[k]);
+            if (containers[k] instanceof long[] bits) {
+                out.writeInt(cardinality(bits));
+                for (long word : bits) out.writeLong(word);
+            } else {
+                char[] lows = (char[]) containers[k];
+                out.writeInt(lows.length);
+                for (char low : lows) out.writeChar(low);
+            }
+        }
+    }
+
+    public static IntBitmap read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 65536) throw new IOException("Corrupted bitmap");
+        char[] keys = new char[count];
+        Object[] containers = new Object[count];
+        int size = 0;
+        for (int k = 0; k < count; k++) {
+            keys[k] = in.readChar();
+            if (k > 0 && keys[k] <= keys[k - 1]) throw new IOException("Corrupted bitmap");
+            int cardinality = in.readInt();
+            if (cardinality <= 0 || cardinality > 65536) throw new IOException("Corrupted bitmap");
+            if (cardinality > ARRAY_LIMIT) {
+                long[] bits = new long[BITMAP_WORDS];
+                for (int i = 0; i < bits.length; i++) bits[i] = in.readLong();
+                if (cardinality(bits) != cardinality) throw new IOException("Corrupted bitmap");
+                containers[k] = bits;
+            } else {
+                char[] lows = new char[cardinality];
+                for (int i = 0; i < lows.length; i++) {
+                    lows[i] = in.readChar();
+                    if (i > 0 && lows[i] <= lows[i - 1]) throw new IOException("Corrupted bitmap");
+                }
+                containers[k] = lows;
+            }
+            size += cardinality;
+        }
+        return new IntBitmap(keys, containers, size);
+    }
+
+    private static int cardinality(long[] bits) {
+        int n = 0;
+        for (long word : bits) n += Long.bitCount(word);
+        return n;
+    }
+}
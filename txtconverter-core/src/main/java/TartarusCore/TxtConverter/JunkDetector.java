@@ -0,0 +1,129 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Быстрое распознавание файлов, бесполезных в контексте LLM: lock-файлы, минифицированные
+ * и собранные бандлы, source map, сгенерированный код.
+ *
+ * Сначала проверяется имя, затем читается только начало файла (SAMPLE_SIZE байт):
+ * - маркеры генераторов ("auto-generated", "@generated", "DO NOT EDIT"...) в первых строках;
+ * - средняя и максимальная длина строки (минификация склеивает все в одну строку);
+ * - энтропия байтов при почти полном отсутствии пробелов (base64, встроенные данные).
+ */
+public final class JunkDetector {
+
+    private static final int SAMPLE_SIZE = 8 * 1024;
+    private static final int MARKER_ZONE = 1024;
+    // Короткие файлы не оцениваем по содержимому: статистики по паре строк недостаточно
+    private static final int MIN_CONTENT_SAMPLE = 512;
+
+    private static final int MAX_AVG_LINE_LENGTH = 300;
+    private static final int MAX_LINE_LENGTH = 2000;
+    private static final double MIN_ENTROPY_BITS = 5.6;
+    private static final double MAX_WHITESPACE_RATIO = 0.02;
+
+    private static final Set<String> LOCKFILE_NAMES = Set.of(
+            "package-lock.json", "npm-shrinkwrap.json", "yarn.lock", "pnpm-lock.yaml", "bun.lockb",
+            "composer.lock", "poetry.lock", "pipfile.lock", "cargo.lock", "gemfile.lock",
+            "packages.lock.json", "paket.lock", "podfile.lock", "go.sum", "pubspec.lock", "flake.lock");
+
+    private static final String[] GENERATED_SUFFIXES = {
+            ".designer.cs", ".g.cs", ".g.i.cs", ".generated.cs", ".assemblyinfo.cs",
+            ".bundle.js", ".chunk.js", "_pb2.py", "_pb2_grpc.py", ".pb.go", ".pb.cc", ".pb.h"};
+
+    private static final String[] GENERATED_MARKERS = {
+            "<auto-generated", "auto-generated", "autogenerated", "@generated", "do not edit",
+            "this file was generated", "this file is generated", "code generated by"};
+
+    private JunkDetector() {}
+
+    /**
+     * @param path Файл на диске
+     * @param lowerName Имя файла в нижнем регистре
+     * @param size Размер из атрибутов сканирования
+     * @return причина или null, если файл выглядит как обычный исходник
+     */
+    public static JunkReason detect(Path path, String lowerName, long size) {
+        JunkReason byName = detectByName(lowerName);
+        if (byName != null || size == 0) return byName;
+
+        byte[] head;
+        try (InputStream in = Files.newInputStream(path)) {
+            head = in.readNBytes(SAMPLE_SIZE);
+        } catch (IOException e) {
+            return null;
+        }
+        // В прозе (.md, .txt) абзац - одна длинная строка, это не признак минификации
+        boolean prose = lowerName.endsWith(".md") || lowerName.endsWith(".txt");
+        return detectByContent(head, !prose);
+    }
+
+    static JunkReason detectByName(String lowerName) {
+        if (LOCKFILE_NAMES.contains(lowerName)) return JunkReason.LOCKFILE;
+        if (lowerName.endsWith(".map")) return JunkReason.SOURCE_MAP;
+        if (lowerName.endsWith(".min.js") || lowerName.endsWith(".min.mjs") || lowerName.endsWith(".min.css")) {
+            return JunkReason.MINIFIED_NAME;
+        }
+        for (String suffix : GENERATED_SUFFIXES) {
+            if (lowerName.endsWith(suffix)) return JunkReason.GENERATED_NAME;
+        }
+        return null;
+    }
+
+    static JunkReason detectByContent(byte[] head, boolean checkLineLength) {
+        int markerLength = Math.min(head.length, MARKER_ZONE);
+        // ISO-8859-1 - байт в символ без проверок, маркеры все равно ASCII
+        String zone = new String(head, 0, markerLength, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        for (String marker : GENERATED_MARKERS) {
+            if (zone.contains(marker)) return JunkReason.GENERATED_MARKER;
+        }
+
+        if (head.length < MIN_CONTENT_SAMPLE) return null;
+
+        int lines = 1;
+        int currentLine = 0;
+        int longestLine = 0;
+        int whitespace = 0;
+        int[] counts = new int[256];
+        for (byte b : head) {
+            int v = b & 0xff;
+            counts[v]++;
+            if (v == '\n') {
+                lines++;
+                longestLine = Math.max(longestLine, currentLine);
+                currentLine = 0;
+            } else {
+                currentLine++;
+            }
+            if (v == ' ' || v == '\t' || v == '\n' || v == '\r') whitespace++;
+        }
+        longestLine = Math.max(longestLine, currentLine);
+
+        if (checkLineLength && (longestLine > MAX_LINE_LENGTH || head.length / lines > MAX_AVG_LINE_LENGTH)) {
+            return JunkReason.LONG_LINES;
+        }
+
+        if ((double) whitespace / head.length < MAX_WHITESPACE_RATIO && entropy(counts, head.length) > MIN_ENTROPY_BITS) {
+            return JunkReason.HIGH_ENTROPY;
+        }
+        return null;
+    }
+
+    /** Энтропия Шеннона распределения байтов, бит на байт. */
+    private static double entropy(int[] counts, int total) {
+        double result = 0;
+        for (int count : counts) {
+            if (count == 0) continue;
+            double p = (double) count / total;
+            result -= p * (Math.log(p) / Math.log(2));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Что делать с файлами, которые JunkDetector признал сгенерированными/минифицированными.
+ */
+public enum JunkPolicy {
+    /** Обрабатывать как обычные файлы. */
+    INCLUDE,
+    /** Копировать, но в общий файл включать заглушкой (снимаются с выбора после сканирования). */
+    STUB,
+    /** Не копировать и не включать в общий файл; остаются только в отчете о структуре. */
+    EXCLUDE
+}
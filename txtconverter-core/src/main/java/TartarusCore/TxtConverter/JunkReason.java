@@ -0,0 +1,25 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Почему файл признан "мусором" для LLM-контекста (см. JunkDetector).
+ */
+public enum JunkReason {
+    LOCKFILE("lockfile"),
+    MINIFIED_NAME("minified"),
+    SOURCE_MAP("source map"),
+    GENERATED_NAME("generated"),
+    GENERATED_MARKER("generated marker"),
+    LONG_LINES("long lines"),
+    HIGH_ENTROPY("high entropy");
+
+    private final String tag;
+
+    JunkReason(String tag) {
+        this.tag = tag;
+    }
+
+    /** Короткая метка для дерева выбора и отчета о структуре. */
+    public String getTag() {
+        return tag;
+    }
+}
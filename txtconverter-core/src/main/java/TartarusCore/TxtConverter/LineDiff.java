@@ -0,0 +1,141 @@
+package TartarusCore.TxtConverter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Построчный diff (алгоритм Майерса, O((N+M)·D)) с ограничением на число правок.
+ * Формат вывода компактный, без строк контекста:
+ * <pre>
+ * @@ 12,14
+ * - удаленная строка
+ * + добавленная строка
+ * </pre>
+ * где 12 и 14 - номера строк в исходном и новом тексте (с единицы).
+ */
+public final class LineDiff {
+
+    private static final byte EQUAL = 0;
+    private static final byte DELETE = 1;
+    private static final byte INSERT = 2;
+
+    private LineDiff() {}
+
+    /**
+     * @param maxEdits Максимум удаленных+добавленных строк; при превышении diff не строится
+     * @return diff (пустая строка, если тексты совпадают) или null, если правок больше maxEdits
+     */
+    public static String diff(String original, String revised, int maxEdits) {
+        String[] a = original.split("\n", -1);
+        String[] b = revised.split("\n", -1);
+
+        // Строки -> id, чтобы сравнивать int, а не строки
+        Map<String, Integer> ids = new HashMap<>();
+        int[] x = toIds(a, ids);
+        int[] y = toIds(b, ids);
+
+        int prefix = 0;
+        while (prefix < x.length && prefix < y.length && x[prefix] == y[prefix]) prefix++;
+        int suffix = 0;
+        while (suffix < x.length - prefix && suffix < y.length - prefix
+                && x[x.length - 1 - suffix] == y[y.length - 1 - suffix]) suffix++;
+
+        int n = x.length - prefix - suffix;
+        int m = y.length - prefix - suffix;
+        if (n == 0 && m == 0) return "";
+        if (Math.abs(n - m) > maxEdits) return null;
+
+        List<int[]> trace = new ArrayList<>();
+        int max = Math.min(n + m, maxEdits);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        int found = -1;
+
+        outer:
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int px = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]))
+                        ? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int py = px - k;
+                while (px < n && py < m && x[prefix + px] == y[prefix + py]) {
+                    px++;
+                    py++;
+                }
+                v[offset + k] = px;
+                if (px >= n && py >= m) {
+                    found = d;
+                    break outer;
+                }
+            }
+        }
+        if (found < 0) return null;
+
+        // Обратный проход: восстанавливаем последовательность операций с конца
+        byte[] ops = new byte[n + m];
+        int opCount = 0;
+        int px = n, py = m;
+        for (int d = found; d > 0; d--) {
+            int[] prev = trace.get(d);
+            int k = px - py;
+            int prevK = (k == -d || (k != d && prev[offset + k - 1] < prev[offset + k + 1])) ? k + 1 : k - 1;
+            int prevX = prev[offset + prevK];
+            int prevY = prevX - prevK;
+            while (px > prevX && py > prevY) {
+                ops[opCount++] = EQUAL;
+                px--;
+                py--;
+            }
+            ops[opCount++] = (px == prevX) ? INSERT : DELETE;
+            px = prevX;
+            py = prevY;
+        }
+        while (px > 0 && py > 0) {
+            ops[opCount++] = EQUAL;
+            px--;
+            py--;
+        }
+
+        return format(ops, opCount, a, b, prefix);
+    }
+
+    private static String format(byte[] reversedOps, int opCount, String[] a, String[] b, int prefix) {
+        StringBuilder sb = new StringBuilder();
+        int ai = prefix, bi = prefix;
+        boolean inHunk = false;
+        for (int i = opCount - 1; i >= 0; i--) {
+            byte op = reversedOps[i];
+            if (op == EQUAL) {
+                ai++;
+                bi++;
+                inHunk = false;
+                continue;
+            }
+            if (!inHunk) {
+                sb.append("@@ ").append(ai + 1).append(',').append(bi + 1).append('\n');
+                inHunk = true;
+            }
+            if (op == DELETE) {
+                sb.append("- ").append(a[ai++]).append('\n');
+            } else {
+                sb.append("+ ").append(b[bi++]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int[] toIds(String[] lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            Integer id = ids.get(lines[i]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(lines[i], id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+}
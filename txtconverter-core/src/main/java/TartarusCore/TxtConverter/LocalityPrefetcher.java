@@ -0,0 +1,204 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Упреждающее чтение в порядке расположения файлов на диске (для HDD и сетевых папок).
+ *
+ * Конвертер читает файлы в порядке вывода (по путям), а на вращающемся диске это случайные
+ * переходы головки. Здесь файлы прохода делятся на окна по WINDOW_FILES / WINDOW_BYTES
+ * в порядке вывода; внутри окна фоновый поток читает их по возрастанию (устройство, inode)
+ * из {@link FileRecord#getFileKey()}, прогревая кэш ОС. Конвертер по-прежнему идет в порядке
+ * вывода и перед каждым файлом ждет ({@link #awaitReady}), пока его окно прочитано.
+ * Поток опережает конвертер не больше чем на одно окно, поэтому число незавершенных чтений
+ * и объем прогретых, но еще не использованных данных ограничены.
+ *
+ * Ключ файла есть только у локальной ФС (в архиве и на части систем его нет) -
+ * тогда упреждающее чтение не запускается.
+ */
+public final class LocalityPrefetcher implements AutoCloseable {
+
+    private static final int WINDOW_FILES = 256;
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+    private static final int READ_BUFFER = 256 * 1024;
+
+    private final List<FileRecord> records;
+    private final int[] windowOf;          // позиция в records -> окно (-1 - файл не читается)
+    private final List<int[]> windows;     // позиции файлов окна в порядке чтения
+    private final Object lock = new Object();
+    private final Thread thread;
+    private int prefetched = 0;            // окна [0, prefetched) прочитаны
+    private int consumed = 0;              // окно, в котором сейчас конвертер
+    private boolean finished = false;
+    private volatile boolean closed = false;
+
+    private LocalityPrefetcher(List<FileRecord> records, int[] windowOf, List<int[]> windows) {
+        this.records = records;
+        this.windowOf = windowOf;
+        this.windows = windows;
+        this.thread = new Thread(this::run, "locality-prefetch");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Запускает упреждающее чтение для прохода по records.
+     * @param willRead какие файлы проход действительно читает (остальные пропускаются)
+     * @return null, если у файлов нет ключей ФС и упорядочивать нечего
+     */
+    public static LocalityPrefetcher start(List<FileRecord> records, Predicate<FileRecord> willRead) {
+        int[] windowOf = new int[records.size()];
+        Arrays.fill(windowOf, -1);
+        List<int[]> windows = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        long currentBytes = 0;
+        boolean hasKeys = false;
+
+        for (int pos = 0; pos < records.size(); pos++) {
+            FileRecord record = records.get(pos);
+            if (!willRead.test(record)) continue;
+            hasKeys |= record.getFileKey() != null;
+            windowOf[pos] = windows.size();
+            current.add(pos);
+            currentBytes += record.getSize();
+            if (current.size() >= WINDOW_FILES || currentBytes >= WINDOW_BYTES) {
+                windows.add(localityOrder(records, current));
+                current.clear();
+                currentBytes = 0;
+            }
+        }
+        if (!current.isEmpty()) windows.add(localityOrder(records, current));
+        if (!hasKeys) return null;
+
+        LocalityPrefetcher prefetcher = new LocalityPrefetcher(records, windowOf, windows);
+        prefetcher.thread.start();
+        return prefetcher;
+    }
+
+    /**
+     * Ждет, пока прочитано окно файла на позиции position (для файлов вне прохода не ждет).
+     * Прерывание потока не бросается: отмену задачи проверяет вызывающий код.
+     */
+    public void awaitReady(int position) {
+        int window = windowOf[position];
+        if (window < 0) return;
+        synchronized (lock) {
+            if (window > consumed) {
+                consumed = window;
+                lock.notifyAll();
+            }
+            try {
+                while (prefetched <= window && !finished) lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER);
+        try {
+            for (int w = 0; w < windows.size() && !closed; w++) {
+                synchronized (lock) {
+                    // Не больше одного окна впереди конвертера
+                    while (w > consumed + 1 && !closed) lock.wait();
+                }
+                for (int pos : windows.get(w)) {
+                    if (closed) return;
+                    readFully(records.get(pos), buffer);
+                }
+                synchronized (lock) {
+                    prefetched = w + 1;
+                    lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // close()
+        } finally {
+            synchronized (lock) {
+                finished = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /** Читает файл целиком только ради кэша ОС; содержимое отбрасывается. */
+    private static void readFully(FileRecord record, ByteBuffer buffer) {
+        try (FileChannel channel = FileChannel.open(record.getPath(), StandardOpenOption.READ)) {
+            do {
+                buffer.clear();
+            } while (channel.read(buffer) >= 0);
+        } catch (IOException e) {
+            // Недоступный файл конвертер обработает сам при обычном чтении
+        }
+    }
+
+    /**
+     * Файлы в порядке (устройство, inode); файлы без ключа - в конце, в исходном порядке.
+     */
+    public static List<FileRecord> inLocalityOrder(List<FileRecord> records) {
+        List<Integer> positions = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) positions.add(i);
+        List<FileRecord> result = new ArrayList<>(records.size());
+        for (int pos : localityOrder(records, positions)) result.add(records.get(pos));
+        return result;
+    }
+
+    private static int[] localityOrder(List<FileRecord> records, List<Integer> positions) {
+        int n = positions.size();
+        long[] devices = new long[n];
+        long[] inodes = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            long[] key = parseFileKey(records.get(positions.get(i)).getFileKey());
+            devices[i] = key[0];
+            inodes[i] = key[1];
+        }
+        // Сортировка устойчивая: файлы без ключа остаются в порядке вывода
+        Arrays.sort(order, (a, b) -> devices[a] != devices[b]
+                ? Long.compareUnsigned(devices[a], devices[b]) : Long.compareUnsigned(inodes[a], inodes[b]));
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) result[i] = positions.get(order[i]);
+        return result;
+    }
+
+    /**
+     * (устройство, inode) из ключа файла. Открытого API для этих полей в JDK нет, но ключ
+     * Unix-файловых систем выводится как "(dev=803,ino=1234)". Неизвестный формат - в конец.
+     */
+    static long[] parseFileKey(Object fileKey) {
+        long[] unknown = {-1L, -1L};
+        if (fileKey == null) return unknown;
+        String s = fileKey.toString();
+        int dev = s.indexOf("dev=");
+        int ino = s.indexOf("ino=");
+        if (dev < 0 || ino < 0) return unknown;
+        try {
+            return new long[]{
+                    Long.parseUnsignedLong(s.substring(dev + 4, endOfNumber(s, dev + 4)), 16),
+                    Long.parseUnsignedLong(s.substring(ino + 4, endOfNumber(s, ino + 4)))
+            };
+        } catch (NumberFormatException e) {
+            return unknown;
+        }
+    }
+
+    private static int endOfNumber(String s, int from) {
+        int end = from;
+        while (end < s.length() && Character.isLetterOrDigit(s.charAt(end))) end++;
+        return end;
+    }
+}
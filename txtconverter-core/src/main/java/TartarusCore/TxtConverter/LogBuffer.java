@@ -0,0 +1,227 @@
+package TartarusCore.TxtConverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Журнал приложения с ограниченной памятью.
+ *
+ * Для каждого уровня хранится свое кольцо фиксированной емкости, поэтому поток DEBUG-сообщений
+ * на больших прогонах не вытесняет редкие INFO/WARN/ERROR. Каждой записи присваивается сквозной
+ * номер: UI забирает только то, что появилось после последнего показанного номера
+ * ({@link #drainSince}), и делает это пачками раз в кадр, а не на каждое сообщение.
+ *
+ * Опционально весь журнал (включая DEBUG) дописывается в файл на диске.
+ * Потокобезопасен: писать можно из любых фоновых задач.
+ */
+public class LogBuffer implements LogSink {
+
+    public static final int DEFAULT_CAPACITY_PER_LEVEL = 5000;
+    private static final long FILE_FLUSH_INTERVAL_MS = 1000;
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static LogBuffer instance;
+
+    private final Ring[] rings;
+    private long lastSequence = 0;
+
+    private BufferedWriter fileWriter;
+    private Path logFile;
+    private long lastFileFlush = 0;
+
+    /** Запись журнала. Неизменяема, безопасно передается между потоками. */
+    public static final class Entry {
+        private final long sequence;
+        private final long timestamp;
+        private final LogLevel level;
+        private final String message;
+
+        Entry(long sequence, long timestamp, LogLevel level, String message) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.message = message;
+        }
+
+        public long getSequence() { return sequence; }
+        public long getTimestamp() { return timestamp; }
+        public LogLevel getLevel() { return level; }
+        public String getMessage() { return message; }
+    }
+
+    private static final class Ring {
+        private final Entry[] entries;
+        private int head = 0; // позиция следующей записи
+        private int size = 0;
+
+        Ring(int capacity) {
+            entries = new Entry[capacity];
+        }
+
+        void add(Entry entry) {
+            entries[head] = entry;
+            head = (head + 1) % entries.length;
+            if (size < entries.length) size++;
+        }
+
+        /** Добавляет в out записи новее sinceSequence (от старых к новым). */
+        void collectSince(long sinceSequence, List<Entry> out) {
+            int count = 0;
+            // Идем от самой новой записи назад, пока номера больше искомого
+            while (count < size) {
+                Entry e = entries[Math.floorMod(head - 1 - count, entries.length)];
+                if (e.getSequence() <= sinceSequence) break;
+                count++;
+            }
+            for (int i = count; i > 0; i--) {
+                out.add(entries[Math.floorMod(head - i, entries.length)]);
+            }
+        }
+
+        void clear() {
+            Arrays.fill(entries, null);
+            head = 0;
+            size = 0;
+        }
+    }
+
+    LogBuffer(int capacityPerLevel) {
+        rings = new Ring[LogLevel.values().length];
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new Ring(capacityPerLevel);
+        }
+    }
+
+    public static synchronized LogBuffer getInstance() {
+        if (instance == null) {
+            instance = new LogBuffer(DEFAULT_CAPACITY_PER_LEVEL);
+        }
+        return instance;
+    }
+
+    /** ~/.txtconverter/txtconverter.log */
+    public static Path defaultLogFile() {
+        return Paths.get(System.getProperty("user.home"), ProjectConstants.APP_DATA_DIR_NAME, ProjectConstants.LOG_FILE_NAME);
+    }
+
+    @Override
+    public synchronized void append(LogLevel level, String message) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(++lastSequence, now, level, message);
+        rings[level.ordinal()].add(entry);
+        if (fileWriter != null) {
+            writeToFile(entry, now);
+        }
+    }
+
+    /** Номер последней записи. Если он не менялся, UI может ничего не делать. */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Передает consumer все сохраненные записи уровня minLevel и выше, новее sinceSequence,
+     * в порядке поступления. Записи, уже вытесненные из колец, пропускаются.
+     * @return номер последней записи на момент вызова
+     */
+    public long drainSince(long sinceSequence, LogLevel minLevel, Consumer<Entry> consumer) {
+        List<Entry> collected = new ArrayList<>();
+        long last;
+        synchronized (this) {
+            last = lastSequence;
+            if (last == sinceSequence) return last;
+            for (LogLevel level : LogLevel.values()) {
+                if (level.isAtLeast(minLevel)) {
+                    rings[level.ordinal()].collectSince(sinceSequence, collected);
+                }
+            }
+        }
+        // Кольца по отдельности упорядочены, общий порядок восстанавливаем по номеру
+        collected.sort(Comparator.comparingLong(Entry::getSequence));
+        collected.forEach(consumer);
+        return last;
+    }
+
+    /** Очищает кольца в памяти. Файл журнала не трогается. */
+    public synchronized void clear() {
+        for (Ring ring : rings) ring.clear();
+    }
+
+    /**
+     * Включает дозапись журнала в файл (null - выключает).
+     */
+    public synchronized void setLogFile(Path file) throws IOException {
+        closeLogFile();
+        if (file == null) return;
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        logFile = file;
+    }
+
+    public synchronized Path getLogFile() {
+        return logFile;
+    }
+
+    public synchronized void flush() {
+        if (fileWriter == null) return;
+        try {
+            fileWriter.flush();
+        } catch (IOException e) {
+            disableFileOnError(e);
+        }
+    }
+
+    public synchronized void closeLogFile() {
+        if (fileWriter == null) return;
+        try {
+            fileWriter.close();
+        } catch (IOException ignored) {
+            // Файл журнала вторичен, ошибка закрытия не должна мешать работе
+        }
+        fileWriter = null;
+        logFile = null;
+    }
+
+    private void writeToFile(Entry entry, long now) {
+        try {
+            String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTimestamp()), ZoneId.systemDefault())
+                    .format(FILE_TIME_FORMAT);
+            fileWriter.write(time);
+            fileWriter.write(" [");
+            fileWriter.write(entry.getLevel().name());
+            fileWriter.write("] ");
+            fileWriter.write(entry.getMessage());
+            fileWriter.newLine();
+
+            // Сбрасываем на диск не чаще раза в секунду, но ошибки - сразу
+            if (entry.getLevel().isAtLeast(LogLevel.WARN) || now - lastFileFlush >= FILE_FLUSH_INTERVAL_MS) {
+                fileWriter.flush();
+                lastFileFlush = now;
+            }
+        } catch (IOException e) {
+            disableFileOnError(e);
+        }
+    }
+
+    private void disableFileOnError(IOException e) {
+        closeLogFile();
+        Entry entry = new Entry(++lastSequence, System.currentTimeMillis(), LogLevel.ERROR,
+                "Log file disabled: " + e.getMessage());
+        rings[LogLevel.ERROR.ordinal()].add(entry);
+    }
+}
@@ -0,0 +1,15 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Уровни сообщений журнала. Порядок важен: фильтр показывает уровень и все, что выше.
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR;
+
+    public boolean isAtLeast(LogLevel other) {
+        return ordinal() >= other.ordinal();
+    }
+}
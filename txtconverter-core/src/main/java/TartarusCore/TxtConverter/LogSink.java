@@ -0,0 +1,33 @@
+package TartarusCore.TxtConverter;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Получатель сообщений журнала. Классы ядра пишут туда, куда их направил вызывающий:
+ * приложение передает {@link LogBuffer}, который показывается в окне журнала,
+ * консольные режимы без окна (сервер) - {@link #stderr}.
+ * Потокобезопасность - на стороне реализации: сообщения приходят из фоновых потоков.
+ */
+@FunctionalInterface
+public interface LogSink {
+
+    LogSink NONE = (level, message) -> {};
+
+    void append(LogLevel level, String message);
+
+    default void debug(String message) { append(LogLevel.DEBUG, message); }
+    default void info(String message) { append(LogLevel.INFO, message); }
+    default void warn(String message) { append(LogLevel.WARN, message); }
+    default void error(String message) { append(LogLevel.ERROR, message); }
+
+    /** Сообщения уровня minLevel и выше - в stderr, по строке с временем и уровнем. */
+    static LogSink stderr(LogLevel minLevel) {
+        DateTimeFormatter time = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+        return (level, message) -> {
+            if (level.isAtLeast(minLevel)) {
+                System.err.println(LocalTime.now().format(time) + " [" + level + "] " + message);
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package TartarusCore.TxtConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Приемник в памяти: записи остаются в карте имя -> байты (для сервера и встраивающего кода).
+ * commit() ничего не делает: результат доступен через {@link #getEntries()} сразу после записи.
+ */
+public class MemoryOutputSink implements OutputSink {
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<>();
+
+    @Override
+    public void write(String name, byte[] data) {
+        entries.put(name, data);
+    }
+
+    @Override
+    public OutputStream openStream(String name) {
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                entries.put(name, toByteArray());
+            }
+        };
+    }
+
+    public Map<String, byte[]> getEntries() {
+        return entries;
+    }
+
+    /** Первая запись, имя которой оканчивается на suffix, или null. */
+    public byte[] find(String suffix) {
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            if (entry.getKey().endsWith(suffix)) return entry.getValue();
+        }
+        return null;
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public String describeLocation() {
+        return "memory";
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -0,0 +1,226 @@
+package TartarusCore.TxtConverter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Поиск почти одинаковых файлов (варианты префабов, скрипты уровней, копипаста) через MinHash + LSH.
+ *
+ * Текст режется на токены (слова/идентификаторы), из них строятся шинглы по SHINGLE_SIZE токенов.
+ * Для каждого файла хранится только сигнатура из NUM_HASHES минимумов. Сигнатура делится на
+ * BANDS полос по ROWS значений: файлы с одинаковой полосой становятся кандидатами и сверяются
+ * по доле совпадающих минимумов (оценка сходства Жаккара). Каждый файл сравнивается только
+ * с первым файлом своей корзины, поэтому кластеризация почти линейна по числу файлов.
+ *
+ * Файлы добавляются в порядке вывода; представитель кластера - файл, добавленный первым.
+ */
+public class NearDuplicateDetector {
+
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private static final int NUM_HASHES = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS = NUM_HASHES / BANDS;
+    private static final int SHINGLE_SIZE = 4;
+    // Слишком короткие файлы похожи друг на друга случайно
+    private static final int MIN_TOKENS = 30;
+
+    private final double threshold;
+    private int[] ids = new int[64];
+    private int[][] signatures = new int[64][];
+    private int count = 0;
+
+    public NearDuplicateDetector() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public NearDuplicateDetector(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Добавляет файл. Вызывать в порядке вывода файлов.
+     * @param id Идентификатор файла (FileRecord.getIndex())
+     */
+    public void add(int id, CharSequence text) {
+        int[] signature = signature(text);
+        if (signature == null) return;
+
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            signatures = Arrays.copyOf(signatures, count * 2);
+        }
+        ids[count] = id;
+        signatures[count] = signature;
+        count++;
+    }
+
+    /**
+     * Объединяет похожие файлы в кластеры.
+     */
+    public Clusters cluster() {
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) parent[i] = i;
+
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, Integer> firstInBucket = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                long key = bandKey(signatures[i], band);
+                Integer first = firstInBucket.putIfAbsent(key, i);
+                if (first != null && find(parent, first) != find(parent, i)
+                        && similarity(signatures[first], signatures[i]) >= threshold) {
+                    union(parent, first, i);
+                }
+            }
+        }
+
+        Map<Integer, Integer> representativeOf = new HashMap<>();
+        Map<Integer, Double> similarityToRep = new HashMap<>();
+        boolean[] hasMembers = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int root = find(parent, i);
+            if (root == i) continue;
+            representativeOf.put(ids[i], ids[root]);
+            similarityToRep.put(ids[i], similarity(signatures[root], signatures[i]));
+            hasMembers[root] = true;
+        }
+
+        Set<Integer> representatives = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (hasMembers[i]) representatives.add(ids[i]);
+        }
+        return new Clusters(representativeOf, similarityToRep, representatives);
+    }
+
+    /** Результат кластеризации по id файлов. */
+    public static final class Clusters {
+        private final Map<Integer, Integer> representativeOf;
+        private final Map<Integer, Double> similarity;
+        private final Set<Integer> representatives;
+
+        private Clusters(Map<Integer, Integer> representativeOf, Map<Integer, Double> similarity,
+                         Set<Integer> representatives) {
+            this.representativeOf = representativeOf;
+            this.similarity = similarity;
+            this.representatives = representatives;
+        }
+
+        /** id представителя кластера или -1, если файл не является чьим-то дубликатом. */
+        public int getRepresentative(int id) {
+            Integer rep = representativeOf.get(id);
+            return (rep != null) ? rep : -1;
+        }
+
+        /** Оценка сходства Жаккара с представителем (0..1). */
+        public double getSimilarity(int id) {
+            Double s = similarity.get(id);
+            return (s != null) ? s : 0;
+        }
+
+        /** true, если у файла есть похожие: его текст понадобится для diff. */
+        public boolean isRepresentative(int id) {
+            return representatives.contains(id);
+        }
+
+        public int getDuplicateCount() {
+            return representativeOf.size();
+        }
+    }
+
+    // --- MinHash ---
+
+    private static int[] signature(CharSequence text) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        long[] window = new long[SHINGLE_SIZE];
+        int tokens = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                i++;
+                continue;
+            }
+            long h = 0xcbf29ce484222325L;
+            while (i < n) {
+                c = text.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '_') break;
+                h = (h ^ c) * 0x100000001b3L;
+                i++;
+            }
+            window[tokens % SHINGLE_SIZE] = h;
+            tokens++;
+            if (tokens >= SHINGLE_SIZE) {
+                updateSignature(signature, shingleHash(window, tokens));
+            }
+        }
+        return (tokens >= MIN_TOKENS) ? signature : null;
+    }
+
+    private static long shingleHash(long[] window, int tokens) {
+        long h = 0;
+        for (int k = 0; k < SHINGLE_SIZE; k++) {
+            h = h * 0x9E3779B97F4A7C15L + window[(tokens + k) % SHINGLE_SIZE];
+        }
+        return mix(h);
+    }
+
+    /**
+     * NUM_HASHES "перестановок" из двух половин одного хэша (схема Кирша-Митценмахера):
+     * h_i = h1 + i * h2.
+     */
+    private static void updateSignature(int[] signature, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            int value = (h1 + i * h2) & Integer.MAX_VALUE;
+            if (value < signature[i]) signature[i] = value;
+        }
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long h = band;
+        for (int r = 0; r < ROWS; r++) {
+            h = h * 0x9E3779B97F4A7C15L + signature[band * ROWS + r];
+        }
+        return mix(h);
+    }
+
+    private static long mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return key;
+    }
+
+    // --- Union-Find: корень - элемент с меньшим индексом (добавленный раньше) ---
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) return;
+        if (ra < rb) parent[rb] = ra;
+        else parent[ra] = rb;
+    }
+}
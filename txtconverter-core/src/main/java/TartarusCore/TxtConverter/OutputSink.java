@@ -0,0 +1,66 @@
+package TartarusCore.TxtConverter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Приемник результатов конвертации: отдельные файлы, общий файл и отчет о структуре.
+ *
+ * Жизненный цикл: записи -> {@link #commit()} -> {@link #close()}.
+ * Если {@code close()} вызван без {@code commit()} (отмена, ошибка), приемник
+ * отбрасывает частично записанный результат, не трогая предыдущий.
+ */
+public interface OutputSink extends Closeable {
+
+    /** Записывает запись целиком. Имена записей плоские (без директорий). */
+    void write(String name, byte[] data) throws IOException;
+
+    /** Записывает текст в UTF-8 потоково, без промежуточного byte[] на весь текст. */
+    default void write(String name, String text) throws IOException {
+        try (WritableByteChannel out = openChannel(name)) {
+            PooledTextIO.forCurrentThread().write(out, text);
+        }
+    }
+
+    /**
+     * Копирует файл в запись байт в байт. По умолчанию - через {@link #openChannel(String)}
+     * и FileChannel.transferTo; приемники, которым размер записи нужен до данных, переопределяют.
+     */
+    default void copyFile(String name, Path source) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             WritableByteChannel out = openChannel(name)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) break; // файл укоротился во время чтения
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Открывает запись для потоковой записи. Пока поток не закрыт, другие записи открывать нельзя.
+     */
+    OutputStream openStream(String name) throws IOException;
+
+    /**
+     * Канальный вариант {@link #openStream(String)}. Приемники, пишущие в обычный файл,
+     * возвращают FileChannel, что позволяет FileChannel.transferTo копировать без участия Java-кучи.
+     */
+    default WritableByteChannel openChannel(String name) throws IOException {
+        return Channels.newChannel(openStream(name));
+    }
+
+    /** Фиксирует результат. После этого close() только освобождает ресурсы. */
+    void commit() throws IOException;
+
+    /** Человекочитаемое место назначения для лога. */
+    String describeLocation();
+}
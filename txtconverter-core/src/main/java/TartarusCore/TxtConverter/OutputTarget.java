@@ -0,0 +1,46 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Куда складывать результат конвертации.
+ * Архивы пишутся рядом с папкой проекта, поэтому дерево исходников остается чистым,
+ * а вместо тысяч мелких файлов создается один последовательно записываемый файл.
+ */
+public enum OutputTarget {
+    DIRECTORY,
+    ZIP,
+    TAR_GZ,
+    STDOUT;
+
+    public OutputSink openSink(Path sourcePath) throws IOException {
+        switch (this) {
+            case ZIP: return new ZipOutputSink(resolveLocation(sourcePath));
+            case TAR_GZ: return new TarGzOutputSink(resolveLocation(sourcePath));
+            case STDOUT: return new StdoutOutputSink();
+            case DIRECTORY:
+            default:
+                return new DirectoryOutputSink(StagedOutputDirectory.create(resolveLocation(sourcePath)));
+        }
+    }
+
+    /**
+     * @return Итоговый путь результата или null для STDOUT
+     */
+    public Path resolveLocation(Path sourcePath) {
+        String projectName = SourceRoot.projectName(sourcePath);
+        switch (this) {
+            case ZIP: return sourcePath.resolveSibling(projectName + ProjectConstants.OUTPUT_DIR_NAME + ".zip");
+            case TAR_GZ: return sourcePath.resolveSibling(projectName + ProjectConstants.OUTPUT_DIR_NAME + ".tar.gz");
+            case STDOUT: return null;
+            case DIRECTORY:
+            default:
+                // Внутрь архива не пишем: папка результата создается рядом с ним
+                if (SourceRoot.isArchive(sourcePath)) {
+                    return sourcePath.resolveSibling(projectName + ProjectConstants.OUTPUT_DIR_NAME);
+                }
+                return sourcePath.resolve(ProjectConstants.OUTPUT_DIR_NAME);
+        }
+    }
+}
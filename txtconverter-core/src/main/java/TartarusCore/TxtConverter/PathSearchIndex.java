@@ -0,0 +1,338 @@
+package TartarusCore.TxtConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Триграммный индекс по относительным путям файлов.
+ * Строится один раз при открытии диалога выбора и позволяет фильтровать список
+ * по подстроке или glob-маске без полного перебора строк на каждое нажатие клавиши.
+ *
+ * Синтаксис запроса:
+ * - обычный текст: поиск подстроки в пути (без учета регистра);
+ * - glob ({@code *.cs}, {@code Scripts/**}/{@code *.gd}): если в маске нет '/', она сравнивается с именем файла;
+ * - {@code re:<regex>}: регулярное выражение, ищется в любом месте пути.
+ */
+public class PathSearchIndex {
+
+    public static final String REGEX_PREFIX = "re:";
+
+    private static final long EMPTY_KEY = -1L;
+    private static final int MIN_GRAM = 3;
+
+    private final String[] paths;
+    private final String[] lowerPaths;
+
+    // Открытая адресация: ключ триграммы -> отсортированный список индексов путей
+    private long[] keys;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int gramCount;
+
+    /**
+     * @param relativePaths Относительные пути с разделителем '/'. Позиция в списке = id файла.
+     */
+    public PathSearchIndex(List<String> relativePaths) {
+        int n = relativePaths.size();
+        this.paths = new String[n];
+        this.lowerPaths = new String[n];
+
+        int capacity = Integer.highestOneBit(Math.max(1024, n * 2)) << 1;
+        this.keys = new long[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        this.postings = new int[capacity][];
+        this.postingSizes = new int[capacity];
+
+        for (int id = 0; id < n; id++) {
+            String path = relativePaths.get(id);
+            String lower = path.toLowerCase(Locale.ROOT);
+            paths[id] = path;
+            lowerPaths[id] = lower;
+            for (int i = 0; i + MIN_GRAM <= lower.length(); i++) {
+                addPosting(gramKey(lower, i), id);
+            }
+        }
+    }
+
+    public int size() {
+        return paths.length;
+    }
+
+    public String getPath(int id) {
+        return paths[id];
+    }
+
+    /**
+     * Возвращает id всех путей, подходящих под запрос. Пустой запрос подходит под все пути.
+     * @throws java.util.regex.PatternSyntaxException если regex/glob не компилируется
+     */
+    public BitSet search(String query) {
+        BitSet result = new BitSet(paths.length);
+        if (query == null || query.isBlank()) {
+            result.set(0, paths.length);
+            return result;
+        }
+
+        String trimmed = query.trim();
+        if (trimmed.startsWith(REGEX_PREFIX)) {
+            Pattern regex = Pattern.compile(trimmed.substring(REGEX_PREFIX.length()), Pattern.CASE_INSENSITIVE);
+            for (int id = 0; id < paths.length; id++) {
+                if (regex.matcher(paths[id]).find()) result.set(id);
+            }
+            return result;
+        }
+
+        String lowerQuery = trimmed.toLowerCase(Locale.ROOT);
+        if (isGlob(lowerQuery)) {
+            return searchGlob(lowerQuery);
+        }
+
+        int[] candidates = candidatesFor(List.of(lowerQuery));
+        if (candidates == null) {
+            for (int id = 0; id < lowerPaths.length; id++) {
+                if (lowerPaths[id].contains(lowerQuery)) result.set(id);
+            }
+        } else {
+            for (int id : candidates) {
+                if (lowerPaths[id].contains(lowerQuery)) result.set(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Проверка одного пути по запросу в том же синтаксисе, что и {@link #search}, без индекса.
+     * Нужна для правил выбора, сохраненных между сканированиями.
+     * @throws java.util.regex.PatternSyntaxException если regex/glob не компилируется
+     */
+    public static Predicate<String> matcher(String query) {
+        String trimmed = query.trim();
+        if (trimmed.startsWith(REGEX_PREFIX)) {
+            Pattern regex = Pattern.compile(trimmed.substring(REGEX_PREFIX.length()), Pattern.CASE_INSENSITIVE);
+            return path -> regex.matcher(path).find();
+        }
+
+        String lowerQuery = trimmed.toLowerCase(Locale.ROOT);
+        if (isGlob(lowerQuery)) {
+            boolean matchFullPath = lowerQuery.indexOf('/') >= 0;
+            Pattern regex = Pattern.compile(globToRegex(lowerQuery));
+            return path -> {
+                String lower = path.toLowerCase(Locale.ROOT);
+                if (!matchFullPath) lower = lower.substring(lower.lastIndexOf('/') + 1);
+                return regex.matcher(lower).matches();
+            };
+        }
+        return path -> path.toLowerCase(Locale.ROOT).contains(lowerQuery);
+    }
+
+    public static boolean isGlob(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') return true;
+        }
+        return false;
+    }
+
+    private BitSet searchGlob(String lowerGlob) {
+        BitSet result = new BitSet(paths.length);
+        boolean matchFullPath = lowerGlob.indexOf('/') >= 0;
+        Pattern regex = Pattern.compile(globToRegex(lowerGlob));
+
+        int[] candidates = candidatesFor(extractGlobLiterals(lowerGlob));
+        if (candidates == null) {
+            for (int id = 0; id < lowerPaths.length; id++) {
+                if (matchesGlob(regex, id, matchFullPath)) result.set(id);
+            }
+        } else {
+            for (int id : candidates) {
+                if (matchesGlob(regex, id, matchFullPath)) result.set(id);
+            }
+        }
+        return result;
+    }
+
+    private boolean matchesGlob(Pattern regex, int id, boolean matchFullPath) {
+        String lower = lowerPaths[id];
+        if (!matchFullPath) {
+            lower = lower.substring(lower.lastIndexOf('/') + 1);
+        }
+        return regex.matcher(lower).matches();
+    }
+
+    /**
+     * Пересечение постинг-листов всех триграмм из литералов.
+     * @return отсортированные id кандидатов или null, если литералов короче 3 символов недостаточно для индекса
+     */
+    private int[] candidatesFor(List<String> literals) {
+        int[] current = null;
+        for (String literal : literals) {
+            for (int i = 0; i + MIN_GRAM <= literal.length(); i++) {
+                int slot = findSlot(gramKey(literal, i));
+                if (keys[slot] == EMPTY_KEY) return new int[0];
+
+                int[] list = postings[slot];
+                int size = postingSizes[slot];
+                current = (current == null) ? Arrays.copyOf(list, size) : intersect(current, list, size);
+                if (current.length == 0) return current;
+            }
+        }
+        return current;
+    }
+
+    private static int[] intersect(int[] a, int[] b, int bSize) {
+        int[] out = new int[Math.min(a.length, bSize)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < bSize) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    /**
+     * Литеральные куски glob-маски между спецсимволами. Содержимое [] и {} пропускается,
+     * так как оно не обязано присутствовать в пути целиком.
+     */
+    private static List<String> extractGlobLiterals(String glob) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '[' || c == '{') depth++;
+            if (depth == 0 && c != '*' && c != '?') {
+                current.append(c);
+            } else if (current.length() > 0) {
+                literals.add(current.toString());
+                current.setLength(0);
+            }
+            if ((c == ']' || c == '}') && depth > 0) depth--;
+        }
+        if (current.length() > 0) literals.add(current.toString());
+        return literals;
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder(glob.length() * 2);
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        // "**/" совпадает и с нулем директорий
+                        if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+                            sb.append("(?:.*/)?");
+                            i += 2;
+                        } else {
+                            sb.append(".*");
+                            i++;
+                        }
+                    } else {
+                        sb.append("[^/]*");
+                    }
+                    break;
+                case '?': sb.append("[^/]"); break;
+                case '[': {
+                    int close = glob.indexOf(']', i + 1);
+                    if (close < 0) {
+                        sb.append("\\[");
+                    } else {
+                        String body = glob.substring(i + 1, close);
+                        if (body.startsWith("!")) body = "^" + body.substring(1);
+                        sb.append('[').append(body.replace("\\", "\\\\")).append(']');
+                        i = close;
+                    }
+                    break;
+                }
+                case '{': inGroup = true; sb.append("(?:"); break;
+                case '}':
+                    if (inGroup) { inGroup = false; sb.append(')'); }
+                    else sb.append("\\}");
+                    break;
+                case ',':
+                    sb.append(inGroup ? "|" : ",");
+                    break;
+                default:
+                    if ("\\.^$+()|".indexOf(c) >= 0) sb.append('\\');
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // --- Хэш-таблица триграмм ---
+
+    private static long gramKey(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void addPosting(long key, int id) {
+        int slot = findSlot(key);
+        if (keys[slot] == EMPTY_KEY) {
+            keys[slot] = key;
+            postings[slot] = new int[4];
+            gramCount++;
+            if (gramCount * 2 > keys.length) {
+                rehash();
+                slot = findSlot(key);
+            }
+        }
+
+        int size = postingSizes[slot];
+        int[] list = postings[slot];
+        // id добавляются по возрастанию, поэтому повтор триграммы в том же пути виден по последнему элементу
+        if (size > 0 && list[size - 1] == id) return;
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+            postings[slot] = list;
+        }
+        list[size] = id;
+        postingSizes[slot] = size + 1;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = postingSizes;
+
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY_KEY);
+        postings = new int[keys.length][];
+        postingSizes = new int[keys.length];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY_KEY) continue;
+            int slot = findSlot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            postings[slot] = oldPostings[i];
+            postingSizes[slot] = oldSizes[i];
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return key;
+    }
+}
@@ -0,0 +1,206 @@
+package TartarusCore.TxtConverter;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Компактная таблица путей результата сканирования.
+ *
+ * Папки хранятся деревом (префиксным деревом сегментов): у каждой папки есть id, id родителя
+ * и собственное имя, поэтому общий префикс "src/main/java/..." хранится один раз, а не
+ * в каждом пути. Файл задается парой (id папки, имя) и индексом записи ({@link FileRecord#getIndex()}).
+ * Объекты {@link Path} создаются только в момент ввода-вывода ({@link #resolve}).
+ *
+ * Поиск по (папка, имя) - открытая адресация по массивам int, без объектов на элемент.
+ * Таблица заполняется сканером в одном потоке и после публикации результата только читается.
+ */
+public final class PathTable {
+
+    /** id корневой папки. */
+    public static final int ROOT = 0;
+    /** Результат поиска, если папка или файл не найдены. */
+    public static final int NOT_FOUND = -1;
+
+    private final Path root;
+
+    // Папки: id -> родитель и имя сегмента
+    private int[] parents = new int[64];
+    private String[] segments = new String[64];
+    private int dirCount = 1;
+    // Полные относительные пути папок ("a/b/"), считаются лениво.
+    // Гонка при заполнении безопасна: String неизменяем, а значение всегда одно и то же.
+    private String[] dirPaths = new String[64];
+
+    // Файлы: индекс записи -> папка и имя
+    private int[] fileDirs = new int[256];
+    private String[] fileNames = new String[256];
+    private int fileCount = 0;
+
+    // Хэш-таблицы (папка, имя) -> id; 0 - пустая ячейка, поэтому хранится id + 1
+    private int[] dirSlots = new int[128];
+    private int[] fileSlots = new int[512];
+
+    // Расширения повторяются тысячи раз: храним по одному экземпляру строки
+    private final Map<String, String> extensions = new HashMap<>();
+
+    // Последняя добавленная папка: файлы после сортировки идут группами по папкам
+    private String lastDirPath = "";
+    private int lastDirId = ROOT;
+
+    public PathTable(Path root) {
+        this.root = root;
+        segments[ROOT] = "";
+        parents[ROOT] = NOT_FOUND;
+        dirPaths[ROOT] = "";
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Добавляет файл по относительному пути с разделителем '/'.
+     * @return id папки файла; индекс файла в таблице равен числу ранее добавленных файлов
+     */
+    int addFile(String relativePath) {
+        int slash = relativePath.lastIndexOf('/');
+        String dirPath = (slash >= 0) ? relativePath.substring(0, slash) : "";
+        // substring дает собственную строку имени, а не ссылку на весь путь
+        String name = relativePath.substring(slash + 1);
+
+        int dir = internDirectory(dirPath);
+        if (fileCount == fileDirs.length) {
+            fileDirs = Arrays.copyOf(fileDirs, fileCount * 2);
+            fileNames = Arrays.copyOf(fileNames, fileCount * 2);
+        }
+        fileDirs[fileCount] = dir;
+        fileNames[fileCount] = name;
+        fileCount++;
+        if (fileCount * 2 > fileSlots.length) fileSlots = rehash(fileSlots, fileDirs, fileNames, fileCount);
+        else insert(fileSlots, fileDirs, fileNames, fileCount - 1);
+        return dir;
+    }
+
+    /** Имя файла по индексу: тот же экземпляр строки, что хранит таблица. */
+    String fileName(int index) {
+        return fileNames[index];
+    }
+
+    String internExtension(String extension) {
+        return extensions.computeIfAbsent(extension, e -> e);
+    }
+
+    private int internDirectory(String dirPath) {
+        if (dirPath.equals(lastDirPath)) return lastDirId;
+        int dir = ROOT;
+        int start = 0;
+        while (start < dirPath.length()) {
+            int end = dirPath.indexOf('/', start);
+            if (end < 0) end = dirPath.length();
+            String segment = dirPath.substring(start, end);
+            int child = findDirectory(dir, segment);
+            dir = (child != NOT_FOUND) ? child : addDirectory(dir, segment);
+            start = end + 1;
+        }
+        lastDirPath = dirPath;
+        lastDirId = dir;
+        return dir;
+    }
+
+    private int addDirectory(int parent, String segment) {
+        if (dirCount == parents.length) {
+            parents = Arrays.copyOf(parents, dirCount * 2);
+            segments = Arrays.copyOf(segments, dirCount * 2);
+            dirPaths = Arrays.copyOf(dirPaths, dirCount * 2);
+        }
+        parents[dirCount] = parent;
+        segments[dirCount] = segment;
+        dirCount++;
+        if (dirCount * 2 > dirSlots.length) dirSlots = rehash(dirSlots, parents, segments, dirCount);
+        else insert(dirSlots, parents, segments, dirCount - 1);
+        return dirCount - 1;
+    }
+
+    /** id дочерней папки с именем name или NOT_FOUND (в том числе для parent = NOT_FOUND). */
+    public int findDirectory(int parent, String name) {
+        return (parent == NOT_FOUND) ? NOT_FOUND : lookup(dirSlots, parents, segments, parent, name);
+    }
+
+    /** Индекс файла name в папке dir или NOT_FOUND. */
+    public int findFile(int dir, String name) {
+        return (dir == NOT_FOUND) ? NOT_FOUND : lookup(fileSlots, fileDirs, fileNames, dir, name);
+    }
+
+    /** Индекс файла по относительному пути с разделителем '/' или NOT_FOUND. */
+    public int find(String relativePath) {
+        int dir = ROOT;
+        int start = 0;
+        int slash;
+        while ((slash = relativePath.indexOf('/', start)) >= 0) {
+            dir = findDirectory(dir, relativePath.substring(start, slash));
+            if (dir == NOT_FOUND) return NOT_FOUND;
+            start = slash + 1;
+        }
+        return findFile(dir, relativePath.substring(start));
+    }
+
+    /** Относительный путь папки с завершающим '/' (пустая строка для корня). */
+    public String directoryPath(int dir) {
+        String path = dirPaths[dir];
+        if (path == null) {
+            path = directoryPath(parents[dir]) + segments[dir] + "/";
+            dirPaths[dir] = path;
+        }
+        return path;
+    }
+
+    /** Относительный путь файла: строится при каждом вызове. */
+    public String relativePath(int dir, String name) {
+        return directoryPath(dir) + name;
+    }
+
+    /** Абсолютный путь файла для ввода-вывода. */
+    public Path resolve(int dir, String name) {
+        return root.resolve(relativePath(dir, name));
+    }
+
+    // --- Открытая адресация: ключ (owner, name), значения лежат в параллельных массивах ---
+
+    private static int lookup(int[] slots, int[] owners, String[] names, int owner, String name) {
+        int mask = slots.length - 1;
+        int slot = hash(owner, name) & mask;
+        int id;
+        while ((id = slots[slot]) != 0) {
+            if (owners[id - 1] == owner && names[id - 1].equals(name)) return id - 1;
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    private static void insert(int[] slots, int[] owners, String[] names, int id) {
+        int mask = slots.length - 1;
+        int slot = hash(owners[id], names[id]) & mask;
+        while (slots[slot] != 0) slot = (slot + 1) & mask;
+        slots[slot] = id + 1;
+    }
+
+    private static int[] rehash(int[] slots, int[] owners, String[] names, int count) {
+        int[] grown = new int[slots.length * 2];
+        for (int id = 0; id < count; id++) {
+            // У корня нет владельца, в таблицу поиска он не попадает
+            if (owners[id] != NOT_FOUND) insert(grown, owners, names, id);
+        }
+        return grown;
+    }
+
+    private static int hash(int owner, String name) {
+        int h = name.hashCode() * 31 + owner;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,245 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Чтение и запись текста через буферы, переиспользуемые внутри потока.
+ *
+ * Вместо Files.readString (новый byte[] на весь файл + String) файл читается кусками
+ * в постоянный буфер, и за тот же проход каждый кусок хэшируется и декодируется
+ * в переиспользуемый CharBuffer. В куче на файл остается только итоговый String для сжатия.
+ *
+ * Буферы намеренно в куче, а не direct: декодер UTF-8 JDK быстр только на массивах
+ * (на direct-буфере чтение выходило в 4 раза медленнее Files.readString), а канал файла
+ * и так читает в куче через свой кэшированный в потоке direct-буфер, ничего не выделяя.
+ * Хэш содержимого (64 бита, по всем байтам, даже если файл не UTF-8) - отпечаток
+ * для кэшей и поиска одинаковых файлов без повторного чтения.
+ *
+ * Экземпляр на поток ({@link #forCurrentThread()}): рабочие потоки параллельной оценки
+ * и поток конвертации не делят буферы. Результат чтения действителен до следующего чтения.
+ */
+public final class PooledTextIO {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Буфер символов больше этого не держим между файлами: редкий огромный файл не должен
+    // закреплять память за каждым рабочим потоком
+    private static final int RETAINED_CHARS = 1 << 20;
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final ThreadLocal<PooledTextIO> LOCAL = ThreadLocal.withInitial(PooledTextIO::new);
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    // Как String.getBytes: одиночные суррогаты заменяются на '?'
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer writeChars = CharBuffer.allocate(BUFFER_SIZE / 4);
+    private CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    // Состояние последнего чтения
+    private boolean text;
+    private long length;
+    private long hash;
+    private long pending;
+    private int pendingBytes;
+
+    private PooledTextIO() {}
+
+    public static PooledTextIO forCurrentThread() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Читает файл целиком: хэширует все байты и декодирует их как UTF-8 (строго).
+     * @return true, если файл - корректный UTF-8 и текст доступен через {@link #text()}
+     */
+    public boolean read(Path path) throws IOException {
+        hash = PRIME_1;
+        length = 0;
+        pending = 0;
+        pendingBytes = 0;
+        text = true;
+        decoder.reset();
+        readBuffer.clear();
+
+        try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+            // В UTF-8 символов не больше, чем байтов
+            ensureChars(channel.size());
+            chars.clear();
+            boolean eof = false;
+            while (!eof) {
+                int start = readBuffer.position();
+                int n = channel.read(readBuffer);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    hashBytes(start, start + n);
+                    length += n;
+                }
+                readBuffer.flip();
+                if (text) decode(eof);
+                // Недекодированный хвост (неполная последовательность UTF-8) переносится в начало
+                if (text) readBuffer.compact();
+                else readBuffer.clear();
+            }
+        }
+        if (text) {
+            while (decoder.flush(chars).isOverflow()) growChars();
+        }
+        chars.flip();
+        finishHash();
+        return text;
+    }
+
+    private void decode(boolean eof) {
+        while (true) {
+            CoderResult result = decoder.decode(readBuffer, chars, eof);
+            if (result.isOverflow()) {
+                // Файл вырос после channel.size()
+                growChars();
+            } else if (result.isError()) {
+                // Не UTF-8: дочитываем только ради хэша и длины
+                text = false;
+                return;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Текст последнего прочитанного файла (только если {@link #read} вернул true). */
+    public String text() {
+        String result = chars.toString();
+        if (chars.capacity() > RETAINED_CHARS) chars = CharBuffer.allocate(BUFFER_SIZE);
+        return result;
+    }
+
+    /** Декодированный текст без копирования; действителен до следующего чтения. */
+    public CharBuffer chars() {
+        return chars;
+    }
+
+    /** true, если последний прочитанный файл - корректный UTF-8. */
+    public boolean isText() {
+        return text;
+    }
+
+    /** Число прочитанных байтов. */
+    public long length() {
+        return length;
+    }
+
+    /** Хэш содержимого последнего прочитанного файла. */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Пишет текст в канал в UTF-8 через постоянные буферы, без промежуточного byte[] на весь текст.
+     */
+    public void write(WritableByteChannel channel, CharSequence text) throws IOException {
+        encoder.reset();
+        writeChars.clear();
+        writeBuffer.clear();
+        int next = 0;
+        boolean end = false;
+        while (!end) {
+            int n = Math.min(writeChars.remaining(), text.length() - next);
+            copyChars(text, next, next + n, writeChars.array(), writeChars.position());
+            writeChars.position(writeChars.position() + n);
+            next += n;
+            end = (next == text.length());
+
+            writeChars.flip();
+            while (encoder.encode(writeChars, writeBuffer, end).isOverflow()) drain(channel);
+            // Половинка суррогатной пары на границе куска остается до следующего
+            writeChars.compact();
+        }
+        while (encoder.flush(writeBuffer).isOverflow()) drain(channel);
+        drain(channel);
+    }
+
+    private static void copyChars(CharSequence text, int from, int to, char[] target, int offset) {
+        if (text instanceof String string) {
+            string.getChars(from, to, target, offset);
+        } else if (text instanceof StringBuilder builder) {
+            builder.getChars(from, to, target, offset);
+        } else {
+            for (int i = from; i < to; i++) target[offset++] = text.charAt(i);
+        }
+    }
+
+    private void drain(WritableByteChannel channel) throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) channel.write(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void ensureChars(long size) {
+        if (size > chars.capacity() && size <= Integer.MAX_VALUE - 8) {
+            chars = CharBuffer.allocate((int) size);
+        }
+    }
+
+    private void growChars() {
+        CharBuffer grown = CharBuffer.allocate(Math.max(BUFFER_SIZE, chars.capacity() * 2));
+        chars.flip();
+        grown.put(chars);
+        chars = grown;
+    }
+
+    // --- Хэш: слова по 8 байт, хвосты между кусками копятся в pending, поэтому результат
+    //     не зависит от того, какими порциями канал отдал данные ---
+
+    private void hashBytes(int from, int to) {
+        int i = from;
+        while (pendingBytes != 0 && i < to) {
+            pending |= (readBuffer.get(i++) & 0xFFL) << (8 * pendingBytes);
+            if (++pendingBytes == 8) {
+                mixWord(pending);
+                pending = 0;
+                pendingBytes = 0;
+            }
+        }
+        for (; i + 8 <= to; i += 8) {
+            mixWord(readBuffer.getLong(i));
+        }
+        for (; i < to; i++) {
+            pending |= (readBuffer.get(i) & 0xFFL) << (8 * pendingBytes);
+            pendingBytes++;
+        }
+    }
+
+    private void mixWord(long word) {
+        hash = Long.rotateLeft(hash ^ (Long.rotateLeft(word * PRIME_2, 31) * PRIME_1), 27) * PRIME_1 + PRIME_2;
+    }
+
+    private void finishHash() {
+        if (pendingBytes > 0) mixWord(pending);
+        long h = hash ^ length;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        hash = h;
+    }
+}
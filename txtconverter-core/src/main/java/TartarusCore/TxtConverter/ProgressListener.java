@@ -0,0 +1,19 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Получатель хода длительной операции движка (сканирование, конвертация) и ее журнала.
+ * Вызывается из потока, выполняющего операцию; методы по умолчанию ничего не делают.
+ */
+public interface ProgressListener extends LogSink {
+
+    ProgressListener NONE = new ProgressListener() {};
+
+    /** Текущий этап или файл, уже локализованный. */
+    default void message(String text) {}
+
+    default void progress(long done, long total) {}
+
+    /** Сообщение журнала операции. */
+    @Override
+    default void append(LogLevel level, String message) {}
+}
@@ -0,0 +1,45 @@
+package TartarusCore.TxtConverter;
+
+/**
+ * Централизованное хранилище констант проекта.
+ */
+public class ProjectConstants {
+    // Файловая система
+    public static final String OUTPUT_DIR_NAME = "_ConvertedToTxt";
+    public static final String REPORT_STRUCTURE_FILE = "_FileStructure.md";
+    public static final String CHANGES_DIFF_FILE = "_changes.diff";
+    public static final String MERGED_FILE_SUFFIX = "_Full_Source_code.txt";
+    // Временные папки рядом с выходной: сборка нового результата и удаление старого
+    public static final String STAGING_DIR_SUFFIX = ".staging-";
+    public static final String TRASH_DIR_SUFFIX = ".old-";
+    // Служебная папка приложения в домашнем каталоге пользователя
+    public static final String APP_DATA_DIR_NAME = ".txtconverter";
+    public static final String LOG_FILE_NAME = "txtconverter.log";
+    // Локализованные тексты отчетов и интерфейса (messages_en, messages_ru)
+    public static final String MESSAGES_BUNDLE = "TartarusCore.TxtConverter.messages";
+
+    // Настройки (Preferences Keys)
+    public static final String PREF_APP_LANGUAGE = "app_language";
+    public static final String PREF_LAST_DIR = "last_source_dir";
+    public static final String PREF_LAST_PRESET = "last_preset";
+    public static final String PREF_GEN_STRUCTURE = "gen_structure";
+    public static final String PREF_COMPACT_MODE = "compact_mode";
+    public static final String PREF_GEN_MERGED = "gen_merged";
+    public static final String PREF_MERGED_ONLY = "merged_only";
+    public static final String PREF_COLLAPSE_DUPLICATES = "collapse_duplicates";
+    public static final String PREF_COMMON_BLOCKS = "common_blocks";
+    public static final String PREF_COMPRESSION = "compression_level";
+    public static final String PREF_OUTPUT_TARGET = "output_target";
+    public static final String PREF_LOG_TO_FILE = "log_to_file";
+    public static final String PREF_JUNK_POLICY = "junk_policy";
+    public static final String PREF_BUDGET_TIME_MS = "budget_time_ms";
+    public static final String PREF_BUDGET_MEMORY_MB = "budget_memory_mb";
+    public static final String PREF_GIT_CHANGES_ONLY = "git_changes_only";
+    public static final String PREF_GIT_REF = "git_ref";
+    public static final String PREF_GIT_INCLUDE_DIFF = "git_include_diff";
+    public static final String PREF_LOCALITY_READS = "locality_reads";
+    public static final String PREF_DEADLINE_SECONDS = "deadline_seconds";
+
+    // Приватный конструктор
+    private ProjectConstants() {}
+}
\ No newline at end of file
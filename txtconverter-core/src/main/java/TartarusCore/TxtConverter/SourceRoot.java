@@ -0,0 +1,173 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Корень исходников: обычная папка или архив (zip, jar, war...), открытый через zip-провайдер JDK.
+ *
+ * Для архива сканирование и конвертация идут прямо по его записям, без распаковки на диск:
+ * все остальные классы работают с {@link Path} и не различают эти случаи.
+ * Записи FileRecord ссылаются на файловую систему архива, поэтому она живет, пока ее кто-то держит:
+ * каждый {@link #open} и {@link #retain} - ссылка, которую нужно вернуть через {@link #close}.
+ * Архив закрывается с последней ссылкой. Если архив изменился на диске, новое сканирование
+ * открывает его заново, а прежний экземпляр остается открытым для тех, кто еще работает
+ * с его записями (прогон, запрос сервера), и закрывается, когда они закончат.
+ * Для папки ссылки ничего не держат.
+ */
+public final class SourceRoot implements AutoCloseable {
+
+    private static final Set<String> ARCHIVE_EXTENSIONS = Set.of(".zip", ".jar", ".war", ".ear", ".aar");
+
+    // Текущий экземпляр для пути архива: его получают новые open()
+    private static final Map<Path, SourceRoot> openArchives = new HashMap<>();
+    // Все еще не закрытые экземпляры (и замененные новыми) по файловой системе - для retain по записям
+    private static final Map<FileSystem, SourceRoot> liveArchives = new HashMap<>();
+
+    private final Path location;
+    private final Path root;
+    private final FileSystem fileSystem; // null для папки
+    private final FileTime stamp;
+    private int references = 1; // под монитором SourceRoot.class
+
+    private SourceRoot(Path location, Path root, FileSystem fileSystem, FileTime stamp) {
+        this.location = location;
+        this.root = root;
+        this.fileSystem = fileSystem;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Открывает источник; результат нужно закрыть. Повторный вызов для того же архива возвращает
+     * уже открытый экземпляр (с новой ссылкой), чтобы пути из сканирования оставались действительными.
+     * @param refresh открыть архив заново, если он изменился на диске (при новом сканировании)
+     */
+    public static synchronized SourceRoot open(String location, boolean refresh) throws IOException {
+        Path path = Paths.get(location);
+        if (!isArchive(path)) {
+            return new SourceRoot(path, path, null, null);
+        }
+
+        FileTime stamp = Files.getLastModifiedTime(path);
+        SourceRoot open = openArchives.get(path);
+        if (open != null && (!refresh || open.stamp.equals(stamp))) {
+            open.references++;
+            return open;
+        }
+        // Прежний экземпляр закроется, когда его отпустят все, кто держит его записи
+        if (open != null) openArchives.remove(path);
+
+        FileSystem fs = FileSystems.newFileSystem(path);
+        Path root;
+        try {
+            root = unwrapSingleFolder(fs.getPath("/"));
+        } catch (IOException e) {
+            fs.close();
+            throw e;
+        }
+        SourceRoot archive = new SourceRoot(path, root, fs, stamp);
+        openArchives.put(path, archive);
+        liveArchives.put(fs, archive);
+        return archive;
+    }
+
+    public static SourceRoot open(String location) throws IOException {
+        return open(location, false);
+    }
+
+    /**
+     * Ссылка на источник, которому принадлежат записи сканирования (результат нужно закрыть).
+     * Для записей из архива это тот самый экземпляр, даже если архив уже открыт заново.
+     * @throws IOException архив записей уже закрыт - записи устарели, нужно пересканировать
+     */
+    public static synchronized SourceRoot retain(String location, List<FileRecord> records) throws IOException {
+        if (records.isEmpty()) return open(location);
+        FileSystem fs = records.get(0).getTable().getRoot().getFileSystem();
+        SourceRoot archive = liveArchives.get(fs);
+        if (archive != null) return archive.retain();
+        if (fs == FileSystems.getDefault()) return open(location);
+        throw new IOException("Archive " + location + " was closed, rescan it");
+    }
+
+    /** Еще одна ссылка на этот источник (ее нужно закрыть). */
+    public SourceRoot retain() throws IOException {
+        synchronized (SourceRoot.class) {
+            if (fileSystem == null) return this;
+            if (references == 0) throw new IOException("Archive " + location + " was closed, rescan it");
+            references++;
+            return this;
+        }
+    }
+
+    /** Отпускает ссылку; с последней ссылкой архив закрывается. */
+    @Override
+    public void close() throws IOException {
+        synchronized (SourceRoot.class) {
+            if (fileSystem == null || references == 0) return;
+            if (--references > 0) return;
+            openArchives.remove(location, this);
+            liveArchives.remove(fileSystem);
+        }
+        fileSystem.close();
+    }
+
+    /**
+     * Архивы релизов и -sources.jar обычно содержат одну папку верхнего уровня (project-1.0/):
+     * корнем считаем ее, чтобы пути в отчетах не начинались с лишнего сегмента.
+     */
+    private static Path unwrapSingleFolder(Path root) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            Iterator<Path> it = stream.iterator();
+            if (!it.hasNext()) return root;
+            Path only = it.next();
+            return (!it.hasNext() && Files.isDirectory(only)) ? only : root;
+        }
+    }
+
+    public static boolean isArchive(Path path) {
+        String name = path.getFileName() != null ? path.getFileName().toString().toLowerCase(Locale.ROOT) : "";
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && ARCHIVE_EXTENSIONS.contains(name.substring(dot)) && Files.isRegularFile(path);
+    }
+
+    /**
+     * Имя проекта для имен результата: имя папки или имя архива без расширения.
+     */
+    public static String projectName(Path location) {
+        String name = location.getFileName().toString();
+        if (isArchive(location)) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        return name;
+    }
+
+    /** Папка или файл архива на диске - то, что выбрал пользователь. */
+    public Path getLocation() {
+        return location;
+    }
+
+    /** Корень обхода: та же папка или корень внутри архива. */
+    public Path getRoot() {
+        return root;
+    }
+
+    public boolean isArchive() {
+        return fileSystem != null;
+    }
+
+    public String getProjectName() {
+        return projectName(location);
+    }
+}
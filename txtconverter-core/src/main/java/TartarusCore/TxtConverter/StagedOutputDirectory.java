@@ -0,0 +1,140 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выходная папка, которая собирается во временной staging-директории рядом с целевой
+ * и подменяет ее переименованием только после успешного завершения конвертации.
+ *
+ * Пока идет конвертация, пользователь видит предыдущий результат целиком.
+ * При отмене или ошибке staging удаляется, а прежний результат остается нетронутым.
+ * Старая папка переименовывается в "корзину" и удаляется в фоне через {@link BackgroundDeleter}.
+ *
+ * Имена staging и корзин уникальны (Files.createTempDirectory), поэтому одновременные прогоны
+ * в одну папку не мешают друг другу. Остатки аварийно завершенных прогонов подбираются, только
+ * когда они заведомо брошены: не менялись дольше {@link #STALE_LEFTOVER_HOURS} часов.
+ */
+public class StagedOutputDirectory {
+
+    // Staging живого прогона обновляется с каждым записанным файлом, корзина удаляется за минуты
+    private static final long STALE_LEFTOVER_HOURS = 6;
+
+    private final Path targetPath;
+    private final Path stagingPath;
+    private boolean finished = false;
+
+    private StagedOutputDirectory(Path targetPath, Path stagingPath) {
+        this.targetPath = targetPath;
+        this.stagingPath = stagingPath;
+    }
+
+    public static StagedOutputDirectory create(Path targetPath) throws IOException {
+        Path parent = targetPath.toAbsolutePath().getParent();
+        String name = targetPath.getFileName().toString();
+        cleanupLeftovers(parent, name);
+
+        Path staging = Files.createTempDirectory(parent, name + ProjectConstants.STAGING_DIR_SUFFIX, outputPermissions(parent));
+        return new StagedOutputDirectory(targetPath, staging);
+    }
+
+    /**
+     * createTempDirectory по умолчанию дает в POSIX права только владельцу, а staging станет
+     * выходной папкой: просим обычные права (с учетом umask), как у Files.createDirectories.
+     */
+    private static FileAttribute<?>[] outputPermissions(Path parent) {
+        if (!parent.getFileSystem().supportedFileAttributeViews().contains("posix")) return new FileAttribute<?>[0];
+        return new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxr-xr-x"))};
+    }
+
+    /** Папка, в которую нужно писать результаты текущего запуска. */
+    public Path getPath() {
+        return stagingPath;
+    }
+
+    /**
+     * Подменяет целевую папку собранной. Старая версия сначала отодвигается переименованием
+     * (это мгновенно даже для огромных папок), а удаляется уже в фоне.
+     */
+    public void commit() throws IOException {
+        if (finished) return;
+        finished = true;
+
+        // Корзина - уникальная папка, старая версия переносится внутрь нее
+        Path trash = null;
+        if (Files.exists(targetPath)) {
+            Path parent = targetPath.toAbsolutePath().getParent();
+            trash = Files.createTempDirectory(parent, targetPath.getFileName() + ProjectConstants.TRASH_DIR_SUFFIX);
+            try {
+                move(targetPath, trash.resolve(targetPath.getFileName().toString()));
+            } catch (IOException e) {
+                BackgroundDeleter.deleteLater(trash);
+                BackgroundDeleter.deleteLater(stagingPath);
+                throw e;
+            }
+        }
+
+        try {
+            move(stagingPath, targetPath);
+        } catch (IOException e) {
+            // Возвращаем прежний результат на место, чтобы пользователь не остался без вывода
+            if (trash != null) {
+                try {
+                    move(trash.resolve(targetPath.getFileName().toString()), targetPath);
+                } catch (IOException ignored) {}
+                BackgroundDeleter.deleteLater(trash);
+            }
+            BackgroundDeleter.deleteLater(stagingPath);
+            throw e;
+        }
+
+        if (trash != null) {
+            BackgroundDeleter.deleteLater(trash);
+        }
+    }
+
+    /** Отбрасывает недособранный результат. Предыдущая выходная папка не затрагивается. */
+    public void abort() {
+        if (finished) return;
+        finished = true;
+        BackgroundDeleter.deleteLater(stagingPath);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to);
+        }
+    }
+
+    /**
+     * Подбирает staging/корзины, оставшиеся после аварийного завершения прошлых запусков.
+     * Свежие не трогаются: это может быть staging другого, еще идущего прогона.
+     */
+    private static void cleanupLeftovers(Path parent, String targetName) {
+        String stagingPrefix = targetName + ProjectConstants.STAGING_DIR_SUFFIX;
+        String trashPrefix = targetName + ProjectConstants.TRASH_DIR_SUFFIX;
+        long staleBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(STALE_LEFTOVER_HOURS);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent,
+                p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(stagingPrefix) || name.startsWith(trashPrefix);
+                })) {
+            for (Path leftover : stream) {
+                try {
+                    FileTime modified = Files.getLastModifiedTime(leftover, LinkOption.NOFOLLOW_LINKS);
+                    if (modified.toMillis() < staleBefore) BackgroundDeleter.deleteLater(leftover);
+                } catch (IOException ignored) {
+                    // Уже удален другим прогоном
+                }
+            }
+        } catch (IOException ignored) {
+            // Не критично: мусор будет подобран в следующий раз
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package TartarusCore.TxtConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Вывод всех записей подряд в стандартный поток вывода (для конвейеров и скриптов).
+ * Каждая запись предваряется строкой-разделителем с ее именем.
+ */
+public class StdoutOutputSink implements OutputSink {
+
+    private final OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+
+    @Override
+    public void write(String name, byte[] data) throws IOException {
+        writeSeparator(name);
+        out.write(data);
+        out.write('\n');
+    }
+
+    @Override
+    public OutputStream openStream(String name) throws IOException {
+        writeSeparator(name);
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.write('\n');
+            }
+        };
+    }
+
+    private void writeSeparator(String name) throws IOException {
+        out.write(("===== " + name + " =====\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void commit() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public String describeLocation() {
+        return "stdout";
+    }
+
+    @Override
+    public void close() throws IOException {
+        // System.out не закрываем
+        out.flush();
+    }
+}
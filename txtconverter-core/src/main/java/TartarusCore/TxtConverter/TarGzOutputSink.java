@@ -0,0 +1,171 @@
+package TartarusCore.TxtConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Вывод в tar.gz (формат ustar, длинные имена через GNU LongLink).
+ * В JDK нет tar, поэтому заголовки пишутся вручную. Размер записи tar нужен до ее данных:
+ * тексты и копии файлов пишутся сразу (размер известен), и только записи неизвестного заранее
+ * размера, открытые через {@link #openStream} (общий файл), сначала пишутся во временный файл
+ * и копируются в архив при закрытии: в памяти они не копятся, сколько бы ни весили.
+ */
+public final class TarGzOutputSink extends ArchiveOutputSink {
+
+    private static final int BLOCK = 512;
+    private static final int NAME_LENGTH = 100;
+
+    private final GZIPOutputStream gzip;
+    private final long mtimeSeconds = System.currentTimeMillis() / 1000;
+    // Временный файл открытой потоковой записи (null - ее нет)
+    private Path pendingEntry;
+
+    public TarGzOutputSink(Path target) throws IOException {
+        super(target);
+        this.gzip = new GZIPOutputStream(fileStream(), BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(String name, byte[] data) throws IOException {
+        writeEntry(name, data, data.length);
+    }
+
+    @Override
+    public void write(String name, String text) throws IOException {
+        write(name, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Размер берется у файла при открытии; если файл за это время укоротился, запись дополняется нулями. */
+    @Override
+    public void copyFile(String name, Path source) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            writeNameHeaders(name, size);
+            WritableByteChannel out = Channels.newChannel(gzip);
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) break;
+                position += transferred;
+            }
+            for (long left = size - position; left > 0; left -= BLOCK) {
+                gzip.write(new byte[(int) Math.min(BLOCK, left)]);
+            }
+            writePadding(size);
+        }
+    }
+
+    @Override
+    public OutputStream openStream(String name) throws IOException {
+        Path temp = Files.createTempFile("txtconverter-entry-", ".tmp");
+        pendingEntry = temp;
+        OutputStream buffer = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE);
+        return new EntryStream(buffer) {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                try {
+                    buffer.close();
+                    long length = Files.size(temp);
+                    writeNameHeaders(name, length);
+                    Files.copy(temp, gzip);
+                    writePadding(length);
+                } finally {
+                    pendingEntry = null;
+                    Files.deleteIfExists(temp);
+                }
+            }
+        };
+    }
+
+    private void writeEntry(String name, byte[] data, int length) throws IOException {
+        writeNameHeaders(name, length);
+        gzip.write(data, 0, length);
+        writePadding(length);
+    }
+
+    private void writeNameHeaders(String name, long length) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > NAME_LENGTH) {
+            // GNU-расширение: имя целиком идет отдельной записью перед файлом
+            byte[] longName = new byte[nameBytes.length + 1];
+            System.arraycopy(nameBytes, 0, longName, 0, nameBytes.length);
+            writeHeader("././@LongLink", longName.length, (byte) 'L');
+            gzip.write(longName);
+            writePadding(longName.length);
+        }
+        writeHeader(name, length, (byte) '0');
+    }
+
+    private void writeHeader(String name, long size, byte typeFlag) throws IOException {
+        byte[] header = new byte[BLOCK];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, NAME_LENGTH));
+
+        putOctal(header, 100, 8, 0644);          // mode
+        putOctal(header, 108, 8, 0);             // uid
+        putOctal(header, 116, 8, 0);             // gid
+        putOctal(header, 124, 12, size);         // size
+        putOctal(header, 136, 12, mtimeSeconds); // mtime
+        header[156] = typeFlag;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+
+        // Контрольная сумма считается с пробелами на месте самого поля
+        for (int i = 148; i < 156; i++) header[i] = ' ';
+        long checksum = 0;
+        for (byte b : header) checksum += (b & 0xFF);
+        putOctal(header, 148, 7, checksum);
+        header[155] = ' ';
+
+        gzip.write(header);
+    }
+
+    private void writePadding(long length) throws IOException {
+        int remainder = (int) (length % BLOCK);
+        if (remainder != 0) {
+            gzip.write(new byte[BLOCK - remainder]);
+        }
+    }
+
+    /** Восьмеричное число с ведущими нулями и завершающим NUL. */
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = Long.toOctalString(value);
+        int digits = length - 1;
+        int pad = digits - octal.length();
+        for (int i = 0; i < digits; i++) {
+            header[offset + i] = (byte) (i < pad ? '0' : octal.charAt(i - pad));
+        }
+        header[offset + digits] = 0;
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        // Конец архива - два пустых блока
+        gzip.write(new byte[BLOCK * 2]);
+        gzip.finish();
+    }
+
+    @Override
+    protected void closeStreams() throws IOException {
+        try {
+            gzip.close();
+        } finally {
+            // Запись, брошенная незакрытой при ошибке или отмене
+            if (pendingEntry != null) Files.deleteIfExists(pendingEntry);
+        }
+    }
+}
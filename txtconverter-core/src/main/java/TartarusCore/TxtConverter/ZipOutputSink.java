@@ -0,0 +1,51 @@
+package TartarusCore.TxtConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Вывод в один ZIP-архив. Записи сжимаются потоково, без временных файлов.
+ */
+public final class ZipOutputSink extends ArchiveOutputSink {
+
+    private final ZipOutputStream zip;
+
+    public ZipOutputSink(Path target) throws IOException {
+        super(target);
+        this.zip = new ZipOutputStream(fileStream());
+        // Текст сжимается хорошо и быстрым уровнем, а время здесь важнее пары процентов
+        zip.setLevel(Deflater.BEST_SPEED);
+    }
+
+    @Override
+    public void write(String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    @Override
+    public OutputStream openStream(String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        return new EntryStream(zip) {
+            @Override
+            public void close() throws IOException {
+                zip.closeEntry();
+            }
+        };
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        zip.finish();
+    }
+
+    @Override
+    protected void closeStreams() throws IOException {
+        zip.close();
+    }
+}